@@ -0,0 +1,32 @@
+package org.example.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Startet die JMH-Benchmarks immer mit GC-/Allokationsprofiler (gc.alloc.rate.norm = Bytes pro Operation)
+ * und schreibt die Ergebnisse zusätzlich als JSON (jmh-result.json) zum Vergleich zwischen Versionen.
+ *
+ * Beispiele:
+ *   java -jar benchmarks/target/benchmarks.jar                         # alles
+ *   java -jar benchmarks/target/benchmarks.jar ModExp -p keyBits=2048  # Auswahl per Regex + JMH-Optionen
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(cli)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json");
+        if (cli.getIncludes().isEmpty()) {
+            builder.include("org\\.example\\.jmh\\..*");
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.jmh;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.example.rsa.BlockArray;
+import org.example.rsa.BlockCodec;
+import org.example.rsa.RSAUTF8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Block- und Base64-Kodierung aus RSAUTF8: Bytes ↔ Blöcke und Blöcke ↔ Base64, ohne Exponentiation.
+ * Jeweils als List&lt;BigInteger&gt; und gepackt als BlockArray; zusammen mit dem GC-Profiler zeigt das die Allokation
+ * pro Operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"1024", "2048", "4096"})
+    int keyBits;
+
+    @Param({"1024", "65536"})
+    int payloadBytes;
+
+    BigInteger n;
+    byte[] payload;
+    List<BigInteger> plainBlocks;
+    List<BigInteger> cipherBlocks;
+    BlockArray packedCipher;
+    String base64;
+    int cipherBlockSize;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        KeyFixture key = KeyFixture.of(keyBits);
+        n = key.n;
+        payload = KeyFixture.payload(payloadBytes, 99);
+        plainBlocks = RSAUTF8.bytesToBigIntegerBlocks(payload, n);
+        // Chiffratblöcke: volle Breite, wie sie nach der Exponentiation entstehen
+        cipherBlocks = plainBlocks.stream().map(b -> b.modPow(key.e, n)).toList();
+        base64 = RSAUTF8.blocksToBase64String(cipherBlocks, n);
+        cipherBlockSize = BlockCodec.cipherBlockSize(n.bitLength());
+        packedCipher = BlockArray.of(cipherBlocks, cipherBlockSize);
+    }
+
+    @Benchmark
+    public List<BigInteger> bytesToBlocks() {
+        return RSAUTF8.bytesToBigIntegerBlocks(payload, n);
+    }
+
+    @Benchmark
+    public byte[] blocksToBytes() {
+        return RSAUTF8.bigIntegerBlocksToBytes(cipherBlocks, cipherBlockSize);
+    }
+
+    @Benchmark
+    public String blocksToBase64() {
+        return RSAUTF8.blocksToBase64String(cipherBlocks, n);
+    }
+
+    @Benchmark
+    public BlockArray base64ToBlocks() {
+        return RSAUTF8.base64StringToBlocks(base64, n);
+    }
+
+    @Benchmark
+    public BlockArray bytesToPacked() {
+        return BlockArray.split(payload, BlockCodec.plainBlockSize(n.bitLength()));
+    }
+
+    @Benchmark
+    public String packedToBase64() {
+        return RSAUTF8.blocksToBase64String(packedCipher);
+    }
+}
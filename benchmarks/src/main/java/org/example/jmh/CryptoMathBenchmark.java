@@ -0,0 +1,75 @@
+package org.example.jmh;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.example.mpjkeygen.CryptoMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CryptoMath.modInverse und CryptoMath.ggt gegen die BigInteger-Pendants,
+ * mit den Operanden aus der Schlüsselerzeugung (e, φ(n)) und der CRT (q, p).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoMathBenchmark {
+
+    @Param({"1024", "2048", "4096"})
+    int keyBits;
+
+    BigInteger e, phi, p, q;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        KeyFixture key = KeyFixture.of(keyBits);
+        e = key.e;
+        p = key.p;
+        q = key.q;
+        phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+    }
+
+    @Benchmark
+    public BigInteger modInversePrivateExponent() {
+        return CryptoMath.modInverse(e, phi);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerModInversePrivateExponent() {
+        return e.modInverse(phi);
+    }
+
+    @Benchmark
+    public BigInteger modInverseQInv() {
+        return CryptoMath.modInverse(q, p);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerModInverseQInv() {
+        return q.modInverse(p);
+    }
+
+    @Benchmark
+    public BigInteger ggt() {
+        return CryptoMath.ggt(p, q);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerGcd() {
+        return p.gcd(q);
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.jmh;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Reproduzierbare RSA-Schlüssel für die Benchmarks (fester Seed pro Bitlänge, e = 65537).
+ * Die Erzeugung gehört nicht in die Messung und läuft nur im @Setup.
+ */
+final class KeyFixture {
+
+    final int bits;
+    final BigInteger p, q, n, e, d;
+
+    private KeyFixture(int bits) {
+        Random rnd = new Random(0x5EED_0000L + bits);
+        BigInteger e = BigInteger.valueOf(65537);
+        BigInteger p, q, phi;
+        do {
+            p = BigInteger.probablePrime(bits / 2, rnd);
+            q = BigInteger.probablePrime(bits - bits / 2, rnd);
+            phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+        } while (p.equals(q) || !phi.gcd(e).equals(BigInteger.ONE));
+        this.bits = bits;
+        this.p = p;
+        this.q = q;
+        this.n = p.multiply(q);
+        this.e = e;
+        this.d = e.modInverse(phi);
+    }
+
+    static KeyFixture of(int bits) {
+        return new KeyFixture(bits);
+    }
+
+    /** Zufälliger Wert in [2, n) mit festem Seed. */
+    BigInteger randomBelowModulus(long seed) {
+        Random rnd = new Random(seed);
+        BigInteger x;
+        do {
+            x = new BigInteger(n.bitLength(), rnd);
+        } while (x.compareTo(BigInteger.TWO) < 0 || x.compareTo(n) >= 0);
+        return x;
+    }
+
+    /** Zufällige Nutzdaten mit festem Seed. */
+    static byte[] payload(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
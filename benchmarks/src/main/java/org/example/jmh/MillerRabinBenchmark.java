@@ -0,0 +1,74 @@
+package org.example.jmh;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Miller-Rabin: org.example.MillerRabin und org.example.mpjkeygen.MillerRabin gegen BigInteger.isProbablePrime.
+ * candidate = prime (alle Runden laufen durch) oder composite (ungerade, ohne kleine Teiler → typischer Fehlschlag
+ * der Primzahlsuche nach Runde 1).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MillerRabinBenchmark {
+
+    /** Bitlänge des Kandidaten (= halbe Schlüssellänge). */
+    @Param({"512", "1024", "2048"})
+    int bits;
+
+    @Param({"prime", "composite"})
+    String candidate;
+
+    @Param({"20"})
+    int iterations;
+
+    BigInteger n;
+    SecureRandom rnd;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random seeded = new Random(7L * bits);
+        if (candidate.equals("prime")) {
+            n = BigInteger.probablePrime(bits, seeded);
+        } else {
+            // Produkt zweier Primzahlen ohne kleine Faktoren: übersteht die Probedivision
+            n = BigInteger.probablePrime(bits / 2, seeded).multiply(BigInteger.probablePrime(bits - bits / 2, seeded));
+        }
+        rnd = new SecureRandom();
+    }
+
+    @Benchmark
+    public boolean legacyMillerRabin() {
+        return org.example.MillerRabin.isProbablePrimeMR(n, iterations, rnd);
+    }
+
+    @Benchmark
+    public boolean mpjkeygenMillerRabin() {
+        return org.example.mpjkeygen.MillerRabin.isProbablePrimeMR(n, iterations, rnd);
+    }
+
+    @Benchmark
+    public boolean bigIntegerIsProbablePrime() {
+        // certainty 2 * iterations ≈ gleiche Fehlerschranke 4^-iterations
+        return n.isProbablePrime(2 * iterations);
+    }
+}
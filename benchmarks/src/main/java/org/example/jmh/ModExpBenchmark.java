@@ -0,0 +1,63 @@
+package org.example.jmh;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.example.SchnelleExponentiation;
+import org.example.mpjkeygen.schnelleExponentiation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Modulare Exponentiation: beide schnelleExponentiation-Varianten gegen BigInteger.modPow.
+ * exponent = public (e = 65537, Verschlüsseln) oder private (d, Entschlüsseln).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModExpBenchmark {
+
+    @Param({"1024", "2048", "4096"})
+    int keyBits;
+
+    @Param({"public", "private"})
+    String exponent;
+
+    BigInteger base, exp, mod;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        KeyFixture key = KeyFixture.of(keyBits);
+        base = key.randomBelowModulus(42);
+        exp = exponent.equals("public") ? key.e : key.d;
+        mod = key.n;
+    }
+
+    @Benchmark
+    public BigInteger mpjkeygenPow() {
+        return schnelleExponentiation.pow(base, exp, mod);
+    }
+
+    @Benchmark
+    public BigInteger schnelleExponentiation() {
+        return SchnelleExponentiation.schnelleExponentiation(base, exp, mod);
+    }
+
+    @Benchmark
+    public BigInteger modPow() {
+        return base.modPow(exp, mod);
+    }
+}
@@ -0,0 +1,237 @@
+package org.example;
+
+import mpi.Intracomm;
+import mpi.MPI;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.example.mpjkeygen.CandidateSieve;
+import org.example.mpjkeygen.PrimeSearch;
+import org.example.mpjkeygen.RankDrbg;
+import org.example.rsa.BlockExecutor;
+import org.example.rsa.ModExpEngine;
+
+/**
+ * Kalibriert die TuningProfile-Parameter für eine Schlüsselgröße per Mikrobenchmark auf diesem Rechner:
+ *
+ * - engine/windowBits: ns pro x^d mod n (volle Bitlänge) für alle Engines, WINDOW mit Breite 2..7 → schnellste.
+ * - sieveWindow/trialPrimes: Zeit bis zur Primzahl (halbe Bitlänge) über ein Raster aus Siebfenster ×
+ *   Primzahlanzahl; alle Varianten mit demselben Zufallsstrom, Fenster 0 = reine Probedivision.
+ * - candidatesPerRound: so viele Kandidaten, dass ein Kollektiv (gemessen bzw. -Drsa.tuning.syncMicros)
+ *   höchstens ~5 % der Rundenzeit ausmacht.
+ * - chunkBlocks: Blöcke, die ein Rank in ca. -Drsa.tuning.chunkMillis=20 ms entschlüsselt.
+ * - threads: kleinste Threadzahl mit mindestens 95 % des besten Durchsatzes (BlockExecutor).
+ *
+ * Offline: java -cp bin org.example.Autotuner [-bitlength=1024,2048] [-engines=mpjkeygen,window] [-millis=150]
+ * Beim Start: Main, MainKeyGen und die mpj-Treiber mit -tune (fehlende Schlüsselgröße kalibrieren)
+ * bzw. -tune=force (neu kalibrieren) → ensure(...).
+ * Messdauer pro Variante: -millis bzw. -Drsa.tuning.millis=150.
+ */
+public final class Autotuner {
+
+    private static final int[] WINDOWS = {2, 3, 4, 5, 6, 7};
+    private static final int[] SIEVE_WINDOWS = {0, 1024, 8192};
+    private static final int[] TRIAL_PRIMES = {11, 128, 1024};
+    private static final int PRIMES_PER_VARIANT = 3;
+    private static final int TUNING_MR_ROUNDS = 2;   // nur der Ablehnungspfad unterscheidet die Varianten
+
+    private Autotuner() {}
+
+    public static void main(String[] args) throws IOException {
+        List<Integer> sizes = new ArrayList<>(List.of(1024, 2048));
+        List<ModExpEngine> engines = List.of(ModExpEngine.values());
+        long millis = Long.getLong("rsa.tuning.millis", 150);
+        for (String arg : args) {
+            String v = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("-bitlength=")) {
+                sizes = Arrays.stream(v.split(",")).map(String::trim).map(Integer::parseInt).toList();
+            } else if (arg.startsWith("-engines=")) {
+                engines = Arrays.stream(v.split(",")).map(ModExpEngine::parse).toList();
+            } else if (arg.startsWith("-millis=")) {
+                millis = Long.parseLong(v);
+            }
+        }
+
+        TuningProfile profile = TuningProfile.current();
+        double syncNs = Double.parseDouble(System.getProperty("rsa.tuning.syncMicros", "200")) * 1e3;
+        System.out.println("[Tuning] Profil: " + profile.file().toAbsolutePath());
+        for (int keyBits : sizes) {
+            profile.put(keyBits, calibrate(keyBits, engines, syncNs, millis, System.out));
+        }
+        profile.store();
+        System.out.print(profile.describe());
+    }
+
+    /**
+     * Kollektiv auf comm: stellt sicher, dass für keyBits kalibrierte Parameter vorliegen. Pro Host misst nur der
+     * Leader (die übrigen Ranks warten im Bcast, damit sie die Messung nicht stören) und speichert das Profil;
+     * ohne force nur, wenn das Profil des Leaders keyBits noch nicht enthält.
+     */
+    public static TuningProfile.Params ensure(Intracomm comm, int keyBits, boolean force) throws Exception {
+        HostTopology topo = HostTopology.build(comm);
+        TuningProfile.Params params = ensure(comm, topo, keyBits, force);
+        topo.close();
+        return params;
+    }
+
+    public static TuningProfile.Params ensure(Intracomm comm, HostTopology topo, int keyBits, boolean force)
+            throws IOException {
+        double syncNs = measureAllgatherNanos(comm);
+        TuningProfile profile = TuningProfile.current();
+
+        Object[] shared = new Object[1];
+        if (topo.isLeader() && (force || !profile.has(keyBits))) {
+            System.out.println("[Tuning][" + topo.host() + "] kalibriere " + keyBits + " Bit ...");
+            List<ModExpEngine> engines = Arrays.stream(System.getProperty("rsa.tuning.engines",
+                    String.join(",", Arrays.stream(ModExpEngine.values()).map(ModExpEngine::id).toList())).split(","))
+                    .map(ModExpEngine::parse).toList();
+            TuningProfile.Params p = calibrate(keyBits, engines, syncNs,
+                    Long.getLong("rsa.tuning.millis", 150), System.out);
+            PerfCounters.reset();   // Messläufe nicht in den Zählern des eigentlichen Laufs
+            profile.put(keyBits, p);
+            profile.store();
+            System.out.println("[Tuning][" + topo.host() + "] gespeichert: " + profile.file().toAbsolutePath());
+            shared[0] = new String[]{ p.engine, Integer.toString(p.windowBits), Integer.toString(p.sieveWindow),
+                    Integer.toString(p.trialPrimes), Integer.toString(p.candidatesPerRound),
+                    Integer.toString(p.chunkBlocks), Integer.toString(p.threads) };
+        }
+        topo.local().Bcast(shared, 0, 1, MPI.OBJECT, 0);
+        if (shared[0] != null && !topo.isLeader()) {
+            String[] v = (String[]) shared[0];
+            profile.put(keyBits, new TuningProfile.Params(v[0], Integer.parseInt(v[1]), Integer.parseInt(v[2]),
+                    Integer.parseInt(v[3]), Integer.parseInt(v[4]), Integer.parseInt(v[5]), Integer.parseInt(v[6])));
+        }
+        return profile.forKeyBits(keyBits);
+    }
+
+    /** Mittlere Dauer eines Allgather mit einem Objekt pro Rank (entspricht einer Runde in PrimeSearch). */
+    private static double measureAllgatherNanos(Intracomm comm) {
+        Object[] send = new Object[1];
+        Object[] recv = new Object[comm.Size()];
+        comm.Allgather(send, 0, 1, MPI.OBJECT, recv, 0, 1, MPI.OBJECT);
+        int reps = 20;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < reps; i++) comm.Allgather(send, 0, 1, MPI.OBJECT, recv, 0, 1, MPI.OBJECT);
+        return (System.nanoTime() - t0) / (double) reps;
+    }
+
+    /** Alle Messungen für eine Schlüsselgröße; lokal, ohne MPI. */
+    public static TuningProfile.Params calibrate(int keyBits, List<ModExpEngine> engines, double syncNs,
+                                                 long millis, PrintStream log) {
+        long budget = millis * 1_000_000L;
+        SecureRandom rnd = RankDrbg.forRank(0, null);
+        BigInteger n = new BigInteger(keyBits, rnd).setBit(keyBits - 1).setBit(0);
+        BigInteger d = new BigInteger(keyBits, rnd).mod(n);
+        BigInteger x = new BigInteger(keyBits - 1, rnd);
+
+        // 1) Engine und Fensterbreite
+        ModExpEngine bestEngine = null;
+        int bestWindow = TuningProfile.Params.defaults().windowBits;
+        double bestNs = Double.MAX_VALUE;
+        for (ModExpEngine engine : engines) {
+            int[] widths = (engine == ModExpEngine.WINDOW) ? WINDOWS : new int[]{ bestWindow };
+            for (int w : widths) {
+                ModExpEngine.configure(engine, w);
+                double ns = nanosPerOp(() -> engine.pow(x, d, n), budget);
+                log.printf(Locale.ROOT, "[Tuning] %5d Bit  modexp %-9s%s %10.3f ms%n", keyBits, engine.id(),
+                        engine == ModExpEngine.WINDOW ? " w=" + w : "    ", ns / 1e6);
+                if (ns < bestNs) {
+                    bestNs = ns;
+                    bestEngine = engine;
+                    bestWindow = (engine == ModExpEngine.WINDOW) ? w : bestWindow;
+                }
+            }
+        }
+        ModExpEngine.configure(bestEngine, bestWindow);
+        final double modExpNs = bestNs;
+
+        // 2) Siebfenster × Anzahl kleiner Primzahlen (gleicher Zufallsstrom für alle Varianten)
+        int primeBits = keyBits / 2;
+        long seed = rnd.nextLong();
+        int bestSieve = 0, bestPrimes = TuningProfile.Params.defaults().trialPrimes;
+        double bestPrimeNs = Double.MAX_VALUE;
+        for (int window : SIEVE_WINDOWS) {
+            for (int primes : TRIAL_PRIMES) {
+                SecureRandom seeded = RankDrbg.forRank(0, Long.toString(seed));
+                CandidateSieve source = new CandidateSieve(primeBits, window, primes, seeded);
+                long t0 = System.nanoTime();
+                for (int i = 0; i < PRIMES_PER_VARIANT; i++) {
+                    PrimeSearch.searchRound(source, TUNING_MR_ROUNDS, seeded, Integer.MAX_VALUE);
+                }
+                double ns = (System.nanoTime() - t0) / (double) PRIMES_PER_VARIANT;
+                log.printf(Locale.ROOT, "[Tuning] %5d Bit  Primsuche Sieb=%-5d Primzahlen=%-5d %10.3f ms/Primzahl%n",
+                        keyBits, window, primes, ns / 1e6);
+                if (ns < bestPrimeNs) {
+                    bestPrimeNs = ns;
+                    bestSieve = window;
+                    bestPrimes = primes;
+                }
+            }
+        }
+
+        // 3) Kandidaten pro Runde: Kollektiv ≤ ~5 % der Rundenzeit
+        CandidateSieve source = new CandidateSieve(primeBits, bestSieve, bestPrimes, rnd);
+        double candidateNs = nanosPerOp(() -> PrimeSearch.searchRound(source, TUNING_MR_ROUNDS, rnd, 1), budget);
+        int perRound = (int) Math.max(1, Math.min(64, Math.ceil(20 * syncNs / candidateNs)));
+        log.printf(Locale.ROOT, "[Tuning] %5d Bit  Kandidat %.3f ms, Kollektiv %.3f ms → %d Kandidaten/Runde%n",
+                keyBits, candidateNs / 1e6, syncNs / 1e6, perRound);
+
+        // 4) Chunkgröße für die verteilte Entschlüsselung
+        double chunkMillis = Double.parseDouble(System.getProperty("rsa.tuning.chunkMillis", "20"));
+        int chunk = (int) Math.max(16, Math.min(4096, Math.round(chunkMillis * 1e6 / modExpNs)));
+
+        // 5) Threads pro Host (kürzerer Exponent: nur die Skalierung zählt)
+        int cores = Runtime.getRuntime().availableProcessors();
+        BigInteger shortExp = d.mod(BigInteger.ONE.shiftLeft(Math.min(512, keyBits)));
+        List<BigInteger> blocks = new ArrayList<>();
+        for (int i = 0; i < 4 * cores; i++) blocks.add(new BigInteger(keyBits - 1, rnd));
+        List<Integer> counts = new ArrayList<>();
+        for (int t = 1; t < cores; t *= 2) counts.add(t);
+        counts.add(cores);
+        double[] throughput = new double[counts.size()];
+        double bestThroughput = 0;
+        for (int i = 0; i < counts.size(); i++) {
+            double ns;
+            try (BlockExecutor executor = new BlockExecutor(counts.get(i), 1)) {
+                ns = nanosPerOp(() -> executor.pow(blocks, shortExp, n), budget);
+            }
+            throughput[i] = blocks.size() / ns;
+            bestThroughput = Math.max(bestThroughput, throughput[i]);
+            log.printf(Locale.ROOT, "[Tuning] %5d Bit  %2d Threads %10.1f Blöcke/s%n", keyBits, counts.get(i), throughput[i] * 1e9);
+        }
+        int threads = cores;
+        for (int i = 0; i < counts.size(); i++) {
+            if (throughput[i] >= 0.95 * bestThroughput) {
+                threads = counts.get(i);
+                break;
+            }
+        }
+
+        TuningProfile.Params p = new TuningProfile.Params(bestEngine.id(), bestWindow, bestSieve, bestPrimes,
+                perRound, chunk, threads);
+        log.println("[Tuning] " + keyBits + " Bit → " + p);
+        return p;
+    }
+
+    /** Mittlere Nanosekunden pro Aufruf nach einer Aufwärmphase; mindestens 3 Aufrufe. */
+    private static double nanosPerOp(Runnable op, long budgetNs) {
+        long w0 = System.nanoTime();
+        do {
+            op.run();
+        } while (System.nanoTime() - w0 < budgetNs / 2);
+        int calls = 0;
+        long t0 = System.nanoTime();
+        do {
+            op.run();
+            calls++;
+        } while (System.nanoTime() - t0 < budgetNs || calls < 3);
+        return (System.nanoTime() - t0) / (double) calls;
+    }
+}
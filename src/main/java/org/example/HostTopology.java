@@ -0,0 +1,149 @@
+package org.example;
+
+import mpi.Intracomm;
+import mpi.MPI;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rechnertopologie der MPI-Welt: pro Host ein eigener Kommunikator, ein Leader je Host (lokaler Rank 0)
+ * und ein Kommunikator nur aus Leadern.
+ *
+ * Kollektive laufen damit zweistufig: zuerst innerhalb des Hosts (Shared Memory), dann nur zwischen den
+ * Leadern übers Netz. Netzverkehr und Latenz skalieren so mit der Zahl der Hosts statt der Prozesse.
+ * Hosts werden in der Reihenfolge ihres ersten Auftretens nummeriert → Leader von Host h hat Leader-Rank h,
+ * und Rank 0 der Welt ist immer Leader von Host 0.
+ *
+ * Die beiden Kommunikatoren entstehen per Split und belegen Ressourcen der MPI-Laufzeit → nach dem Lauf close()
+ * auf allen Ranks (im MpjJobServer baut jeder -hierarchical-Job und jedes Autotuner.ensure eine Topologie).
+ */
+public final class HostTopology implements AutoCloseable {
+
+    private final Intracomm world;
+    private final Intracomm local;
+    private final Intracomm leaders;   // null auf Nicht-Leadern
+    private final String host;
+    private final int hostIndex;
+    private final String[] hostNames;  // Index = Hostnummer
+    private final int[] ranksPerHost;  // Index = Hostnummer
+    private boolean closed;
+
+    private HostTopology(Intracomm world, Intracomm local, Intracomm leaders, String host,
+                         int hostIndex, String[] hostNames, int[] ranksPerHost) {
+        this.world = world;
+        this.local = local;
+        this.leaders = leaders;
+        this.host = host;
+        this.hostIndex = hostIndex;
+        this.hostNames = hostNames;
+        this.ranksPerHost = ranksPerHost;
+    }
+
+    /** Kollektiv: alle Ranks von world müssen aufrufen. */
+    public static HostTopology build(Intracomm world) throws Exception {
+        int rank = world.Rank();
+        int size = world.Size();
+        String host = InetAddress.getLocalHost().getHostName();
+
+        Object[] send = new Object[]{ host };
+        Object[] all = new Object[size];
+        world.Allgather(send, 0, 1, MPI.OBJECT, all, 0, 1, MPI.OBJECT);
+
+        List<String> names = new ArrayList<>();
+        int[] hostOfRank = new int[size];
+        for (int r = 0; r < size; r++) {
+            String h = (String) all[r];
+            int idx = names.indexOf(h);
+            if (idx < 0) {
+                idx = names.size();
+                names.add(h);
+            }
+            hostOfRank[r] = idx;
+        }
+        int[] perHost = new int[names.size()];
+        for (int r = 0; r < size; r++) perHost[hostOfRank[r]]++;
+
+        int hostIndex = hostOfRank[rank];
+        Intracomm local = world.Split(hostIndex, rank);
+        // Nur Leader bekommen einen Kommunikator; MPI.UNDEFINED → null auf den übrigen Ranks
+        boolean leader = local.Rank() == 0;
+        Intracomm leaderComm = world.Split(leader ? 0 : MPI.UNDEFINED, rank);
+
+        return new HostTopology(world, local, leader ? leaderComm : null, host, hostIndex,
+                names.toArray(new String[0]), perHost);
+    }
+
+    public Intracomm world()      { return world; }
+    public Intracomm local()      { return local; }
+    /** Kommunikator der Leader; null, wenn dieser Rank kein Leader ist. */
+    public Intracomm leaders()    { return leaders; }
+    public boolean isLeader()     { return leaders != null; }
+    public String host()          { return host; }
+    public int hostIndex()        { return hostIndex; }
+    public int hostCount()        { return hostNames.length; }
+    public int ranksOnHost(int h) { return ranksPerHost[h]; }
+    public int[] ranksPerHost()   { return ranksPerHost.clone(); }
+
+    /** Threads pro Rank, damit die Ranks eines Hosts zusammen alle Kerne nutzen, ohne zu überbuchen. */
+    public int threadsPerRank() {
+        return threadsPerRank(Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Wie threadsPerRank(), aber hostThreads statt der Kernzahl aufgeteilt (z. B. aus dem TuningProfile). */
+    public int threadsPerRank(int hostThreads) {
+        return Math.max(1, hostThreads / local.Size());
+    }
+
+    /** Zweistufiges Allreduce(MAX) für ein int: Reduce im Host → Allreduce der Leader → Bcast im Host. */
+    public int allreduceMax(int value) {
+        int[] send = new int[]{ value };
+        int[] hostMax = new int[1];
+        local.Reduce(send, 0, hostMax, 0, 1, MPI.INT, MPI.MAX, 0);
+        if (leaders != null) {
+            int[] global = new int[1];
+            leaders.Allreduce(hostMax, 0, global, 0, 1, MPI.INT, MPI.MAX);
+            hostMax[0] = global[0];
+        }
+        local.Bcast(hostMax, 0, 1, MPI.INT, 0);
+        return hostMax[0];
+    }
+
+    /** Wie allreduceMax(int), elementweise für mehrere longs (z. B. Flag + Lamport-Zähler in einem Aufruf). */
+    public long[] allreduceMax(long[] values) {
+        int len = values.length;
+        long[] hostMax = new long[len];
+        local.Reduce(values, 0, hostMax, 0, len, MPI.LONG, MPI.MAX, 0);
+        if (leaders != null) {
+            long[] global = new long[len];
+            leaders.Allreduce(hostMax, 0, global, 0, len, MPI.LONG, MPI.MAX);
+            hostMax = global;
+        }
+        local.Bcast(hostMax, 0, len, MPI.LONG, 0);
+        return hostMax;
+    }
+
+    /**
+     * Gibt local und leaders frei. Kollektiv über diese Kommunikatoren: alle Ranks von world rufen auf, deshalb
+     * nur im normalen Ablauf und nicht in einem finally – nach einem Fehler auf einzelnen Ranks würde Free hängen.
+     * Mehrfacher Aufruf ist erlaubt.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (leaders != null) leaders.Free();
+        local.Free();
+    }
+
+    /** Einzeilige Übersicht, z. B. "2 Hosts: nodeA×4, nodeB×4". */
+    public String describe() {
+        StringBuilder sb = new StringBuilder().append(hostNames.length).append(hostNames.length == 1 ? " Host: " : " Hosts: ");
+        for (int h = 0; h < hostNames.length; h++) {
+            if (h > 0) sb.append(", ");
+            sb.append(hostNames[h]).append('×').append(ranksPerHost[h]);
+        }
+        return sb.toString();
+    }
+}
@@ -1,9 +1,17 @@
 package org.example;
 
+import mpi.Intracomm;
+import mpi.MPI;
+
 /**
- * Simple total-ordbare logische Zeit:
- *  - obere 16 Bit: Rank (0..65535)
- *  - untere 48 Bit: lokaler Zähler (seq)
+ * Lamport-Uhr pro Rank mit total-ordbarer Darstellung:
+ *  - obere 48 Bit: Lamport-Zähler (seq)
+ *  - untere 16 Bit: Rank (0..65535) als Tiebreaker
+ * Ein Vergleich der long-Werte liefert damit eine mit der Kausalität verträgliche Gesamtordnung:
+ * aus "a passiert vor b" folgt a < b, auch über Ranks hinweg.
+ *
+ * Regeln: lokales Ereignis und Senden → tick(); Empfang → receive(stempelDesSenders);
+ * Kollektive → merge(maxSeq) mit dem per Allreduce(MAX) ermittelten Maximum (siehe synchronize).
  * Ausgabeformat r:s (rank:seq) zur Lesbarkeit.
  */
 public final class LogicalTime {
@@ -15,17 +23,45 @@ public final class LogicalTime {
         this.rank = rank;
     }
 
-    /** Erhöht lokalen Zähler und gibt die zusammengesetzte logische Zeit zurück. */
+    /** Erhöht lokalen Zähler und gibt die zusammengesetzte logische Zeit zurück (lokales Ereignis / Senden). */
     public long tick() {
         seq++;
         return compose(rank, seq);
     }
 
+    /** Empfang einer Nachricht mit dem Stempel des Senders: seq = max(seq, remote) + 1. */
+    public long receive(long remoteTs) {
+        return merge(seqOf(remoteTs));
+    }
+
+    /** Wie receive, aber mit einem reinen Zählerwert (z. B. Maximum aus einem Allreduce). */
+    public long merge(long remoteSeq) {
+        seq = Math.max(seq, remoteSeq) + 1;
+        return compose(rank, seq);
+    }
+
+    /**
+     * Kollektiv: alle Ranks von comm gleichen ihre Uhren ab (Allreduce MAX über seq, dann merge).
+     * Für Stellen ohne Nutzdaten, an die der Zähler angehängt werden kann (z. B. nach einer Barrier).
+     */
+    public long synchronize(Intracomm comm) {
+        long[] mine = new long[]{ seq + 1 };
+        long[] max = new long[1];
+        comm.Allreduce(mine, 0, max, 0, 1, MPI.LONG, MPI.MAX);
+        return merge(max[0]);
+    }
+
+    /** Aktueller Stempel ohne Weiterzählen. */
+    public long current() { return compose(rank, seq); }
+
+    /** Aktueller Zählerstand, z. B. zum Anhängen an eine Nachricht. */
+    public long seq()     { return seq; }
+
     public static long compose(int rank, long seq) {
-        return ((long)(rank & 0xFFFF) << 48) | (seq & 0x0000FFFFFFFFFFFFL);
+        return ((seq & 0x0000FFFFFFFFFFFFL) << 16) | (rank & 0xFFFF);
     }
-    public static int  rankOf(long ts) { return (int)((ts >>> 48) & 0xFFFF); }
-    public static long seqOf (long ts) { return ts & 0x0000FFFFFFFFFFFFL; }
+    public static int  rankOf(long ts) { return (int)(ts & 0xFFFF); }
+    public static long seqOf (long ts) { return ts >>> 16; }
 
     public static String fmt(long ts) { return rankOf(ts) + ":" + seqOf(ts); }
 }
@@ -5,6 +5,10 @@ import java.math.BigInteger;
 import java.net.InetAddress;
 import java.security.SecureRandom;
 
+import org.example.jfr.CollectiveEvent;
+import org.example.mpjkeygen.CandidateSieve;
+import org.example.mpjkeygen.RankDrbg;
+
 public class Main {
 
     public static void main(String[] args) throws Exception {
@@ -13,11 +17,22 @@ public class Main {
         // Standardwerte (via CLI überschreibbar)
         int bitLength = 1024;     // -bitlength=2048
         int mrIterations = 20;    // -mriterationen=25
+        String traceFile = null;  // -trace[=logs/mpj-trace.json] → Chrome-/Perfetto-Zeitleiste
+        String tune = null;       // -tune (fehlende Schlüsselgröße kalibrieren) | -tune=force (neu kalibrieren)
+        String seed = null;       // -seed=42 → reproduzierbarer Zufallsstrom pro Rank (Benchmarks)
         for (String arg : args) {
             if (arg.startsWith("-bitlength=")) {
                 bitLength = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
             } else if (arg.startsWith("-mriterationen=")) {
                 mrIterations = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.equals("-trace")) {
+                traceFile = "logs/mpj-trace.json";
+            } else if (arg.startsWith("-trace=")) {
+                traceFile = arg.substring(arg.indexOf('=') + 1);
+            } else if (arg.equals("-tune") || arg.startsWith("-tune=")) {
+                tune = arg;
+            } else if (arg.startsWith("-seed=")) {
+                seed = arg.substring(arg.indexOf('=') + 1);
             }
         }
 
@@ -26,11 +41,27 @@ public class Main {
         int size = comm.Size();
         String host = InetAddress.getLocalHost().getHostName();
 
+        // Pro Host ein Kommunikator + Leader; das Fund-Flag läuft zweistufig (im Host, dann nur zwischen Leadern)
+        HostTopology topo = HostTopology.build(comm);
+        if (rank == 0) System.out.println("Topologie: " + topo.describe());
+
+        // Rechnerspezifische Parameter (Siebfenster, Kandidaten pro Runde) für Schlüssel aus zwei solchen Primzahlen
+        TuningProfile.Params tuning = (tune != null)
+                ? Autotuner.ensure(comm, topo, 2 * bitLength, tune.equals("-tune=force"))
+                : TuningProfile.current().forKeyBits(2 * bitLength);
+        if (rank == 0) System.out.println("Tuning: " + tuning);
+
+        // Lamport-Uhr: wird mit dem Fund-Flag im Allreduce mitgeschickt und beim Empfang zusammengeführt
         LogicalTime ltime = new LogicalTime(rank);
-        SecureRandom random = new SecureRandom();
+        if (traceFile != null) TraceRecorder.enable(rank, ltime);
+        // Ein AES-CTR-Strom pro Rank statt SecureRandom-Aufrufen pro Kandidat und Basis
+        SecureRandom random = RankDrbg.forRank(rank, seed);
+        if (rank == 0) System.out.println("Zufall: " + random);
+        CandidateSieve sieve = (tuning.sieveWindow > 0)
+                ? new CandidateSieve(bitLength, tuning.sieveWindow, tuning.trialPrimes, random) : null;
 
         boolean globalFound = false;
-        BigInteger candidate;
+        BigInteger candidate = null;
 
         int[] sendBuf = new int[1];
         int[] recvBuf = new int[1];
@@ -42,21 +73,41 @@ public class Main {
         long ltsStart = ltime.tick();
         long ltsFound = -1L;
         int  bitsActual = -1;
+        long candidates = 0;
 
         do {
-            // Kandidat erzeugen und prüfen
-            candidate = new BigInteger(bitLength, random);
-            boolean isPrime = MillerRabin.isProbablePrimeMR(candidate, mrIterations, random);
+            // Bis zu candidatesPerRound Kandidaten erzeugen und prüfen, dann erst das Kollektiv
+            long s0 = TraceRecorder.begin();
+            boolean isPrime = false;
+            for (int c = 0; c < tuning.candidatesPerRound && !isPrime; c++) {
+                if (sieve != null) {
+                    candidate = sieve.next();   // zählt CANDIDATES selbst (inkl. gesiebter Zahlen)
+                } else {
+                    candidate = new BigInteger(bitLength, random);
+                    PerfCounters.inc(PerfCounters.Counter.CANDIDATES);
+                }
+                isPrime = MillerRabin.isProbablePrimeMR(candidate, mrIterations, random);
+                candidates++;
+            }
             sendBuf[0] = isPrime ? 1 : 0;
 
             // LTS: lokales Prüfergebnis erzeugt
+            TraceRecorder.end("Miller–Rabin", TraceRecorder.Category.COMPUTE, s0);
             ltime.tick();
 
-            // Kollektive Info, ob jemand gefunden hat
-            comm.Allreduce(sendBuf, 0, recvBuf, 0, 1, MPI.INT, MPI.MAX);
+            // Kollektive Info, ob jemand gefunden hat (hierarchisch: Latenz wächst mit Hosts statt Prozessen);
+            // der Lamport-Zähler läuft im selben Allreduce mit (MAX = Merge über alle Absender)
+            long w0 = PerfCounters.start();
+            CollectiveEvent jfr = CollectiveEvent.start();
+            long sendTs = ltime.tick();
+            long[] reduced = topo.allreduceMax(new long[]{ sendBuf[0], LogicalTime.seqOf(sendTs) });
+            recvBuf[0] = (int) reduced[0];
+            PerfCounters.stop(PerfCounters.Counter.COLLECTIVE_WAIT_NANOS, PerfCounters.Counter.COLLECTIVE_CALLS, w0);
+            TraceRecorder.end("Allreduce Fund-Flag", TraceRecorder.Category.COMM, w0);
+            jfr.finish("Allreduce Fund-Flag", 2L * Long.BYTES, comm);
 
-            // LTS: Kollektiv beendet
-            ltime.tick();
+            // LTS: Kollektiv beendet (Empfang)
+            ltime.merge(reduced[1]);
 
             globalFound = (recvBuf[0] == 1);
             if (isPrime && ltsFound < 0) {
@@ -82,20 +133,24 @@ public class Main {
         ProcessRun myRun = new ProcessRun(
                 rank, host, localStart, localEnd, iFound,
                 ltsStart, ltsFound, /* ltsEnd folgt */ -1L,
-                bitLength, bitsActual
+                bitLength, bitsActual, candidates
         );
 
         // Für MPI.OBJECT Object-Arrays nutzen
         Object[] sendArr = new Object[] { myRun };
         Object[] recvArr = new Object[size];   // auf ALLEN RANKS anlegen!
 
+        long g0 = TraceRecorder.begin();
         comm.Gather(sendArr, 0, 1, MPI.OBJECT,
                 recvArr, 0, 1, MPI.OBJECT, 0);
+        TraceRecorder.end("Gather Ergebnisse", TraceRecorder.Category.COMM, g0);
 
-        // Alle synchronisieren
-        comm.Barrier();
+        // Alle synchronisieren; der Abgleich der Lamport-Uhren wirkt wie eine Barrier
+        long b0 = TraceRecorder.begin();
+        ltime.synchronize(comm);
+        TraceRecorder.end("Barrier", TraceRecorder.Category.WAIT, b0);
 
-        // LTS: Prozessende
+        // LTS: Prozessende (kausal nach allen Ereignissen aller Ranks)
         long ltsEnd = ltime.tick();
 
         // ltsEnd separat an Rank 0 übertragen (LONG)
@@ -106,6 +161,14 @@ public class Main {
 
         long globalEnd = System.currentTimeMillis();
 
+        // Zähler aller Ranks zusammenführen (Summe/Max), landen in RunStats und damit in Log und Records
+        PerfCounters.Totals counters = PerfCounters.reduce(comm, 0);
+
+        if (traceFile != null) {
+            TraceRecorder.exportChromeTrace(comm, java.nio.file.Path.of(traceFile));
+            if (rank == 0) System.out.println("Trace geschrieben: " + java.nio.file.Path.of(traceFile).toAbsolutePath());
+        }
+
         if (rank == 0) {
             // Recv-Array in ProcessRun-Liste casten und ltsEnd injizieren
             java.util.List<ProcessRun> runs = new java.util.ArrayList<>(recvArr.length);
@@ -114,17 +177,27 @@ public class Main {
                 runs.add(new ProcessRun(
                         r0.rank, r0.host, r0.startMs, r0.endMs, r0.foundPrime,
                         r0.ltsStart, r0.ltsFound, allEndLts[i],
-                        r0.bitsRequested, r0.bitsActual
+                        r0.bitsRequested, r0.bitsActual, r0.candidates
                 ));
             }
 
-            RunStats stats = new RunStats(runs, globalStart, globalEnd);
+            RunStats stats = new RunStats(runs, globalStart, globalEnd, counters);
 
             RunLogger.printConsoleSummary(stats);
             var path = RunLogger.writeLog(stats, "mpj-run");
             System.out.println("Logdatei geschrieben: " + path.toAbsolutePath());
+            java.util.Map<String, Object> config = new java.util.LinkedHashMap<>();
+            config.put("bitLength", bitLength);
+            config.put("mrIterations", mrIterations);
+            config.put("sieveWindow", tuning.sieveWindow);
+            config.put("trialPrimes", tuning.trialPrimes);
+            config.put("candidatesPerRound", tuning.candidatesPerRound);
+            config.put("seed", seed != null ? seed : "");   // immer vorhanden → gleiche Spalten mit/ohne Seed
+            var records = RunLogger.writeRecords(stats, "mpj-run", config);
+            System.out.println("Records angehängt: " + records.toAbsolutePath());
         }
 
+        topo.close();
         MPI.Finalize();
     }
 }
@@ -3,6 +3,9 @@ package org.example;
 import java.math.BigInteger;
 import java.security.SecureRandom;
 
+import org.example.PerfCounters.Counter;
+import org.example.jfr.PrimalityTestEvent;
+
 public class MillerRabin {
 
     /**
@@ -15,9 +18,21 @@ public class MillerRabin {
      * @return true, falls n vermutlich prim
      */
     public static boolean isProbablePrimeMR(BigInteger n, int iterations, SecureRandom rnd) {
+        long t0 = PerfCounters.start();
+        PrimalityTestEvent event = PrimalityTestEvent.start();
+        boolean prime = test(n, iterations, rnd, event);
+        event.finish(n.bitLength(), prime);
+        PerfCounters.stop(Counter.MR_NANOS, t0);
+        PerfCounters.inc(prime ? Counter.PROBABLE_PRIMES : Counter.MR_REJECTS);
+        return prime;
+    }
+
+    private static boolean test(BigInteger n, int iterations, SecureRandom rnd, PrimalityTestEvent event) {
+        event.rejectStage = PrimalityTestEvent.STAGE_TRIVIAL;
         if (n.compareTo(BigInteger.TWO) < 0) return false;
         if (n.equals(BigInteger.TWO) || n.equals(BigInteger.valueOf(3))) return true;
         if (n.mod(BigInteger.TWO).equals(BigInteger.ZERO)) return false;
+        event.rejectStage = PrimalityTestEvent.STAGE_MILLER_RABIN;
 
         // Schreibe n-1 = 2^s * d mit d ungerade
         BigInteger d = n.subtract(BigInteger.ONE);
@@ -27,6 +42,8 @@ public class MillerRabin {
         d = d.shiftRight(s);
 
         for (int i = 0; i < iterations; i++) {
+            PerfCounters.inc(Counter.MR_ROUNDS);
+            event.roundsRun = i + 1;
             // Zufällige Basis a ∈ [2, n-2]
             BigInteger a;
             do {
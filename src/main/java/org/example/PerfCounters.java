@@ -0,0 +1,154 @@
+package org.example;
+
+import mpi.Intracomm;
+import mpi.MPI;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prozessweite Zähler und Zeitsummen für die heißen Pfade (Primsuche, Miller–Rabin, modulare Exponentiation,
+ * Kollektive). Jeder Zähler ist ein LongAdder (gestreift) → auch aus den BlockExecutor-Threads ohne
+ * Contention; ein Inkrement kostet wenige Nanosekunden und kann im Betrieb eingeschaltet bleiben.
+ *
+ * Am Ende eines Laufs rufen alle Ranks reduce(comm, root) auf: Summe und Maximum pro Zähler über die Ranks
+ * (MPI.SUM / MPI.MAX), z. B. Kandidaten gesamt bzw. längste Wartezeit eines Ranks in den Kollektiven.
+ *
+ * Abschalten (z. B. für Vergleichsmessungen): -Drsa.perfCounters=false
+ */
+public final class PerfCounters {
+
+    public enum Counter {
+        CANDIDATES("candidates", "Geprüfte Kandidaten", false),
+        TRIAL_DIVISION_REJECTS("trialDivisionRejects", "Verworfen durch Probedivision", false),
+        MR_REJECTS("mrRejects", "Verworfen durch Miller–Rabin", false),
+        PROBABLE_PRIMES("probablePrimes", "Wahrscheinliche Primzahlen", false),
+        MR_ROUNDS("mrRounds", "Miller–Rabin-Runden", false),
+        MR_NANOS("mrNanos", "Zeit in Miller–Rabin", true),
+        MODEXP_CALLS("modExpCalls", "Modulare Exponentiationen", false),
+        BLOCKS("blocks", "Gerechnete Blöcke", false),
+        BLINDING_REFRESHES("blindingRefreshes", "Neue Blinding-Faktoren", false),
+        COMPUTE_NANOS("computeNanos", "Rechenzeit Blöcke", true),
+        COLLECTIVE_CALLS("collectiveCalls", "Kollektive Aufrufe", false),
+        COLLECTIVE_WAIT_NANOS("collectiveWaitNanos", "Wartezeit in Kollektiven", true),
+        P2P_WAIT_NANOS("p2pWaitNanos", "Wartezeit Punkt-zu-Punkt", true);
+
+        public final String id;
+        public final String label;
+        public final boolean nanos;
+
+        Counter(String id, String label, boolean nanos) {
+            this.id = id;
+            this.label = label;
+            this.nanos = nanos;
+        }
+    }
+
+    public static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("rsa.perfCounters", "true"));
+
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final LongAdder[] ADDERS = new LongAdder[COUNTERS.length];
+    static {
+        for (int i = 0; i < ADDERS.length; i++) ADDERS[i] = new LongAdder();
+    }
+
+    private PerfCounters() {}
+
+    public static void inc(Counter c) {
+        if (ENABLED) ADDERS[c.ordinal()].increment();
+    }
+
+    public static void add(Counter c, long delta) {
+        if (ENABLED) ADDERS[c.ordinal()].add(delta);
+    }
+
+    /**
+     * Startzeitpunkt für stop(...); 0, wenn abgeschaltet (spart den nanoTime-Aufruf).
+     * Bei aktivem TraceRecorder immer gültig, da dieselben Startzeiten dort als Spannen landen.
+     */
+    public static long start() {
+        return ENABLED || TraceRecorder.enabled() ? System.nanoTime() : 0L;
+    }
+
+    /** Addiert die seit start() vergangenen Nanosekunden auf c. */
+    public static void stop(Counter c, long t0) {
+        if (ENABLED) ADDERS[c.ordinal()].add(System.nanoTime() - t0);
+    }
+
+    /** Wie stop, zählt zusätzlich einen Aufruf auf calls (z. B. COLLECTIVE_CALLS). */
+    public static void stop(Counter c, Counter calls, long t0) {
+        if (ENABLED) {
+            ADDERS[c.ordinal()].add(System.nanoTime() - t0);
+            ADDERS[calls.ordinal()].increment();
+        }
+    }
+
+    /** Momentaufnahme dieses Prozesses, Index = Counter.ordinal(). */
+    public static long[] snapshot() {
+        long[] v = new long[ADDERS.length];
+        for (int i = 0; i < v.length; i++) v[i] = ADDERS[i].sum();
+        return v;
+    }
+
+    /** Setzt alle Zähler zurück (z. B. zu Beginn eines Jobs im MpjJobServer). */
+    public static void reset() {
+        for (LongAdder a : ADDERS) a.reset();
+    }
+
+    /** Kollektiv: Summe und Maximum je Zähler über alle Ranks; Ergebnis nur auf root, sonst null. */
+    public static Totals reduce(Intracomm comm, int root) {
+        long[] mine = snapshot();
+        long[] sum = new long[mine.length];
+        long[] max = new long[mine.length];
+        comm.Reduce(mine, 0, sum, 0, mine.length, MPI.LONG, MPI.SUM, root);
+        comm.Reduce(mine, 0, max, 0, mine.length, MPI.LONG, MPI.MAX, root);
+        return comm.Rank() == root ? new Totals(sum, max, comm.Size()) : null;
+    }
+
+    /** Über die Ranks zusammengeführte Zähler. */
+    public static final class Totals {
+        private final long[] sum;
+        private final long[] max;
+        private final int ranks;
+
+        Totals(long[] sum, long[] max, int ranks) {
+            this.sum = sum;
+            this.max = max;
+            this.ranks = ranks;
+        }
+
+        public long sum(Counter c) { return sum[c.ordinal()]; }
+        public long max(Counter c) { return max[c.ordinal()]; }
+        public int ranks()         { return ranks; }
+
+        /** Flache Felder für RunLogger: Summe je Zähler, bei Zeiten zusätzlich das Maximum pro Rank (…Max). */
+        public Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            for (Counter c : COUNTERS) {
+                m.put(c.id, sum(c));
+                if (c.nanos) m.put(c.id + "Max", max(c));
+            }
+            return m;
+        }
+
+        /** Mehrzeilige Übersicht; Zähler mit Summe 0 werden ausgelassen. */
+        public String describe() {
+            StringBuilder sb = new StringBuilder();
+            for (Counter c : COUNTERS) {
+                long s = sum(c);
+                if (s == 0) continue;
+                if (c.nanos) {
+                    sb.append(String.format(Locale.ROOT, "- %-32s %12.3f ms gesamt | max/Rank %10.3f ms%n",
+                            c.label + ":", s / 1e6, max(c) / 1e6));
+                } else {
+                    sb.append(String.format(Locale.ROOT, "- %-32s %12d gesamt    | max/Rank %10d%n",
+                            c.label + ":", s, max(c)));
+                }
+            }
+            return sb.length() == 0 ? "- (keine Zähler erfasst)" + System.lineSeparator() : sb.toString();
+        }
+    }
+}
@@ -22,9 +22,18 @@ public class ProcessRun implements Serializable {
     public final int bitsRequested; // gewünschte Bitlänge (Parameter)
     public final int bitsActual;    // tatsächliche Bitlänge des Fundes oder -1
 
+    // Arbeit
+    public final long candidates;   // geprüfte Kandidaten oder -1, wenn nicht erfasst
+
     public ProcessRun(int rank, String host, long startMs, long endMs, boolean foundPrime,
                       long ltsStart, long ltsFound, long ltsEnd,
                       int bitsRequested, int bitsActual) {
+        this(rank, host, startMs, endMs, foundPrime, ltsStart, ltsFound, ltsEnd, bitsRequested, bitsActual, -1L);
+    }
+
+    public ProcessRun(int rank, String host, long startMs, long endMs, boolean foundPrime,
+                      long ltsStart, long ltsFound, long ltsEnd,
+                      int bitsRequested, int bitsActual, long candidates) {
         this.rank = rank;
         this.host = host;
         this.startMs = startMs;
@@ -38,6 +47,7 @@ public class ProcessRun implements Serializable {
 
         this.bitsRequested = bitsRequested;
         this.bitsActual = bitsActual;
+        this.candidates = candidates;
     }
 
     @Override
@@ -0,0 +1,249 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Vergleicht zwei Mengen von Lauf-Records (JSON-Lines aus RunLogger.writeRecords) und schlägt bei einer
+ * Regression mit Exit-Code 1 fehl – für automatische Performance-Gates.
+ *
+ * - Läufe werden nach -match gruppiert (Standard: np, bitLength, mrIterations); verglichen wird nur innerhalb
+ *   gleicher Konfiguration.
+ * - Test: Welch-t-Test (ungleiche Varianzen), einseitig in Richtung "schlechter".
+ * - Regression = Mittelwert relativ um mehr als -threshold schlechter UND p < -alpha.
+ *
+ * Aufruf:
+ *   java -cp bin org.example.RunComparator -baseline=logs/alt.jsonl -candidate=logs/mpj-run.jsonl
+ *        [-metric=totalMs] [-direction=lower|higher] [-threshold=0.10] [-alpha=0.05] [-match=np,bitLength]
+ * Pfade dürfen auch Verzeichnisse sein (alle *.jsonl darin).
+ * Exit-Codes: 0 = keine Regression, 1 = Regression, 2 = Aufruf-/Datenfehler.
+ */
+public class RunComparator {
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (a.startsWith("-") && eq > 0) opt.put(a.substring(1, eq), a.substring(eq + 1));
+        }
+        if (!opt.containsKey("baseline") || !opt.containsKey("candidate")) {
+            System.err.println("Aufruf: RunComparator -baseline=<datei|verz> -candidate=<datei|verz> [-metric=totalMs] "
+                    + "[-direction=lower|higher] [-threshold=0.10] [-alpha=0.05] [-match=np,bitLength,mrIterations]");
+            System.exit(2);
+        }
+
+        String metric = opt.getOrDefault("metric", "totalMs");
+        boolean higherIsBetter = opt.getOrDefault("direction", metric.endsWith("PerSec") ? "higher" : "lower")
+                .equalsIgnoreCase("higher");
+        double threshold = Double.parseDouble(opt.getOrDefault("threshold", "0.10"));
+        double alpha = Double.parseDouble(opt.getOrDefault("alpha", "0.05"));
+        String[] match = opt.getOrDefault("match", "np,bitLength,mrIterations").split(",");
+
+        Map<String, List<Double>> base = group(loadRuns(Path.of(opt.get("baseline"))), metric, match);
+        Map<String, List<Double>> cand = group(loadRuns(Path.of(opt.get("candidate"))), metric, match);
+        if (base.isEmpty() || cand.isEmpty()) {
+            System.err.println("Keine run-Records mit Metrik '" + metric + "' gefunden.");
+            System.exit(2);
+        }
+
+        System.out.printf(Locale.ROOT, "Metrik: %s (%s ist besser) | Schwelle: %.1f %% | alpha: %.3f%n",
+                metric, higherIsBetter ? "höher" : "niedriger", 100 * threshold, alpha);
+        int regressions = 0, compared = 0;
+        for (Map.Entry<String, List<Double>> g : cand.entrySet()) {
+            List<Double> b = base.get(g.getKey());
+            List<Double> c = g.getValue();
+            if (b == null) {
+                System.out.println("[" + g.getKey() + "] keine Baseline – übersprungen");
+                continue;
+            }
+            if (b.size() < 2 || c.size() < 2) {
+                System.out.println("[" + g.getKey() + "] zu wenige Läufe für einen Test (Baseline " + b.size()
+                        + ", Kandidat " + c.size() + ", je mindestens 2) – übersprungen");
+                continue;
+            }
+            compared++;
+            double mb = mean(b), mc = mean(c);
+            double vb = variance(b, mb), vc = variance(c, mc);
+            double se = Math.sqrt(vb / b.size() + vc / c.size());
+            // Vorzeichen so, dass t > 0 "schlechter" bedeutet
+            double diff = higherIsBetter ? mb - mc : mc - mb;
+            double t = se == 0 ? (diff == 0 ? 0 : Math.copySign(Double.POSITIVE_INFINITY, diff)) : diff / se;
+            double df = welchDf(vb, b.size(), vc, c.size());
+            double p = upperTailT(t, df);
+            double rel = mb == 0 ? 0 : diff / Math.abs(mb);
+            boolean regression = rel > threshold && p < alpha;
+            if (regression) regressions++;
+
+            System.out.printf(Locale.ROOT,
+                    "[%s] Baseline %.3f (n=%d) | Kandidat %.3f (n=%d) | %+.1f %% schlechter | t=%.3f df=%.1f p=%.4f → %s%n",
+                    g.getKey(), mb, b.size(), mc, c.size(), 100 * rel, t, df, p,
+                    regression ? "REGRESSION" : "ok");
+        }
+
+        if (compared == 0) {
+            System.err.println("Keine vergleichbare Konfiguration in beiden Mengen.");
+            System.exit(2);
+        }
+        System.out.println(regressions == 0 ? "Keine Regression." : regressions + " Regression(en) gefunden.");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    // ---------- Laden ----------
+
+    static List<Map<String, String>> loadRuns(Path path) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(path, "*.jsonl")) {
+                for (Path p : ds) files.add(p);
+            }
+        } else {
+            files.add(path);
+        }
+        List<Map<String, String>> runs = new ArrayList<>();
+        for (Path f : files) {
+            for (String line : Files.readAllLines(f, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) continue;
+                Map<String, String> rec = parseFlatJson(line);
+                if ("run".equals(rec.get("type"))) runs.add(rec);
+            }
+        }
+        return runs;
+    }
+
+    private static Map<String, List<Double>> group(List<Map<String, String>> runs, String metric, String[] match) {
+        Map<String, List<Double>> groups = new TreeMap<>();
+        for (Map<String, String> r : runs) {
+            String v = r.get(metric);
+            if (v == null || v.isEmpty()) continue;
+            StringBuilder key = new StringBuilder();
+            for (String m : match) {
+                if (key.length() > 0) key.append(", ");
+                key.append(m.trim()).append('=').append(r.getOrDefault(m.trim(), "?"));
+            }
+            groups.computeIfAbsent(key.toString(), k -> new ArrayList<>()).add(Double.parseDouble(v));
+        }
+        return groups;
+    }
+
+    /** Minimaler Parser für flache JSON-Objekte wie von RunLogger.toJson (Strings, Zahlen, Booleans). */
+    static Map<String, String> parseFlatJson(String s) {
+        Map<String, String> out = new LinkedHashMap<>();
+        int i = s.indexOf('{') + 1;
+        while (i < s.length()) {
+            while (i < s.length() && (s.charAt(i) == ',' || Character.isWhitespace(s.charAt(i)))) i++;
+            if (i >= s.length() || s.charAt(i) == '}') break;
+            StringBuilder key = new StringBuilder();
+            i = readString(s, i, key);
+            i = s.indexOf(':', i) + 1;
+            while (Character.isWhitespace(s.charAt(i))) i++;
+            if (s.charAt(i) == '"') {
+                StringBuilder val = new StringBuilder();
+                i = readString(s, i, val);
+                out.put(key.toString(), val.toString());
+            } else {
+                int start = i;
+                while (i < s.length() && s.charAt(i) != ',' && s.charAt(i) != '}') i++;
+                out.put(key.toString(), s.substring(start, i).trim());
+            }
+        }
+        return out;
+    }
+
+    /** Liest einen JSON-String ab s[i] == '"'; liefert den Index hinter dem schließenden Anführungszeichen. */
+    private static int readString(String s, int i, StringBuilder into) {
+        i++;
+        while (s.charAt(i) != '"') {
+            char c = s.charAt(i++);
+            if (c == '\\') c = s.charAt(i++);
+            into.append(c);
+        }
+        return i + 1;
+    }
+
+    // ---------- Statistik ----------
+
+    private static double mean(List<Double> xs) {
+        double sum = 0;
+        for (double x : xs) sum += x;
+        return sum / xs.size();
+    }
+
+    /** Stichprobenvarianz (n - 1). */
+    private static double variance(List<Double> xs, double mean) {
+        double acc = 0;
+        for (double x : xs) acc += (x - mean) * (x - mean);
+        return acc / (xs.size() - 1);
+    }
+
+    /** Welch–Satterthwaite-Freiheitsgrade. */
+    static double welchDf(double v1, int n1, double v2, int n2) {
+        double a = v1 / n1, b = v2 / n2;
+        double denom = a * a / (n1 - 1) + b * b / (n2 - 1);
+        return denom == 0 ? n1 + n2 - 2 : (a + b) * (a + b) / denom;
+    }
+
+    /** P(T > t) für Student-t mit df Freiheitsgraden. */
+    static double upperTailT(double t, double df) {
+        if (Double.isInfinite(t)) return t > 0 ? 0 : 1;
+        double x = df / (df + t * t);
+        double tail = 0.5 * regularizedBeta(x, df / 2, 0.5);
+        return t >= 0 ? tail : 1 - tail;
+    }
+
+    /** Regularisierte unvollständige Betafunktion I_x(a, b) (Kettenbruch nach Lentz). */
+    static double regularizedBeta(double x, double a, double b) {
+        if (x <= 0) return 0;
+        if (x >= 1) return 1;
+        double lnFront = lnGamma(a + b) - lnGamma(a) - lnGamma(b) + a * Math.log(x) + b * Math.log(1 - x);
+        if (x > (a + 1) / (a + b + 2)) {
+            return 1 - Math.exp(lnFront) * betaContinuedFraction(1 - x, b, a) / b;
+        }
+        return Math.exp(lnFront) * betaContinuedFraction(x, a, b) / a;
+    }
+
+    private static double betaContinuedFraction(double x, double a, double b) {
+        final double tiny = 1e-300;
+        double c = 1, d = 1 - (a + b) * x / (a + 1);
+        if (Math.abs(d) < tiny) d = tiny;
+        d = 1 / d;
+        double h = d;
+        for (int m = 1; m <= 300; m++) {
+            int m2 = 2 * m;
+            double aa = m * (b - m) * x / ((a + m2 - 1) * (a + m2));
+            d = 1 + aa * d; if (Math.abs(d) < tiny) d = tiny;
+            c = 1 + aa / c; if (Math.abs(c) < tiny) c = tiny;
+            d = 1 / d;
+            h *= d * c;
+            aa = -(a + m) * (a + b + m) * x / ((a + m2) * (a + m2 + 1));
+            d = 1 + aa * d; if (Math.abs(d) < tiny) d = tiny;
+            c = 1 + aa / c; if (Math.abs(c) < tiny) c = tiny;
+            d = 1 / d;
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1) < 1e-12) break;
+        }
+        return h;
+    }
+
+    /** ln Γ(x) nach Lanczos (g = 7). */
+    private static double lnGamma(double x) {
+        final double[] g = {0.99999999999980993, 676.5203681218851, -1259.1392167224028, 771.32342877765313,
+                -176.61502916214059, 12.507343278686905, -0.13857109526572012, 9.9843695780195716e-6, 1.5056327351493116e-7};
+        if (x < 0.5) return Math.log(Math.PI / Math.abs(Math.sin(Math.PI * x))) - lnGamma(1 - x);
+        x -= 1;
+        double a = g[0];
+        double t = x + 7.5;
+        for (int i = 1; i < 9; i++) a += g[i] / (x + i);
+        return 0.5 * Math.log(2 * Math.PI) + (x + 0.5) * Math.log(t) - t + Math.log(a);
+    }
+}
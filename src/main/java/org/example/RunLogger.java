@@ -1,7 +1,9 @@
 package org.example;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -10,8 +12,13 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 public class RunLogger {
 
@@ -119,6 +126,12 @@ public class RunLogger {
                 w.write(String.format("- %s: %.2f ms%n", e.getKey(), e.getValue()));
             }
 
+            if (stats.counters() != null) {
+                w.write(System.lineSeparator());
+                w.write("Zähler (Summe über alle Ranks | Maximum eines Ranks):\n");
+                w.write(stats.counters().describe());
+            }
+
             w.write(System.lineSeparator());
             w.write("Globale logische Reihenfolge (nach LTS-Ende):\n");
             runs.stream()
@@ -135,6 +148,183 @@ public class RunLogger {
         return file;
     }
 
+    // ---------- Strukturierte Records (JSON-Lines + CSV) ----------
+
+    /**
+     * Hängt pro Lauf einen "run"-Record und pro Rank einen "rank"-Record an logs/&lt;prefix&gt;.jsonl an,
+     * zusätzlich flache Tabellen logs/&lt;prefix&gt;-runs.csv und logs/&lt;prefix&gt;-ranks.csv (Spalten laut Kopfzeile, siehe appendCsv).
+     * config enthält die Laufparameter (z. B. bitLength, mrIterations) und landet flach im run-Record,
+     * damit RunComparator Läufe mit gleicher Konfiguration vergleichen kann.
+     * @return Pfad der JSON-Lines-Datei
+     */
+    public static Path writeRecords(RunStats stats, String filePrefix, Map<String, ?> config) throws IOException {
+        Path dir = Paths.get(System.getProperty("user.dir"), "logs");
+        Files.createDirectories(dir);
+        String base = sanitize(filePrefix).isBlank() ? "mpj-run" : sanitize(filePrefix);
+
+        List<ProcessRun> runs = stats.runs();
+        String runId = base + "-" + stats.globalStartMs() + "-np" + runs.size();
+        long candidatesTotal = runs.stream().mapToLong(r -> Math.max(0, r.candidates)).sum();
+        ProcessRun slow = stats.slowest(), fast = stats.fastest();
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("type", "run");
+        run.put("runId", runId);
+        run.put("timestamp", stats.globalStartMs());
+        run.put("np", runs.size());
+        run.put("hosts", stats.avgPerHost().size());
+        run.putAll(config);
+        run.put("totalMs", stats.totalRuntimeMs());
+        run.put("winningMs", stats.timeOfWinningProcess());
+        run.put("slowestMs", slow == null ? -1 : slow.durationMs);
+        run.put("fastestMs", fast == null ? -1 : fast.durationMs);
+        run.put("candidatesTotal", candidatesTotal);
+        run.put("candidatesPerSec", stats.totalRuntimeMs() > 0 ? candidatesTotal * 1000.0 / stats.totalRuntimeMs() : 0.0);
+        if (stats.counters() != null) run.putAll(stats.counters().toMap());
+
+        List<Map<String, Object>> rankRecords = new java.util.ArrayList<>();
+        for (ProcessRun r : runs) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("type", "rank");
+            m.put("runId", runId);
+            m.put("rank", r.rank);
+            m.put("host", r.host);
+            m.put("startMs", r.startMs);
+            m.put("durationMs", r.durationMs);
+            m.put("foundPrime", r.foundPrime);
+            m.put("bitsRequested", r.bitsRequested);
+            m.put("bitsActual", r.bitsActual);
+            m.put("candidates", r.candidates);
+            m.put("ltsStart", LogicalTime.fmt(r.ltsStart));
+            m.put("ltsFound", r.ltsFound >= 0 ? LogicalTime.fmt(r.ltsFound) : "");
+            m.put("ltsEnd", LogicalTime.fmt(r.ltsEnd));
+            rankRecords.add(m);
+        }
+
+        Path jsonl = dir.resolve(base + ".jsonl");
+        StringBuilder sb = new StringBuilder(toJson(run)).append(System.lineSeparator());
+        for (Map<String, Object> m : rankRecords) sb.append(toJson(m)).append(System.lineSeparator());
+        Files.writeString(jsonl, sb, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        appendCsv(dir.resolve(base + "-runs.csv"), List.of(run));
+        appendCsv(dir.resolve(base + "-ranks.csv"), rankRecords);
+        return jsonl;
+    }
+
+    /** Flaches JSON-Objekt aus Strings, Zahlen und Booleans. */
+    static String toJson(Map<String, ?> m) {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, ?> e : m.entrySet()) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append('"').append(escape(e.getKey())).append("\":");
+            Object v = e.getValue();
+            if (v instanceof Number || v instanceof Boolean) {
+                sb.append(v instanceof Double || v instanceof Float
+                        ? String.format(Locale.ROOT, "%.6f", ((Number) v).doubleValue()) : v.toString());
+            } else {
+                sb.append('"').append(escape(String.valueOf(v))).append('"');
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Hängt rows an eine CSV-Datei an. Die Spalten stehen in der Kopfzeile der Datei; jede Zeile wird auf sie
+     * abgebildet (fehlende Werte = leere Zelle). Bringt eine Zeile Spalten mit, die die Kopfzeile nicht kennt
+     * (z. B. neuer Zähler), wird die bisherige Datei nach &lt;name&gt;.&lt;i&gt;.csv verschoben und neu begonnen –
+     * eine Spalte bedeutet so innerhalb einer Datei immer dasselbe wie im JSONL.
+     */
+    private static void appendCsv(Path file, List<Map<String, Object>> rows) throws IOException {
+        if (rows.isEmpty()) return;
+        Set<String> keys = new LinkedHashSet<>();
+        for (Map<String, Object> row : rows) keys.addAll(row.keySet());
+
+        List<String> header = readCsvHeader(file);
+        if (header != null && !header.containsAll(keys)) {
+            Path old = rotate(file);
+            System.out.println("CSV-Spalten geändert, bisherige Datei verschoben: " + old.getFileName());
+            header = null;
+        }
+        StringBuilder sb = new StringBuilder();
+        if (header == null) {
+            header = new ArrayList<>(keys);
+            sb.append(csvLine(header)).append(System.lineSeparator());
+        }
+        for (Map<String, Object> row : rows) {
+            List<String> cells = new ArrayList<>(header.size());
+            for (String key : header) {
+                Object v = row.get(key);
+                cells.add(v == null ? "" : (v instanceof Double d) ? String.format(Locale.ROOT, "%.6f", d) : String.valueOf(v));
+            }
+            sb.append(csvLine(cells)).append(System.lineSeparator());
+        }
+        Files.writeString(file, sb, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /** Spalten aus der ersten Zeile von file; null, wenn die Datei fehlt oder leer ist. */
+    private static List<String> readCsvHeader(Path file) throws IOException {
+        if (!Files.exists(file)) return null;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            return (line == null || line.isEmpty()) ? null : parseCsvLine(line);
+        }
+    }
+
+    /** Verschiebt file nach &lt;name&gt;.&lt;i&gt;.csv (erster freier Index). */
+    private static Path rotate(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        String stem = name.endsWith(".csv") ? name.substring(0, name.length() - 4) : name;
+        for (int i = 1; ; i++) {
+            Path target = file.resolveSibling(stem + "." + i + ".csv");
+            if (!Files.exists(target)) return Files.move(file, target);
+        }
+    }
+
+    /** RFC 4180: Zellen mit Komma, Anführungszeichen oder Zeilenumbruch in "…", innere " verdoppelt. */
+    static String csvLine(List<String> cells) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < cells.size(); i++) {
+            String cell = cells.get(i);
+            if (i > 0) line.append(',');
+            boolean quote = cell.indexOf(',') >= 0 || cell.indexOf('"') >= 0 || cell.indexOf('\n') >= 0 || cell.indexOf('\r') >= 0;
+            line.append(quote ? '"' + cell.replace("\"", "\"\"") + '"' : cell);
+        }
+        return line.toString();
+    }
+
+    /** Gegenstück zu csvLine für eine einzelne Zeile (Kopfzeile). */
+    static List<String> parseCsvLine(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
     // ---------- Console summary ----------
     public static void printConsoleSummary(RunStats stats) {
         List<ProcessRun> runs = stats.runs();
@@ -169,6 +359,11 @@ public class RunLogger {
         if (winning >= 0)
             System.out.println("Zeit des findenden Prozesses: " + fmtDuration(winning));
 
+        if (stats.counters() != null) {
+            System.out.println("Zähler (Summe | Max pro Rank):");
+            System.out.print(stats.counters().describe());
+        }
+
         System.out.println("Logische Reihenfolge (LTS end):");
         stats.runs().stream()
                 .sorted((a,b) -> Long.compare(a.ltsEnd, b.ltsEnd))
@@ -8,14 +8,20 @@ public class RunStats {
     private final List<ProcessRun> runs;
     private final long globalStart;
     private final long globalEnd;
+    private final PerfCounters.Totals counters;   // über alle Ranks reduziert oder null
 
     public long globalStartMs() { return globalStart; }
     public long globalEndMs()   { return globalEnd;   }
 
     public RunStats(List<ProcessRun> runs, long globalStart, long globalEnd) {
+        this(runs, globalStart, globalEnd, null);
+    }
+
+    public RunStats(List<ProcessRun> runs, long globalStart, long globalEnd, PerfCounters.Totals counters) {
         this.runs = new ArrayList<>(runs);
         this.globalStart = globalStart;
         this.globalEnd = globalEnd;
+        this.counters = counters;
         this.runs.sort(Comparator.comparingLong(r -> r.durationMs));
     }
 
@@ -42,5 +48,7 @@ public class RunStats {
                 .mapToLong(r -> r.durationMs).min().orElse(-1);
     }
 
+    public PerfCounters.Totals counters() { return counters; }
+
     public List<ProcessRun> runs() { return Collections.unmodifiableList(runs); }
 }
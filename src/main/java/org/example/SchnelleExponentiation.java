@@ -2,6 +2,8 @@ package org.example;
 
 import java.math.BigInteger;
 
+import org.example.jfr.ModExpEvent;
+
 public class SchnelleExponentiation {
 
     /**
@@ -13,6 +15,14 @@ public class SchnelleExponentiation {
      * @return  (base^exponent) mod modulus
      */
     public static BigInteger schnelleExponentiation (BigInteger basis, BigInteger exponent, BigInteger modulus) {
+        PerfCounters.inc(PerfCounters.Counter.MODEXP_CALLS);
+        ModExpEvent event = ModExpEvent.start();
+        BigInteger result = compute(basis, exponent, modulus);
+        event.finish("legacy", exponent, modulus);
+        return result;
+    }
+
+    private static BigInteger compute(BigInteger basis, BigInteger exponent, BigInteger modulus) {
         if(modulus.equals(BigInteger.ONE)) return BigInteger.ZERO;
         if(exponent.equals(BigInteger.ZERO)) return BigInteger.ONE;
 
@@ -0,0 +1,35 @@
+package org.example;
+
+import mpi.Intracomm;
+import mpi.MPI;
+
+/**
+ * Abgleich nach einer Vorbereitung, die nur der Root-Rank macht (Schlüssel laden, Ein- und Ausgabe öffnen).
+ *
+ * Wirft der Root dabei einfach, warten die übrigen Ranks im nächsten Kollektiv für immer; im MpjJobServer
+ * hängt damit der ganze Server. Deshalb fängt der Root den Fehler, alle Ranks rufen check auf, und bei einem
+ * Fehler werfen alle gemeinsam – der Root die ursprüngliche Ausnahme, die übrigen eine IllegalStateException
+ * mit deren Text.
+ *
+ * Muster:
+ * <pre>
+ * Exception setupError = null;
+ * if (rank == 0) {
+ *     try { ... } catch (Exception ex) { setupError = ex; }
+ * }
+ * SetupStatus.check(comm, 0, setupError);
+ * </pre>
+ */
+public final class SetupStatus {
+
+    private SetupStatus() {}
+
+    /** Kollektiv: alle Ranks von comm müssen aufrufen; error zählt nur auf root (sonst null übergeben). */
+    public static void check(Intracomm comm, int root, Exception error) throws Exception {
+        Object[] status = new Object[]{ error != null ? String.valueOf(error) : null };
+        comm.Bcast(status, 0, 1, MPI.OBJECT, root);
+        if (status[0] == null) return;
+        if (comm.Rank() == root) throw error;
+        throw new IllegalStateException("Vorbereitung auf Rank " + root + " fehlgeschlagen: " + status[0]);
+    }
+}
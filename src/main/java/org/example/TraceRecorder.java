@@ -0,0 +1,218 @@
+package org.example;
+
+import mpi.Intracomm;
+import mpi.MPI;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Zeitleisten-Tracing pro Rank: Spannen (Rechnen, Warten, Kommunikation, I/O) landen in einem beim
+ * Einschalten vorab angelegten Ringpuffer – im Betrieb keine Allokation, bei Überlauf gehen die ältesten
+ * Einträge verloren (gezählt als dropped). Jede Spanne trägt zusätzlich einen Lamport-Stempel (LogicalTime).
+ *
+ * Die Lamport-Uhr wird an Nachrichten angehängt (sendStamp/receiveStamp, z. B. im Header von PipelinedStream)
+ * oder bei Kollektiven ohne Nutzlastplatz per synchronize(comm) abgeglichen.
+ *
+ * exportChromeTrace(comm, datei) sammelt alle Puffer auf Rank 0 und schreibt eine Chrome-Trace-JSON-Datei
+ * (chrome://tracing, ui.perfetto.dev): ein Prozess pro Host, eine Spur pro Rank.
+ *
+ * Aus, solange enable(...) nicht aufgerufen wurde; dann kosten alle Aufrufe nur eine Feldabfrage.
+ * Aufzeichnen nur aus dem MPI-Thread (nicht aus BlockExecutor-Threads).
+ * Kapazität: -Drsa.traceCapacity=65536 (Einträge pro Rank).
+ */
+public final class TraceRecorder {
+
+    public enum Category {
+        COMPUTE("compute"), COMM("comm"), WAIT("wait"), IO("io");
+
+        final String id;
+
+        Category(String id) { this.id = id; }
+    }
+
+    private static final int DEFAULT_CAPACITY = Integer.getInteger("rsa.traceCapacity", 1 << 16);
+
+    private static boolean enabled;
+    private static int rank;
+    private static LogicalTime clock;
+    private static long wallOffsetNs;   // Wanduhr - nanoTime, damit Ranks auf einer gemeinsamen Achse liegen
+
+    private static String[] names;
+    private static byte[] categories;
+    private static long[] startNs;
+    private static long[] durationNs;
+    private static long[] stamps;
+    private static long recorded;
+
+    private TraceRecorder() {}
+
+    /** Schaltet das Tracing für diesen Rank ein; clock wird auch vom Aufrufer weiterbenutzt (z. B. Main). */
+    public static void enable(int rank, LogicalTime clock) {
+        enable(rank, clock, DEFAULT_CAPACITY);
+    }
+
+    public static void enable(int rank, LogicalTime clock, int capacity) {
+        TraceRecorder.rank = rank;
+        TraceRecorder.clock = clock;
+        names = new String[capacity];
+        categories = new byte[capacity];
+        startNs = new long[capacity];
+        durationNs = new long[capacity];
+        stamps = new long[capacity];
+        recorded = 0;
+        wallOffsetNs = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+        enabled = true;
+    }
+
+    /** Schaltet wieder aus und gibt den Puffer frei (z. B. nach dem Export eines Jobs im MpjJobServer). */
+    public static void disable() {
+        enabled = false;
+        names = null;
+        categories = null;
+        startNs = null;
+        durationNs = null;
+        stamps = null;
+    }
+
+    public static boolean enabled() { return enabled; }
+
+    /** Startzeitpunkt einer Spanne; 0, wenn Tracing aus ist. */
+    public static long begin() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /** Schließt die seit t0 laufende Spanne ab (lokales Ereignis → Lamport-Tick). */
+    public static void end(String name, Category category, long t0) {
+        if (!enabled) return;
+        long now = System.nanoTime();
+        int i = (int) (recorded++ % names.length);
+        names[i] = name;
+        categories[i] = (byte) category.ordinal();
+        startNs[i] = t0;
+        durationNs[i] = now - t0;
+        stamps[i] = clock.tick();
+    }
+
+    /** Zählerwert zum Anhängen an eine ausgehende Nachricht (Senden = Tick); 0, wenn Tracing aus ist. */
+    public static long sendStamp() {
+        return enabled ? LogicalTime.seqOf(clock.tick()) : 0L;
+    }
+
+    /** Verrechnet den Zählerwert einer empfangenen Nachricht mit der eigenen Uhr. */
+    public static void receiveStamp(long remoteSeq) {
+        if (enabled) clock.merge(remoteSeq);
+    }
+
+    /** Kollektiv, nur bei aktivem Tracing: Lamport-Abgleich aller Ranks (ein Allreduce). */
+    public static void synchronize(Intracomm comm) {
+        if (enabled) clock.synchronize(comm);
+    }
+
+    /**
+     * Kollektiv: sammelt die Ringpuffer aller Ranks auf Rank 0 und schreibt dort file im Chrome-Trace-Format.
+     * Nur aufrufen, wenn alle Ranks das Tracing eingeschaltet haben.
+     */
+    public static void exportChromeTrace(Intracomm comm, Path file) throws IOException {
+        Object[] send = new Object[]{ snapshot() };
+        Object[] all = new Object[comm.Size()];
+        comm.Gather(send, 0, 1, MPI.OBJECT, all, 0, 1, MPI.OBJECT, 0);
+        if (comm.Rank() != 0) return;
+
+        long originNs = Long.MAX_VALUE;
+        List<String> hosts = new ArrayList<>();
+        for (Object o : all) {
+            Snapshot s = (Snapshot) o;
+            if (!hosts.contains(s.host)) hosts.add(s.host);
+            for (long start : s.startWallNs) originNs = Math.min(originNs, start);
+        }
+        if (originNs == Long.MAX_VALUE) originNs = 0;
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+            boolean first = true;
+            for (int h = 0; h < hosts.size(); h++) {
+                first = writeEvent(w, first, String.format(Locale.ROOT,
+                        "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":%d,\"args\":{\"name\":\"%s\"}}", h, escape(hosts.get(h))));
+            }
+            for (Object o : all) {
+                Snapshot s = (Snapshot) o;
+                int pid = hosts.indexOf(s.host);
+                first = writeEvent(w, first, String.format(Locale.ROOT,
+                        "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":%d,\"tid\":%d,\"args\":{\"name\":\"Rank %d%s\"}}",
+                        pid, s.rank, s.rank, s.dropped > 0 ? " (" + s.dropped + " verworfen)" : ""));
+                for (int i = 0; i < s.names.length; i++) {
+                    first = writeEvent(w, first, String.format(Locale.ROOT,
+                            "{\"name\":\"%s\",\"cat\":\"%s\",\"ph\":\"X\",\"ts\":%.3f,\"dur\":%.3f,\"pid\":%d,\"tid\":%d,"
+                                    + "\"args\":{\"lamport\":\"%s\",\"lamportSeq\":%d}}",
+                            escape(s.names[i]), Category.values()[s.categories[i]].id,
+                            (s.startWallNs[i] - originNs) / 1e3, s.durationNs[i] / 1e3, pid, s.rank,
+                            LogicalTime.fmt(s.stamps[i]), LogicalTime.seqOf(s.stamps[i])));
+                }
+            }
+            w.write("\n]}\n");
+        }
+    }
+
+    private static boolean writeEvent(BufferedWriter w, boolean first, String json) throws IOException {
+        if (!first) w.write(",\n");
+        w.write(json);
+        return false;
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /** Inhalt des Ringpuffers in Aufzeichnungsreihenfolge (älteste zuerst), Zeiten auf die Wanduhr umgerechnet. */
+    private static Snapshot snapshot() throws IOException {
+        int capacity = names == null ? 0 : names.length;
+        int n = (int) Math.min(recorded, capacity);
+        int first = (recorded > capacity) ? (int) (recorded % capacity) : 0;
+        Snapshot s = new Snapshot(rank, InetAddress.getLocalHost().getHostName(), n, Math.max(0, recorded - capacity));
+        for (int k = 0; k < n; k++) {
+            int i = (first + k) % capacity;
+            s.names[k] = names[i];
+            s.categories[k] = categories[i];
+            s.startWallNs[k] = startNs[i] + wallOffsetNs;
+            s.durationNs[k] = durationNs[i];
+            s.stamps[k] = stamps[i];
+        }
+        return s;
+    }
+
+    private static final class Snapshot implements Serializable {
+        @Serial private static final long serialVersionUID = 1L;
+
+        final int rank;
+        final String host;
+        final long dropped;
+        final String[] names;
+        final byte[] categories;
+        final long[] startWallNs;
+        final long[] durationNs;
+        final long[] stamps;
+
+        Snapshot(int rank, String host, int n, long dropped) {
+            this.rank = rank;
+            this.host = host;
+            this.dropped = dropped;
+            names = new String[n];
+            categories = new byte[n];
+            startWallNs = new long[n];
+            durationNs = new long[n];
+            stamps = new long[n];
+        }
+    }
+}
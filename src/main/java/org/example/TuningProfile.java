@@ -0,0 +1,230 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.example.rsa.ModExpEngine;
+
+/**
+ * Rechnerspezifische Tuning-Parameter, je Schlüsselgröße kalibriert (siehe Autotuner) und pro Host abgelegt:
+ *   tuning/&lt;host&gt;_&lt;cpu&gt;_&lt;jdk&gt;.properties
+ * Einträge wie "2048.windowBits=5"; für eine nicht kalibrierte Schlüsselgröße gilt die nächstgelegene.
+ *
+ * PrimeSearch, Main und die mpj-Treiber laden das Profil automatisch über current(). Vorrang:
+ * -Drsa.&lt;parameter&gt;=... &gt; Profil &gt; Standardwerte (= bisheriges Verhalten ohne Profil).
+ * Verzeichnis: -Drsa.tuningDir=tuning; Laden abschalten: -Drsa.tuning=false
+ */
+public final class TuningProfile {
+
+    /** Parameter für eine Schlüsselgröße. */
+    public static final class Params {
+        public final String engine;            // ModExpEngine-Id der Treiber-Hotpaths
+        public final int windowBits;           // Fensterbreite für engine=window
+        public final int sieveWindow;          // ungerade Zahlen pro Siebfenster der Primsuche (0 = kein Sieb)
+        public final int trialPrimes;          // kleine Primzahlen für Sieb bzw. Probedivision
+        public final int candidatesPerRound;   // Miller–Rabin-Kandidaten pro Rank zwischen zwei Kollektiven
+        public final int chunkBlocks;          // Blöcke pro Chunk im Pipeline-Modus
+        public final int threads;              // Rechen-Threads pro Host (werden auf die Ranks des Hosts verteilt)
+
+        public Params(String engine, int windowBits, int sieveWindow, int trialPrimes,
+                      int candidatesPerRound, int chunkBlocks, int threads) {
+            this.engine = engine;
+            this.windowBits = windowBits;
+            this.sieveWindow = sieveWindow;
+            this.trialPrimes = trialPrimes;
+            this.candidatesPerRound = candidatesPerRound;
+            this.chunkBlocks = chunkBlocks;
+            this.threads = threads;
+        }
+
+        /** Verhalten ohne Profil. */
+        public static Params defaults() {
+            return new Params(ModExpEngine.MPJKEYGEN.id(), 4, 0, 11, 1, 256,
+                    Runtime.getRuntime().availableProcessors());
+        }
+
+        /** Setzt engine/windowBits prozessweit (ModExpEngine.configure). */
+        public void activate() {
+            ModExpEngine.configure(ModExpEngine.parse(engine), windowBits);
+        }
+
+        Params withOverrides() {
+            return new Params(
+                    System.getProperty("rsa.engine", engine),
+                    Integer.getInteger("rsa.windowBits", windowBits),
+                    Integer.getInteger("rsa.sieveWindow", sieveWindow),
+                    Integer.getInteger("rsa.trialPrimes", trialPrimes),
+                    Integer.getInteger("rsa.candidatesPerRound", candidatesPerRound),
+                    Integer.getInteger("rsa.chunkBlocks", chunkBlocks),
+                    Integer.getInteger("rsa.threads", threads));
+        }
+
+        @Override
+        public String toString() {
+            return "engine=" + engine + (engine.equals(ModExpEngine.WINDOW.id()) ? "(" + windowBits + " Bit)" : "")
+                    + ", Sieb=" + sieveWindow + ", Primzahlen=" + trialPrimes
+                    + ", Kandidaten/Runde=" + candidatesPerRound + ", Chunk=" + chunkBlocks + ", Threads/Host=" + threads;
+        }
+    }
+
+    private static volatile TuningProfile current;
+
+    private final Path file;
+    private final TreeMap<Integer, Params> byKeyBits = new TreeMap<>();
+
+    private TuningProfile(Path file) {
+        this.file = file;
+    }
+
+    /** Profil dieses Rechners (einmal pro Prozess geladen; leer, wenn keine Datei existiert). */
+    public static TuningProfile current() {
+        TuningProfile p = current;
+        if (p == null) {
+            synchronized (TuningProfile.class) {
+                p = current;
+                if (p == null) current = p = load(defaultFile());
+            }
+        }
+        return p;
+    }
+
+    /** tuning/&lt;host&gt;_&lt;cpu&gt;_&lt;jdk&gt;.properties */
+    public static Path defaultFile() {
+        return Path.of(System.getProperty("rsa.tuningDir", "tuning"), hostKey() + ".properties");
+    }
+
+    /** Schlüssel aus Hostname, CPU-Modell und JDK-Version, nur [A-Za-z0-9.-]. */
+    public static String hostKey() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "unbekannt";
+        }
+        String cpu = cpuModel() + "-" + Runtime.getRuntime().availableProcessors() + "c";
+        return sanitize(host, 40) + "_" + sanitize(cpu, 60) + "_" + sanitize("jdk" + Runtime.version(), 30);
+    }
+
+    private static String cpuModel() {
+        Path cpuinfo = Path.of("/proc/cpuinfo");
+        if (Files.isReadable(cpuinfo)) {
+            try {
+                for (String line : Files.readAllLines(cpuinfo, StandardCharsets.UTF_8)) {
+                    if (line.startsWith("model name")) return line.substring(line.indexOf(':') + 1).trim();
+                }
+            } catch (IOException ignored) {}
+        }
+        String env = System.getenv("PROCESSOR_IDENTIFIER");   // Windows
+        return env != null ? env : System.getProperty("os.arch");
+    }
+
+    private static String sanitize(String s, int max) {
+        String t = s.replaceAll("\\(R\\)|\\(TM\\)|CPU|@", " ").trim().replaceAll("[^A-Za-z0-9.]+", "-");
+        return t.length() > max ? t.substring(0, max) : t;
+    }
+
+    static TuningProfile load(Path file) {
+        TuningProfile profile = new TuningProfile(file);
+        if (!Boolean.parseBoolean(System.getProperty("rsa.tuning", "true")) || !Files.isReadable(file)) return profile;
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            props.load(in);
+        } catch (IOException e) {
+            System.err.println("Tuning-Profil nicht lesbar (" + file + "): " + e.getMessage());
+            return profile;
+        }
+        Params def = Params.defaults();
+        for (String name : props.stringPropertyNames()) {
+            if (!name.endsWith(".engine")) continue;
+            String prefix = name.substring(0, name.length() - ".engine".length());
+            int keyBits;
+            try {
+                keyBits = Integer.parseInt(prefix);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            profile.byKeyBits.put(keyBits, new Params(
+                    props.getProperty(name),
+                    intProp(props, prefix + ".windowBits", def.windowBits),
+                    intProp(props, prefix + ".sieveWindow", def.sieveWindow),
+                    intProp(props, prefix + ".trialPrimes", def.trialPrimes),
+                    intProp(props, prefix + ".candidatesPerRound", def.candidatesPerRound),
+                    intProp(props, prefix + ".chunkBlocks", def.chunkBlocks),
+                    intProp(props, prefix + ".threads", def.threads)));
+        }
+        return profile;
+    }
+
+    private static int intProp(Properties props, String key, int fallback) {
+        String v = props.getProperty(key);
+        return v == null ? fallback : Integer.parseInt(v.trim());
+    }
+
+    public Path file()                { return file; }
+    public boolean isEmpty()          { return byKeyBits.isEmpty(); }
+    public boolean has(int keyBits)   { return byKeyBits.containsKey(keyBits); }
+
+    /** Parameter für keyBits (Modulusgröße): exakt, sonst nächstgelegene kalibrierte Größe, sonst Standard. */
+    public Params forKeyBits(int keyBits) {
+        Params p = byKeyBits.get(keyBits);
+        if (p == null) {
+            Map.Entry<Integer, Params> lo = byKeyBits.floorEntry(keyBits);
+            Map.Entry<Integer, Params> hi = byKeyBits.ceilingEntry(keyBits);
+            if (lo != null && hi != null) {
+                // Aufwand wächst etwa mit der Bitlänge → Abstand im Verhältnis messen
+                p = ((double) keyBits / lo.getKey() <= (double) hi.getKey() / keyBits) ? lo.getValue() : hi.getValue();
+            } else if (lo != null) {
+                p = lo.getValue();
+            } else if (hi != null) {
+                p = hi.getValue();
+            } else {
+                p = Params.defaults();
+            }
+        }
+        return p.withOverrides();
+    }
+
+    public synchronized void put(int keyBits, Params p) {
+        byKeyBits.put(keyBits, p);
+    }
+
+    /** Schreibt alle Einträge nach file() (Verzeichnis wird angelegt). */
+    public synchronized void store() throws IOException {
+        Properties props = new Properties();
+        for (Map.Entry<Integer, Params> e : byKeyBits.entrySet()) {
+            String k = e.getKey() + ".";
+            Params p = e.getValue();
+            props.setProperty(k + "engine", p.engine);
+            props.setProperty(k + "windowBits", Integer.toString(p.windowBits));
+            props.setProperty(k + "sieveWindow", Integer.toString(p.sieveWindow));
+            props.setProperty(k + "trialPrimes", Integer.toString(p.trialPrimes));
+            props.setProperty(k + "candidatesPerRound", Integer.toString(p.candidatesPerRound));
+            props.setProperty(k + "chunkBlocks", Integer.toString(p.chunkBlocks));
+            props.setProperty(k + "threads", Integer.toString(p.threads));
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            props.store(out, "Tuning-Profil " + hostKey() + " (org.example.Autotuner)");
+        }
+    }
+
+    /** Mehrzeilige Übersicht aller kalibrierten Schlüsselgrößen. */
+    public String describe() {
+        if (byKeyBits.isEmpty()) return "- (kein Profil: " + file + ")" + System.lineSeparator();
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Integer, Params> e : new TreeMap<>(byKeyBits).entrySet()) {
+            sb.append(String.format(Locale.ROOT, "- %5d Bit: %s%n", e.getKey(), e.getValue()));
+        }
+        return sb.toString();
+    }
+}
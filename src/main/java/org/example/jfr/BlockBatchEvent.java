@@ -0,0 +1,55 @@
+package org.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Ein Batch bzw. Chunk von RSA-Blöcken, ver- oder entschlüsselt (inklusive Verteilung, falls verteilt).
+ */
+@Name("org.example.BlockBatch")
+@Label("Block-Batch")
+@Category({"RSA-MPJ", "Verschlüsselung"})
+@Description("Ver-/Entschlüsselung eines Block-Batches: Modus, Blöcke, Bytes")
+@StackTrace(false)
+public final class BlockBatchEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Modus")
+    String mode;
+
+    @Label("Blöcke")
+    int blocks;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Rank")
+    int rank;
+
+    public static BlockBatchEvent start() {
+        BlockBatchEvent e = new BlockBatchEvent();
+        e.begin();
+        return e;
+    }
+
+    /** rank = -1 außerhalb von MPI (z. B. RSAUTF8). */
+    public void finish(String operation, String mode, int blocks, long bytes, int rank) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.mode = mode;
+            this.blocks = blocks;
+            this.bytes = bytes;
+            this.rank = rank;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import mpi.Intracomm;
+
+/**
+ * Ein MPI-Kollektiv; die Dauer ist die Zeit, die dieser Rank im Aufruf stand (überwiegend Warten auf andere).
+ * Über rank und die Zeitstempel lassen sich Aufzeichnungen mehrerer Ranks mit dem RunLogger-Protokoll abgleichen.
+ */
+@Name("org.example.Collective")
+@Label("MPI-Kollektiv")
+@Category({"RSA-MPJ", "MPI"})
+@Description("Kollektiver MPI-Aufruf mit Nutzdatenvolumen dieses Ranks und Wartezeit")
+@StackTrace(false)
+public final class CollectiveEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Rank")
+    int rank;
+
+    @Label("Kommunikatorgröße")
+    int commSize;
+
+    public static CollectiveEvent start() {
+        CollectiveEvent e = new CollectiveEvent();
+        e.begin();
+        return e;
+    }
+
+    public void finish(String operation, long bytes, Intracomm comm) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.bytes = bytes;
+            this.rank = comm.Rank();
+            this.commSize = comm.Size();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.jfr;
+
+import java.math.BigInteger;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Eine modulare Exponentiation (x^e mod n).
+ * Standard-Schwelle 10 µs, damit die vielen Quadrierungen im Miller–Rabin-Test die Aufzeichnung nicht fluten;
+ * per .jfc oder -XX:StartFlightRecording:settings=... überschreibbar.
+ */
+@Name("org.example.ModExp")
+@Label("Modulare Exponentiation")
+@Category({"RSA-MPJ", "Arithmetik"})
+@Description("x^e mod n mit Bitlängen und verwendeter Implementierung")
+@StackTrace(false)
+@Threshold("10 us")
+public final class ModExpEvent extends Event {
+
+    @Label("Modulus-Bits")
+    int modulusBits;
+
+    @Label("Exponent-Bits")
+    int exponentBits;
+
+    @Label("Engine")
+    String engine;
+
+    public static ModExpEvent start() {
+        ModExpEvent e = new ModExpEvent();
+        e.begin();
+        return e;
+    }
+
+    /** Schließt das Event ab; Felder werden nur gesetzt, wenn es tatsächlich geschrieben wird. */
+    public void finish(String engine, BigInteger exponent, BigInteger modulus) {
+        end();
+        if (shouldCommit()) {
+            this.engine = engine;
+            this.exponentBits = exponent.bitLength();
+            this.modulusBits = modulus.bitLength();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Ein geprüfter Primzahlkandidat. Die Testroutine setzt roundsRun und rejectStage (erreichte Stufe) unterwegs;
+ * bei ausgeschaltetem Event entfernt der JIT Objekt und Zuweisungen.
+ */
+@Name("org.example.PrimalityTest")
+@Label("Primzahltest")
+@Category({"RSA-MPJ", "Primsuche"})
+@Description("Miller–Rabin-Test eines Kandidaten: gelaufene Runden, Ergebnis und Stufe der Verwerfung")
+@StackTrace(false)
+public final class PrimalityTestEvent extends Event {
+
+    public static final String STAGE_NONE = "keine";
+    public static final String STAGE_TRIVIAL = "trivial";
+    public static final String STAGE_TRIAL_DIVISION = "probedivision";
+    public static final String STAGE_MILLER_RABIN = "miller-rabin";
+
+    @Label("Kandidat-Bits")
+    int candidateBits;
+
+    @Label("Runden gelaufen")
+    public int roundsRun;
+
+    @Label("Wahrscheinlich prim")
+    boolean probablePrime;
+
+    @Label("Verwerfungsstufe")
+    public String rejectStage = STAGE_NONE;
+
+    public static PrimalityTestEvent start() {
+        PrimalityTestEvent e = new PrimalityTestEvent();
+        e.begin();
+        return e;
+    }
+
+    public void finish(int candidateBits, boolean probablePrime) {
+        end();
+        if (shouldCommit()) {
+            this.candidateBits = candidateBits;
+            this.probablePrime = probablePrime;
+            if (probablePrime) this.rejectStage = STAGE_NONE;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.mpjbench;
+
+import mpi.Intracomm;
+import mpi.MPI;
+
+import java.util.Locale;
+
+/**
+ * Log-lineares Latenzhistogramm (HDR-Prinzip) mit fester Bucketanzahl, Werte in Nanosekunden.
+ *
+ * - Werte < 128 ns bekommen je einen eigenen Bucket, darüber teilt sich jede Zweierpotenz in 64 Buckets
+ *   → relative Auflösung besser als 1,6 % über den ganzen long-Bereich.
+ * - Zähler liegen in einem long[], alle Ranks haben dasselbe Layout → Zusammenführen ist ein einziges
+ *   Reduce(MPI.SUM) über Zähler, Anzahl und Summe, plus Reduce(MPI.MAX) für das Maximum.
+ * - Mittelwert kommt aus der exakten Summe, nicht aus sum/sumSq in double.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;           // 128 lineare Buckets
+    private static final int HALF = SUB_COUNT / 2;                // 64 Buckets je Zweierpotenz
+    private static final int BUCKETS = SUB_COUNT + (64 - SUB_BITS) * HALF;
+
+    // counts[0..BUCKETS) = Buckets, counts[BUCKETS] = Anzahl, counts[BUCKETS + 1] = Summe
+    private final long[] counts = new long[BUCKETS + 2];
+    private long max = 0;
+
+    static int bucketOf(long v) {
+        if (v < SUB_COUNT) return (int) Math.max(0, v);
+        int shift = (64 - Long.numberOfLeadingZeros(v)) - SUB_BITS;
+        int top = (int) (v >>> shift);                            // in [HALF, SUB_COUNT)
+        return SUB_COUNT + (shift - 1) * HALF + (top - HALF);
+    }
+
+    /** Repräsentant eines Buckets: Mitte des abgedeckten Wertebereichs. */
+    static long valueOf(int bucket) {
+        if (bucket < SUB_COUNT) return bucket;
+        int shift = (bucket - SUB_COUNT) / HALF + 1;
+        long top = (bucket - SUB_COUNT) % HALF + HALF;
+        return (top << shift) + (1L << (shift - 1));
+    }
+
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        counts[bucketOf(v)]++;
+        counts[BUCKETS]++;
+        counts[BUCKETS + 1] += v;
+        if (v > max) max = v;
+    }
+
+    public long count()   { return counts[BUCKETS]; }
+    public long max()     { return max; }
+    public double mean()  { return count() == 0 ? 0 : (double) counts[BUCKETS + 1] / count(); }
+
+    /** Standardabweichung auf Bucketauflösung (zur Fortführung der bisherigen Ausgabe). */
+    public double stdDev() {
+        long n = count();
+        if (n < 2) return 0;
+        double m = mean(), acc = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            if (counts[b] == 0) continue;
+            double d = valueOf(b) - m;
+            acc += counts[b] * d * d;
+        }
+        return Math.sqrt(acc / n);
+    }
+
+    /** Perzentil p ∈ (0, 100]; für p = 100 das exakte Maximum. */
+    public long percentile(double p) {
+        long n = count();
+        if (n == 0) return 0;
+        if (p >= 100) return max;
+        long rank = (long) Math.ceil(p / 100.0 * n);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= Math.max(1, rank)) return Math.min(valueOf(b), max);
+        }
+        return max;
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Kollektiv: führt die Histogramme aller Ranks auf root zusammen.
+     * @return zusammengeführtes Histogramm auf root, null auf allen anderen Ranks
+     */
+    public LatencyHistogram reduce(Intracomm comm, int root) {
+        LatencyHistogram merged = new LatencyHistogram();
+        comm.Reduce(counts, 0, merged.counts, 0, counts.length, MPI.LONG, MPI.SUM, root);
+        long[] sendMax = new long[]{ max };
+        long[] recvMax = new long[1];
+        comm.Reduce(sendMax, 0, recvMax, 0, 1, MPI.LONG, MPI.MAX, root);
+        if (comm.Rank() != root) return null;
+        merged.max = recvMax[0];
+        return merged;
+    }
+
+    /** "n=… | p50 … | p90 … | p99 … | p99.9 … | max … ms" */
+    public String summaryMs() {
+        return String.format(Locale.ROOT, "n=%d | p50 %.3f | p90 %.3f | p99 %.3f | p99.9 %.3f | max %.3f ms",
+                count(), percentile(50) / 1e6, percentile(90) / 1e6, percentile(99) / 1e6,
+                percentile(99.9) / 1e6, max / 1e6);
+    }
+}
@@ -9,12 +9,13 @@ import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Locale;
 
+import org.example.SetupStatus;
 import org.example.mpjkeygen.schnelleExponentiation;
-import org.example.rsa.RSAUTF8;
+import org.example.rsa.BlockArray;
+import org.example.rsa.BlockCodec;
 import org.example.rsa.RSAUtils;
 
 public class RSALibBenchmarkMPI {
@@ -27,17 +28,14 @@ public class RSALibBenchmarkMPI {
         } catch (Exception ignored) {}
     }
 
-    private static final class Stats {
-        double sum = 0, sumSq = 0;
-        long n = 0;
-        void add(double v){ sum += v; sumSq += v*v; n++; }
-        double mean(){ return sum / Math.max(1, n); }
-        double sd(){ double m = mean(); return Math.sqrt(Math.max(0, sumSq / Math.max(1, n) - m*m)); }
-    }
-
     public static void main(String[] args) throws Exception {
         MPI.Init(args);
-        Intracomm comm = MPI.COMM_WORLD;
+        run(MPI.COMM_WORLD, args);
+        MPI.Finalize();
+    }
+
+    /** Kompletter Benchmarklauf auf comm (alle Ranks rufen auf); auch vom Job-Server (MpjJobServer) genutzt. */
+    public static void run(Intracomm comm, String[] args) throws Exception {
         int rank = comm.Rank();
         int size = comm.Size();
 
@@ -56,33 +54,45 @@ public class RSALibBenchmarkMPI {
             }
         }
 
+        // Alle Ranks prüfen --who selbst, damit bei ungültiger Angabe keiner im Broadcast hängen bleibt
+        if (!who.equals("alice2bob") && !who.equals("bob2alice")) {
+            if (rank == 0) System.err.println("Unbekanntes --who: " + who + " (erlaubt: alice2bob | bob2alice)");
+            return;
+        }
+
         // ---------------- Setup (Rank 0) ----------------
         String[] texts = new String[0];
         BigInteger pubE = null, privD = null, modN = null;
         String directionLabel = "";
 
+        Exception setupError = null;
         if (rank == 0) {
-            RSAUtils.loadKeysFromFiles(); // erwartet deine vorhandenen alice_*/bob_* Dateien
-
-            switch (who) {
-                case "alice2bob":
-                    pubE  = RSAUtils.getBobPublicKey();
-                    privD = RSAUtils.getBobPrivateKey();
-                    modN  = RSAUtils.getBobModulus();
-                    directionLabel = "Alice to Bob (Bobs e/d)";
-                    break;
-                case "bob2alice":
-                    pubE  = RSAUtils.getAlicePublicKey();
-                    privD = RSAUtils.getAlicePrivateKey();
-                    modN  = RSAUtils.getAliceModulus();
-                    directionLabel = "Bob to Alice (Alices e/d)";
-                    break;
-                default:
-                    System.err.println("Unbekanntes --who: " + who + " (erlaubt: alice2bob | bob2alice)");
-                    MPI.Finalize();
-                    return;
+            try {
+                RSAUtils.loadKeysFromFiles(); // erwartet deine vorhandenen alice_*/bob_* Dateien
+
+                switch (who) {
+                    case "alice2bob":
+                        pubE  = RSAUtils.getBobPublicKey();
+                        privD = RSAUtils.getBobPrivateKey();
+                        modN  = RSAUtils.getBobModulus();
+                        directionLabel = "Alice to Bob (Bobs e/d)";
+                        break;
+                    case "bob2alice":
+                        pubE  = RSAUtils.getAlicePublicKey();
+                        privD = RSAUtils.getAlicePrivateKey();
+                        modN  = RSAUtils.getAliceModulus();
+                        directionLabel = "Bob to Alice (Alices e/d)";
+                        break;
+                    default:
+                        throw new IllegalStateException("Unbekanntes --who: " + who);
+                }
+            } catch (Exception ex) {
+                setupError = ex;
             }
+        }
+        SetupStatus.check(comm, 0, setupError);
 
+        if (rank == 0) {
             // Beispieltexte (du kannst hier einfach erweitern/ändern)
             texts = new String[]{
                     "Möge die Macht mit dir sein!",
@@ -116,10 +126,14 @@ public class RSALibBenchmarkMPI {
             privD = new BigInteger(keyStr[2]);
         }
 
+        // Blöcke gepackt (BlockArray) statt List<BigInteger>, wie in den Treibern
+        int plainWidth = BlockCodec.plainBlockSize(modN.bitLength());
+        int cipherWidth = BlockCodec.cipherBlockSize(modN.bitLength());
+
         // -------- Warmup (JIT anwerfen) --------
         if (T > 0) {
-            var warmBlocks = RSAUTF8.textToBigIntegerBlocks(texts[0], modN);
-            if (!warmBlocks.isEmpty()) {
+            BlockArray warmBlocks = BlockArray.split(texts[0].getBytes(StandardCharsets.UTF_8), plainWidth);
+            if (warmBlocks.size() > 0) {
                 BigInteger m = warmBlocks.get(0);
                 schnelleExponentiation.pow(m, pubE, modN);
                 schnelleExponentiation.pow(m, privD, modN);
@@ -130,12 +144,16 @@ public class RSALibBenchmarkMPI {
         // ---------------- Benchmark: pro Text eigenständige Ausgabe ----------------
         for (int ti = 0; ti < T; ti++) {
 
+            // Blöcke einmal pro Text erzeugen; die Wiederholungen messen nur noch die Exponentiation
+            final BlockArray blocks = BlockArray.split(texts[ti].getBytes(StandardCharsets.UTF_8), plainWidth);
+            final BlockArray encBlocks = BlockArray.allocate(blocks.size(), cipherWidth);
+
             // Header wie im Screenshot (Rank 0 berechnet Länge und Blockanzahl)
             int textLen = 0;
             int blockCount = 0;
             if (rank == 0) {
                 textLen = texts[ti].getBytes(StandardCharsets.UTF_8).length;
-                blockCount = RSAUTF8.textToBigIntegerBlocks(texts[ti], modN).size();
+                blockCount = blocks.size();
                 System.out.println("== Text " + (ti + 1) + " | Länge: " + textLen + " Byte | Blöcke: " + blockCount + " ==");
             }
 
@@ -144,52 +162,51 @@ public class RSALibBenchmarkMPI {
                 int base = reps / size, rest = reps % size;
                 int localReps = base + ((rank < rest) ? 1 : 0);
 
-                // Lokale Statistik nur für diesen Text
-                Stats enc = new Stats();
-                Stats dec = new Stats();
+                // Lokale Histogramme nur für diesen Text (Nanosekunden)
+                LatencyHistogram enc = new LatencyHistogram();
+                LatencyHistogram dec = new LatencyHistogram();
+                LatencyHistogram perBlock = new LatencyHistogram();
 
                 for (int r = 0; r < localReps; r++) {
-                    // Blöcke für diesen Text erzeugen (gehört nicht in die Messwerte – wie in deinem Screenshot)
-                    var blocks = RSAUTF8.textToBigIntegerBlocks(texts[ti], modN);
-
                     // Encrypt (alle Blöcke)
                     long t0 = System.nanoTime();
-                    var encBlocks = new ArrayList<BigInteger>(blocks.size());
-                    for (BigInteger b : blocks) {
-                        encBlocks.add(schnelleExponentiation.pow(b, pubE, modN));
+                    for (int i = 0; i < blocks.size(); i++) {
+                        encBlocks.set(i, schnelleExponentiation.pow(blocks.get(i), pubE, modN));
                     }
                     long t1 = System.nanoTime();
 
-                    // Decrypt (alle Blöcke)
-                    for (BigInteger c : encBlocks) {
-                        schnelleExponentiation.pow(c, privD, modN);
+                    // Decrypt (alle Blöcke), zusätzlich Latenz pro Block
+                    long tb = t1;
+                    for (int i = 0; i < encBlocks.size(); i++) {
+                        schnelleExponentiation.pow(encBlocks.get(i), privD, modN);
+                        long now = System.nanoTime();
+                        perBlock.record(now - tb);
+                        tb = now;
                     }
                     long t2 = System.nanoTime();
 
-                    enc.add((t1 - t0) / 1_000_000.0);
-                    dec.add((t2 - t1) / 1_000_000.0);
+                    enc.record(t1 - t0);
+                    dec.record(t2 - t1);
                 }
 
-                // Reduce auf Rank 0 (sum/sumSq/n)
-                double[] send = new double[]{
-                        enc.sum, enc.sumSq, enc.n,
-                        dec.sum, dec.sumSq, dec.n
-                };
-                double[] recv = new double[send.length];
-                comm.Reduce(send, 0, recv, 0, send.length, MPI.DOUBLE, MPI.SUM, 0);
+                // Histogramme auf Rank 0 zusammenführen (Reduce SUM über die Buckets, MAX fürs Maximum)
+                LatencyHistogram E = enc.reduce(comm, 0);
+                LatencyHistogram D = dec.reduce(comm, 0);
+                LatencyHistogram B = perBlock.reduce(comm, 0);
 
                 if (rank == 0) {
-                    Stats E = new Stats(); E.sum = recv[0]; E.sumSq = recv[1]; E.n = (long) recv[2];
-                    Stats D = new Stats(); D.sum = recv[3]; D.sumSq = recv[4]; D.n = (long) recv[5];
-
                     System.out.println("---------- ");
                     System.out.println("Anzahl der Wiederholungen: " + reps);
                     System.out.printf(Locale.ROOT,
                             "Durchschnittliche Verschlüsselungszeit: %.3f ms (Standardabweichung: %.9f)%n",
-                            E.mean(), E.sd());
+                            E.mean() / 1e6, E.stdDev() / 1e6);
+                    System.out.println("  Verschlüsselung:          " + E.summaryMs());
                     System.out.printf(Locale.ROOT,
-                            "Durchschnittliche Entschlüsselungszeit: %.3f ms (Standardabweichung: %.9f)%n%n",
-                            D.mean(), D.sd());
+                            "Durchschnittliche Entschlüsselungszeit: %.3f ms (Standardabweichung: %.9f)%n",
+                            D.mean() / 1e6, D.stdDev() / 1e6);
+                    System.out.println("  Entschlüsselung:          " + D.summaryMs());
+                    System.out.println("  Entschlüsselung je Block: " + B.summaryMs());
+                    System.out.println();
                     System.out.println("---------- ");
                 }
 
@@ -198,7 +215,5 @@ public class RSALibBenchmarkMPI {
 
             if (rank == 0) System.out.println();
         }
-
-        MPI.Finalize();
     }
 }
@@ -50,8 +50,6 @@ public class RSATextBenchmarkAliceBob {
         return out;
     }
 
-    static final class Stats { double sum=0,sumSq=0; long count=0; }
-    static void add(Stats s,double v){ s.sum+=v; s.sumSq+=v*v; s.count++; }
 
     public static void main(String[] args) throws Exception {
         MPI.Init(args);
@@ -132,30 +130,29 @@ public class RSATextBenchmarkAliceBob {
             for (int reps : repsList){
                 int size = comm.Size();
                 int base = reps/size, rest = reps%size, localReps = base + (rank<rest?1:0);
-                Stats enc = new Stats(), dec = new Stats();
+                LatencyHistogram enc = new LatencyHistogram(), dec = new LatencyHistogram(), perBlock = new LatencyHistogram();
 
                 for (int r=0;r<localReps;r++){
                     long t0=System.nanoTime();
                     BigInteger[] c = new BigInteger[textBlocks[ti].length];
                     for (int b=0;b<textBlocks[ti].length;b++) c[b] = textBlocks[ti][b].modPow(pubE, modN);
                     long t1=System.nanoTime();
-                    for (BigInteger x: c) x.modPow(privD, modN);
+                    long tb=t1;
+                    for (BigInteger x: c){ x.modPow(privD, modN); long now=System.nanoTime(); perBlock.record(now-tb); tb=now; }
                     long t2=System.nanoTime();
-                    add(enc,(t1-t0)/1_000_000.0); add(dec,(t2-t1)/1_000_000.0);
+                    enc.record(t1-t0); dec.record(t2-t1);
                 }
 
-                double[] sendE = new double[]{enc.sum,enc.sumSq,enc.count}, recvE = new double[3];
-                double[] sendD = new double[]{dec.sum,dec.sumSq,dec.count}, recvD = new double[3];
-                comm.Reduce(sendE,0,recvE,0,3,MPI.DOUBLE,MPI.SUM,0);
-                comm.Reduce(sendD,0,recvD,0,3,MPI.DOUBLE,MPI.SUM,0);
+                LatencyHistogram E = enc.reduce(comm, 0), D = dec.reduce(comm, 0), B = perBlock.reduce(comm, 0);
 
                 if (rank==0){
-                    double nE=recvE[2], meanE=recvE[0]/nE, sdE=Math.sqrt(Math.max(0, recvE[1]/nE - meanE*meanE));
-                    double nD=recvD[2], meanD=recvD[0]/nD, sdD=Math.sqrt(Math.max(0, recvD[1]/nD - meanD*meanD));
                     System.out.println("---------- ");
                     System.out.println("Anzahl der Wiederholungen: " + reps);
-                    System.out.printf("Durchschnittliche Verschlüsselungszeit: %.3f ms (Standardabweichung: %.9f)%n", meanE, sdE);
-                    System.out.printf("Durchschnittliche Entschlüsselungszeit: %.3f ms (Standardabweichung: %.9f)%n%n", meanD, sdD);
+                    System.out.printf("Durchschnittliche Verschlüsselungszeit: %.3f ms (Standardabweichung: %.9f)%n", E.mean()/1e6, E.stdDev()/1e6);
+                    System.out.println("  Verschlüsselung:          " + E.summaryMs());
+                    System.out.printf("Durchschnittliche Entschlüsselungszeit: %.3f ms (Standardabweichung: %.9f)%n", D.mean()/1e6, D.stdDev()/1e6);
+                    System.out.println("  Entschlüsselung:          " + D.summaryMs());
+                    System.out.println("  Entschlüsselung je Block: " + B.summaryMs() + "\n");
                     System.out.println("---------- ");
                 }
                 comm.Barrier();
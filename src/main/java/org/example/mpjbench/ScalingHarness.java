@@ -0,0 +1,352 @@
+package org.example.mpjbench;
+
+import mpi.Intracomm;
+import mpi.MPI;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.example.rsa.BlockCodec;
+import org.example.rsa.mpj.BlockScatter;
+
+/**
+ * Skalierungsstudie (strong/weak scaling) für die verteilte RSA-Blockverarbeitung.
+ *
+ * Drei Betriebsarten:
+ *  1) Messen (unter mpjrun, eine Prozesszahl pro Lauf):
+ *       -keybits=1024,2048 -payload=4096,65536 -reps=10 -warmup=3 -mode=strong|weak -out=scaling
+ *     Pro Konfiguration: Scatterv → Rechnen → Gatherv wie in den Treibern, mit getrennter Zeit für
+ *     Rechnen und Kommunikation (inkl. Warten) pro Rank. Ergebnisse werden an out/scaling.csv und
+ *     out/scaling.jsonl angehängt. Bei -mode=weak gilt -payload pro Rank (Gesamtgröße = payload * np).
+ *  2) Auswerten (ohne MPI): -analyze [-out=scaling]
+ *     Speedup S(p) = T(1) / T(p), Effizienz E(p) = S(p) / p, Karp-Flatt e(p) = (1/S - 1/p) / (1 - 1/p);
+ *     bei weak scaling ist E(p) = T(1) / T(p). Ausgabe: Tabelle + out/analysis.csv.
+ *  3) Sweep starten (ohne MPI): -launch -np=1,2,4,8 [-dev=multicore] [weitere Mess-Argumente]
+ *     ruft mpjrun (aus MPJ_HOME) nacheinander pro Prozesszahl auf und wertet anschließend aus.
+ *
+ * Schlüssel werden pro Bitlänge deterministisch erzeugt (fester Seed), damit Läufe mit verschiedenem np
+ * exakt dieselbe Arbeit rechnen.
+ */
+public class ScalingHarness {
+
+    static {
+        try {
+            System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), true, StandardCharsets.UTF_8));
+            System.setErr(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.err)), true, StandardCharsets.UTF_8));
+        } catch (Exception ignored) {}
+    }
+
+    private static final String CSV_HEADER =
+            "timestamp,mode,np,keyBits,payloadBytes,payloadPerRank,blocks,reps,"
+                    + "wallMedianMs,wallMeanMs,computeMeanMs,computeMaxMs,commMeanMs,commMaxMs,commShare";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = parse(args);
+        Path outDir = Path.of(opt.getOrDefault("out", "scaling"));
+
+        if (opt.containsKey("analyze")) {
+            analyze(outDir);
+            return;
+        }
+        if (opt.containsKey("launch")) {
+            launch(args, opt, outDir);
+            return;
+        }
+
+        MPI.Init(args);
+        measure(MPI.COMM_WORLD, opt, outDir);
+        MPI.Finalize();
+    }
+
+    /** -name=value bzw. -flag; fremde Tokens (mpjrun) werden ignoriert. */
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> opt = new LinkedHashMap<>();
+        for (String a : args) {
+            if (!a.startsWith("-")) continue;
+            int eq = a.indexOf('=');
+            if (eq < 0) opt.put(a.substring(1), "");
+            else opt.put(a.substring(1, eq), a.substring(eq + 1));
+        }
+        return opt;
+    }
+
+    private static int[] ints(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    // ------------------------------------------------------------------ Messen
+
+    private static void measure(Intracomm comm, Map<String, String> opt, Path outDir) throws IOException {
+        int rank = comm.Rank();
+        int size = comm.Size();
+
+        int[] keyBitsList = ints(opt.getOrDefault("keybits", "1024,2048"));
+        int[] payloadList = ints(opt.getOrDefault("payload", "4096,65536"));
+        int reps = Integer.parseInt(opt.getOrDefault("reps", "10"));
+        int warmup = Integer.parseInt(opt.getOrDefault("warmup", "3"));
+        boolean weak = opt.getOrDefault("mode", "strong").equalsIgnoreCase("weak");
+
+        if (rank == 0) {
+            System.out.println("[Scaling] np=" + size + " | Modus: " + (weak ? "weak" : "strong")
+                    + " | Schlüssel: " + Arrays.toString(keyBitsList) + " Bit | Payload: " + Arrays.toString(payloadList)
+                    + (weak ? " Byte pro Rank" : " Byte") + " | reps=" + reps + " (+" + warmup + " Warmup)");
+        }
+
+        for (int keyBits : keyBitsList) {
+            // Schlüssel: Rank 0 erzeugt deterministisch, alle bekommen n/e/d
+            String[] key = new String[3];
+            if (rank == 0) {
+                BigInteger[] k = deterministicKey(keyBits);
+                key[0] = k[0].toString();
+                key[1] = k[1].toString();
+                key[2] = k[2].toString();
+            }
+            comm.Bcast(key, 0, 3, MPI.OBJECT, 0);
+            BigInteger n = new BigInteger(key[0]);
+            BigInteger d = new BigInteger(key[2]);
+
+            BlockCodec codec = BlockCodec.forModulus(n);
+            int inWidth = codec.cipherBlockSize();
+            int outWidth = codec.plainBlockSize();
+
+            for (int payload : payloadList) {
+                int totalBytes = weak ? payload * size : payload;
+                int blocks = BlockCodec.blockCount(totalBytes, outWidth);
+
+                // Eingabe: zufällige Werte < n in Chiffratbreite (Entschlüsselung = teuerster Pfad)
+                byte[] inBatch = null, outBatch = null;
+                if (rank == 0) {
+                    inBatch = new byte[blocks * inWidth];
+                    outBatch = new byte[blocks * outWidth];
+                    Random rnd = new Random(blocks);
+                    for (int b = 0; b < blocks; b++) {
+                        BigInteger x = new BigInteger(n.bitLength() - 1, rnd);
+                        BlockCodec.writeBlock(x, inBatch, b * inWidth, inWidth);
+                    }
+                }
+
+                int[] counts = BlockScatter.partition(blocks, size);
+                int mine = counts[rank];
+                byte[] localIn = new byte[mine * inWidth];
+                byte[] localOut = new byte[mine * outWidth];
+                int[] inBytes = scale(counts, inWidth), outBytes = scale(counts, outWidth);
+                int[] inDispl = BlockScatter.displacements(counts, inWidth), outDispl = BlockScatter.displacements(counts, outWidth);
+
+                long computeNs = 0, commNs = 0;
+                double[] wallMs = new double[reps];
+                for (int r = -warmup; r < reps; r++) {
+                    comm.Barrier();
+                    long t0 = System.nanoTime();
+                    comm.Scatterv(rank == 0 ? inBatch : localIn, 0, inBytes, inDispl, MPI.BYTE,
+                            localIn, 0, localIn.length, MPI.BYTE, 0);
+                    long t1 = System.nanoTime();
+                    BlockScatter.computeSlice(localIn, 0, mine, inWidth, localOut, 0, outWidth, d, n);
+                    long t2 = System.nanoTime();
+                    comm.Gatherv(localOut, 0, localOut.length, MPI.BYTE,
+                            rank == 0 ? outBatch : localOut, 0, outBytes, outDispl, MPI.BYTE, 0);
+                    long t3 = System.nanoTime();
+                    if (r >= 0) {
+                        commNs += (t1 - t0) + (t3 - t2);
+                        computeNs += t2 - t1;
+                        wallMs[r] = (t3 - t0) / 1e6;
+                    }
+                }
+
+                // Rechen-/Kommunikationszeit pro Rank einsammeln
+                long[] mineNs = new long[]{ computeNs, commNs };
+                long[] allNs = new long[2 * size];
+                comm.Gather(mineNs, 0, 2, MPI.LONG, allNs, 0, 2, MPI.LONG, 0);
+
+                if (rank == 0) {
+                    double compMean = 0, compMax = 0, commMean = 0, commMax = 0;
+                    for (int p = 0; p < size; p++) {
+                        double c = allNs[2 * p] / 1e6 / reps, m = allNs[2 * p + 1] / 1e6 / reps;
+                        compMean += c / size;
+                        commMean += m / size;
+                        compMax = Math.max(compMax, c);
+                        commMax = Math.max(commMax, m);
+                    }
+                    double[] sorted = wallMs.clone();
+                    Arrays.sort(sorted);
+                    double median = sorted[sorted.length / 2];
+                    double mean = Arrays.stream(wallMs).average().orElse(0);
+
+                    Record rec = new Record(System.currentTimeMillis(), weak ? "weak" : "strong", size, keyBits,
+                            totalBytes, totalBytes / size, blocks, reps, median, mean,
+                            compMean, compMax, commMean, commMax, commMean / Math.max(1e-9, compMean + commMean));
+                    append(outDir, rec);
+                    System.out.printf(Locale.ROOT,
+                            "[Scaling] %5d Bit | %8d Byte | %6d Blöcke | Wand %.3f ms (Median) | Rechnen Ø %.3f / max %.3f ms | Komm. Ø %.3f / max %.3f ms%n",
+                            keyBits, totalBytes, blocks, median, compMean, compMax, commMean, commMax);
+                }
+            }
+        }
+        if (rank == 0) System.out.println("[Scaling] Ergebnisse angehängt an " + outDir.resolve("scaling.csv"));
+    }
+
+    private static int[] scale(int[] counts, int width) {
+        int[] bytes = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) bytes[i] = counts[i] * width;
+        return bytes;
+    }
+
+    /** n, e, d aus festem Seed pro Bitlänge → gleiche Arbeit bei jedem np. */
+    static BigInteger[] deterministicKey(int bits) {
+        Random rnd = new Random(0x5CA1EL + bits);
+        BigInteger e = BigInteger.valueOf(65537);
+        while (true) {
+            BigInteger p = BigInteger.probablePrime(bits / 2, rnd);
+            BigInteger q = BigInteger.probablePrime(bits - bits / 2, rnd);
+            BigInteger phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+            if (!p.equals(q) && phi.gcd(e).equals(BigInteger.ONE)) {
+                return new BigInteger[]{ p.multiply(q), e, e.modInverse(phi) };
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ Ergebnisse
+
+    record Record(long timestamp, String mode, int np, int keyBits, int payloadBytes, int payloadPerRank,
+                  int blocks, int reps, double wallMedianMs, double wallMeanMs,
+                  double computeMeanMs, double computeMaxMs, double commMeanMs, double commMaxMs, double commShare) {
+
+        String csv() {
+            return String.format(Locale.ROOT, "%d,%s,%d,%d,%d,%d,%d,%d,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f",
+                    timestamp, mode, np, keyBits, payloadBytes, payloadPerRank, blocks, reps,
+                    wallMedianMs, wallMeanMs, computeMeanMs, computeMaxMs, commMeanMs, commMaxMs, commShare);
+        }
+
+        String json() {
+            return String.format(Locale.ROOT,
+                    "{\"timestamp\":%d,\"mode\":\"%s\",\"np\":%d,\"keyBits\":%d,\"payloadBytes\":%d,\"payloadPerRank\":%d,"
+                            + "\"blocks\":%d,\"reps\":%d,\"wallMedianMs\":%.4f,\"wallMeanMs\":%.4f,\"computeMeanMs\":%.4f,"
+                            + "\"computeMaxMs\":%.4f,\"commMeanMs\":%.4f,\"commMaxMs\":%.4f,\"commShare\":%.4f}",
+                    timestamp, mode, np, keyBits, payloadBytes, payloadPerRank, blocks, reps,
+                    wallMedianMs, wallMeanMs, computeMeanMs, computeMaxMs, commMeanMs, commMaxMs, commShare);
+        }
+
+        static Record parse(String line) {
+            String[] f = line.split(",");
+            return new Record(Long.parseLong(f[0]), f[1], Integer.parseInt(f[2]), Integer.parseInt(f[3]),
+                    Integer.parseInt(f[4]), Integer.parseInt(f[5]), Integer.parseInt(f[6]), Integer.parseInt(f[7]),
+                    Double.parseDouble(f[8]), Double.parseDouble(f[9]), Double.parseDouble(f[10]),
+                    Double.parseDouble(f[11]), Double.parseDouble(f[12]), Double.parseDouble(f[13]),
+                    Double.parseDouble(f[14]));
+        }
+    }
+
+    private static void append(Path outDir, Record rec) throws IOException {
+        Files.createDirectories(outDir);
+        Path csv = outDir.resolve("scaling.csv");
+        if (!Files.exists(csv)) {
+            Files.writeString(csv, CSV_HEADER + System.lineSeparator(), StandardCharsets.UTF_8);
+        }
+        Files.writeString(csv, rec.csv() + System.lineSeparator(), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        Files.writeString(outDir.resolve("scaling.jsonl"), rec.json() + System.lineSeparator(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    // ------------------------------------------------------------------ Auswerten
+
+    private static void analyze(Path outDir) throws IOException {
+        Path csv = outDir.resolve("scaling.csv");
+        if (!Files.exists(csv)) {
+            System.err.println("Keine Messdaten: " + csv.toAbsolutePath());
+            return;
+        }
+
+        // Gruppe = (Modus, Schlüssel, Payload bzw. Payload pro Rank); je np zählt die jüngste Messung
+        Map<String, TreeMap<Integer, Record>> groups = new TreeMap<>();
+        for (String line : Files.readAllLines(csv, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("timestamp")) continue;
+            Record r = Record.parse(line);
+            int size = r.mode().equals("weak") ? r.payloadPerRank() : r.payloadBytes();
+            String key = String.format(Locale.ROOT, "%s|%05d|%010d", r.mode(), r.keyBits(), size);
+            groups.computeIfAbsent(key, k -> new TreeMap<>()).merge(r.np(), r,
+                    (a, b) -> b.timestamp() >= a.timestamp() ? b : a);
+        }
+
+        List<String> out = new ArrayList<>();
+        out.add("mode,keyBits,payload,np,wallMedianMs,speedup,efficiency,karpFlatt,commShare");
+        System.out.println("Modus  | Bit  |    Payload |  np |  Wand [ms] | Speedup | Effizienz | Karp-Flatt | Komm.-Anteil");
+        for (Map.Entry<String, TreeMap<Integer, Record>> g : groups.entrySet()) {
+            String[] k = g.getKey().split("\\|");
+            String mode = k[0];
+            int keyBits = Integer.parseInt(k[1]);
+            int payload = Integer.parseInt(k[2]);
+            Record base = g.getValue().get(1);
+            if (base == null) {
+                System.out.println("(" + mode + ", " + keyBits + " Bit, " + payload + " Byte: keine Messung mit np=1 – übersprungen)");
+                continue;
+            }
+            for (Record r : g.getValue().values()) {
+                int p = r.np();
+                double speedup = base.wallMedianMs() / r.wallMedianMs();
+                // weak scaling: Arbeit wächst mit p → Effizienz direkt T(1)/T(p), Speedup skaliert
+                double efficiency = mode.equals("weak") ? speedup : speedup / p;
+                if (mode.equals("weak")) speedup = efficiency * p;
+                double karpFlatt = (p > 1) ? (1.0 / speedup - 1.0 / p) / (1.0 - 1.0 / p) : Double.NaN;
+
+                System.out.printf(Locale.ROOT, "%-6s | %4d | %10d | %3d | %10.3f | %7.2f | %9.1f%% | %10s | %11.1f%%%n",
+                        mode, keyBits, payload, p, r.wallMedianMs(), speedup, 100 * efficiency,
+                        Double.isNaN(karpFlatt) ? "-" : String.format(Locale.ROOT, "%.4f", karpFlatt), 100 * r.commShare());
+                out.add(String.format(Locale.ROOT, "%s,%d,%d,%d,%.4f,%.4f,%.4f,%s,%.4f",
+                        mode, keyBits, payload, p, r.wallMedianMs(), speedup, efficiency,
+                        Double.isNaN(karpFlatt) ? "" : String.format(Locale.ROOT, "%.6f", karpFlatt), r.commShare()));
+            }
+        }
+        Path analysis = outDir.resolve("analysis.csv");
+        Files.write(analysis, out, StandardCharsets.UTF_8);
+        System.out.println("Auswertung geschrieben: " + analysis.toAbsolutePath());
+    }
+
+    // ------------------------------------------------------------------ Sweep
+
+    private static void launch(String[] args, Map<String, String> opt, Path outDir) throws Exception {
+        String mpjHome = System.getenv("MPJ_HOME");
+        if (mpjHome == null) {
+            System.err.println("MPJ_HOME ist nicht gesetzt – mpjrun wird nicht gefunden.");
+            return;
+        }
+        boolean windows = System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("win");
+        String mpjrun = Path.of(mpjHome, "bin", windows ? "mpjrun.bat" : "mpjrun.sh").toString();
+        String dev = opt.getOrDefault("dev", "multicore");
+
+        // Mess-Argumente unverändert weiterreichen, Sweep-Steuerung entfernen
+        List<String> forward = new ArrayList<>();
+        for (String a : args) {
+            if (a.equals("-launch") || a.startsWith("-np=") || a.startsWith("-dev=")) continue;
+            forward.add(a);
+        }
+
+        for (int np : ints(opt.getOrDefault("np", "1,2,4"))) {
+            List<String> cmd = new ArrayList<>(List.of(mpjrun, "-dev", dev, "-np", String.valueOf(np),
+                    "-cp", System.getProperty("java.class.path"), ScalingHarness.class.getName()));
+            cmd.addAll(forward);
+            System.out.println("[Scaling] Starte np=" + np + ": " + String.join(" ", cmd));
+            int exit = new ProcessBuilder(cmd).inheritIO().directory(new File(".")).start().waitFor();
+            if (exit != 0) {
+                System.err.println("[Scaling] mpjrun mit np=" + np + " endete mit Code " + exit + " – Sweep abgebrochen.");
+                return;
+            }
+        }
+        analyze(outDir);
+    }
+}
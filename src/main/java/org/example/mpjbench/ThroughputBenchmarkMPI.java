@@ -0,0 +1,227 @@
+package org.example.mpjbench;
+
+import mpi.Intracomm;
+import mpi.MPI;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.example.SetupStatus;
+import org.example.rsa.BlockCodec;
+import org.example.rsa.ModExpEngine;
+import org.example.rsa.RSAUtils;
+
+/**
+ * Durchsatz-Benchmark mit synthetischer Nutzlast (KB bis GB) und Schlüsselgrößen-Sweep.
+ *
+ * - Jeder Rank rechnet seinen Anteil der Blöcke; Eingaben kommen zyklisch aus einem kleinen, vorab erzeugten
+ *   Pool → auch GB-Nutzlasten brauchen keinen Speicher und die Messung enthält keine Erzeugungskosten.
+ * - Warmup läuft, bis die letzten -window Batches einen Variationskoeffizienten < -cv haben
+ *   (stationärer Zustand statt fester Rundenzahl), höchstens -maxwarmup Sekunden.
+ * - Ausgabe pro Rank und gesamt: Blöcke/s, MB/s (Klartextbytes) und Takte pro Block.
+ *
+ * Argumente (alle optional):
+ *   -payload=64K,1M,1G  -keybits=1024,2048,3072,4096  -keys=generate|files
+ *   -engines=mpjkeygen,legacy,modpow  -op=decrypt,encrypt  -cv=0.02 -window=5 -maxwarmup=20 -chunk=256 -ghz=...
+ * Bei -keys=files wird Bobs Schlüssel von der Platte benutzt (-keybits entfällt).
+ */
+public class ThroughputBenchmarkMPI {
+
+    static {
+        try {
+            System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), true, StandardCharsets.UTF_8));
+            System.setErr(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.err)), true, StandardCharsets.UTF_8));
+        } catch (Exception ignored) {}
+    }
+
+    public static void main(String[] args) throws Exception {
+        MPI.Init(args);
+        run(MPI.COMM_WORLD, args);
+        MPI.Finalize();
+    }
+
+    public static void run(Intracomm comm, String[] args) throws Exception {
+        int rank = comm.Rank();
+        int size = comm.Size();
+
+        long[] payloads = Arrays.stream("64K,1M".split(",")).mapToLong(ThroughputBenchmarkMPI::parseSize).toArray();
+        int[] keyBitsList = {1024, 2048, 3072, 4096};
+        boolean keysFromFiles = false;
+        List<ModExpEngine> engines = List.of(ModExpEngine.values());
+        List<String> ops = List.of("decrypt", "encrypt");
+        double cvTarget = 0.02;
+        int window = 5;
+        double maxWarmupSec = 20;
+        int chunk = 256;
+        double ghz = Double.NaN;
+
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("-") || eq < 0) continue;
+            String v = arg.substring(eq + 1);
+            switch (arg.substring(1, eq)) {
+                case "payload"   -> payloads = Arrays.stream(v.split(",")).mapToLong(ThroughputBenchmarkMPI::parseSize).toArray();
+                case "keybits"   -> keyBitsList = Arrays.stream(v.split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+                case "keys"      -> keysFromFiles = v.equalsIgnoreCase("files");
+                case "engines"   -> engines = Arrays.stream(v.split(",")).map(ModExpEngine::parse).toList();
+                case "op"        -> ops = Arrays.stream(v.split(",")).map(s -> s.trim().toLowerCase(Locale.ROOT)).toList();
+                case "cv"        -> cvTarget = Double.parseDouble(v);
+                case "window"    -> window = Integer.parseInt(v);
+                case "maxwarmup" -> maxWarmupSec = Double.parseDouble(v);
+                case "chunk"     -> chunk = Integer.parseInt(v);
+                case "ghz"       -> ghz = Double.parseDouble(v);
+                default -> { }
+            }
+        }
+        if (Double.isNaN(ghz)) ghz = cpuGhz();
+        if (keysFromFiles) keyBitsList = new int[]{ 0 };
+
+        if (rank == 0) {
+            System.out.println("Prozesse: " + size + " | Engines: " + engines.stream().map(ModExpEngine::id).toList()
+                    + " | Operationen: " + ops + " | Takt: " + (Double.isNaN(ghz) ? "unbekannt (-ghz=...)" : ghz + " GHz")
+                    + " | Warmup bis CV < " + cvTarget + " über " + window + " Batches\n");
+        }
+
+        for (int keyBits : keyBitsList) {
+            // Schlüssel: von der Platte (Bob) oder deterministisch erzeugt; Rank 0 verteilt n/e/d
+            String[] key = new String[3];
+            Exception setupError = null;
+            if (rank == 0) {
+                try {
+                    BigInteger[] k;
+                    if (keysFromFiles) {
+                        RSAUtils.loadKeysFromFiles();
+                        k = new BigInteger[]{ RSAUtils.getBobModulus(), RSAUtils.getBobPublicKey(), RSAUtils.getBobPrivateKey() };
+                    } else {
+                        k = ScalingHarness.deterministicKey(keyBits);
+                    }
+                    for (int i = 0; i < 3; i++) key[i] = k[i].toString();
+                } catch (Exception ex) {
+                    setupError = ex;
+                }
+            }
+            SetupStatus.check(comm, 0, setupError);
+            comm.Bcast(key, 0, 3, MPI.OBJECT, 0);
+            BigInteger n = new BigInteger(key[0]), e = new BigInteger(key[1]), d = new BigInteger(key[2]);
+            int plainWidth = BlockCodec.forModulus(n).plainBlockSize();
+
+            // Eingabepool: zufällige Klartextblöcke (< n); als Chiffrat-Eingabe kostet jeder Wert < n gleich viel
+            BigInteger[] pool = new BigInteger[chunk];
+            Random rnd = new Random(1000L * rank + n.bitLength());
+            byte[] buf = new byte[plainWidth];
+            for (int i = 0; i < chunk; i++) {
+                rnd.nextBytes(buf);
+                pool[i] = new BigInteger(1, buf);
+            }
+
+            for (ModExpEngine engine : engines) {
+                for (String op : ops) {
+                    BigInteger exp = op.equals("encrypt") ? e : d;
+                    warmup(engine, pool, exp, n, cvTarget, window, maxWarmupSec);
+
+                    for (long payload : payloads) {
+                        long totalBlocks = (payload + plainWidth - 1) / plainWidth;
+                        long myBlocks = totalBlocks / size + (rank < totalBlocks % size ? 1 : 0);
+
+                        comm.Barrier();
+                        long w0 = System.nanoTime();
+                        long t0 = w0;
+                        for (long b = 0; b < myBlocks; b++) {
+                            engine.pow(pool[(int) (b % chunk)], exp, n);
+                        }
+                        long computeNs = System.nanoTime() - t0;
+                        comm.Barrier();
+                        long wallNs = System.nanoTime() - w0;
+
+                        long[] mine = new long[]{ myBlocks, computeNs };
+                        long[] all = new long[2 * size];
+                        comm.Gather(mine, 0, 2, MPI.LONG, all, 0, 2, MPI.LONG, 0);
+
+                        if (rank == 0) {
+                            System.out.printf(Locale.ROOT, "== %d Bit | %s | %s | Nutzlast %s (%d Blöcke à %d Byte) ==%n",
+                                    n.bitLength(), engine.id(), op, formatSize(payload), totalBlocks, plainWidth);
+                            for (int r = 0; r < size; r++) {
+                                printLine("Rank " + r, all[2 * r], all[2 * r + 1], plainWidth, ghz, 1);
+                            }
+                            printLine("Gesamt", totalBlocks, wallNs, plainWidth, ghz, size);
+                            System.out.println();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Warmup bis zum stationären Zustand: CV der letzten window Batch-Durchsätze < cvTarget. */
+    private static void warmup(ModExpEngine engine, BigInteger[] pool, BigInteger exp, BigInteger n,
+                               double cvTarget, int window, double maxWarmupSec) {
+        ArrayDeque<Double> recent = new ArrayDeque<>();
+        long deadline = System.nanoTime() + (long) (maxWarmupSec * 1e9);
+        while (System.nanoTime() < deadline) {
+            long t0 = System.nanoTime();
+            for (BigInteger x : pool) engine.pow(x, exp, n);
+            double rate = pool.length / Math.max(1e-9, (System.nanoTime() - t0) / 1e9);
+            recent.addLast(rate);
+            if (recent.size() > window) recent.removeFirst();
+            if (recent.size() == window && coefficientOfVariation(recent) < cvTarget) return;
+        }
+    }
+
+    private static double coefficientOfVariation(ArrayDeque<Double> values) {
+        double mean = values.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+        double var = values.stream().mapToDouble(v -> (v - mean) * (v - mean)).sum() / values.size();
+        return mean == 0 ? Double.POSITIVE_INFINITY : Math.sqrt(var) / mean;
+    }
+
+    /** cores = Anzahl paralleler Rechner, damit Takte/Block für das Aggregat pro Kern gelten. */
+    private static void printLine(String label, long blocks, long nanos, int plainWidth, double ghz, int cores) {
+        double secs = Math.max(1e-9, nanos / 1e9);
+        double blocksPerSec = blocks / secs;
+        double mbPerSec = blocks * (double) plainWidth / 1e6 / secs;
+        String cycles = Double.isNaN(ghz) || blocks == 0 ? "-"
+                : String.format(Locale.ROOT, "%.0f", (double) nanos * cores / blocks * ghz);
+        System.out.printf(Locale.ROOT, "  %-8s %10d Blöcke | %10.1f Blöcke/s | %9.3f MB/s | %12s Takte/Block%n",
+                label, blocks, blocksPerSec, mbPerSec, cycles);
+    }
+
+    /** "64K", "1M", "1G" oder Bytes. */
+    static long parseSize(String s) {
+        s = s.trim().toUpperCase(Locale.ROOT);
+        long factor = 1;
+        if (s.endsWith("K")) factor = 1L << 10;
+        else if (s.endsWith("M")) factor = 1L << 20;
+        else if (s.endsWith("G")) factor = 1L << 30;
+        if (factor > 1) s = s.substring(0, s.length() - 1);
+        return Long.parseLong(s) * factor;
+    }
+
+    private static String formatSize(long bytes) {
+        if (bytes >= 1L << 30) return String.format(Locale.ROOT, "%.1f GiB", bytes / (double) (1L << 30));
+        if (bytes >= 1L << 20) return String.format(Locale.ROOT, "%.1f MiB", bytes / (double) (1L << 20));
+        if (bytes >= 1L << 10) return String.format(Locale.ROOT, "%.1f KiB", bytes / (double) (1L << 10));
+        return bytes + " Byte";
+    }
+
+    /** Nominaltakt aus /proc/cpuinfo (Linux); sonst NaN → -ghz=... angeben. */
+    private static double cpuGhz() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/cpuinfo"))) {
+                if (line.startsWith("cpu MHz")) {
+                    return Double.parseDouble(line.substring(line.indexOf(':') + 1).trim()) / 1000.0;
+                }
+            }
+        } catch (Exception ignored) {}
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,381 @@
+package org.example.mpjkeygen;
+
+import mpi.Intracomm;
+import mpi.MPI;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.example.PerfCounters;
+import org.example.PerfCounters.Counter;
+import org.example.SetupStatus;
+import org.example.rsa.BlockArray;
+import org.example.rsa.BlockCodec;
+import org.example.rsa.BlockExecutor;
+import org.example.rsa.mpj.BlockScatter;
+
+/**
+ * Audit auf gemeinsame Primfaktoren in einem Bestand von RSA-Moduli (Batch-GCD nach Bernstein) – statt
+ * k²/2 paarweiser ggT-Berechnungen ein Produktbaum und ein Restbaum, fast linear in der Gesamtgröße.
+ *
+ *   P = n_1 · … · n_k (Produktbaum), r_i = P mod n_i² (Restbaum: Rest des Elternknotens mod Knoten²),
+ *   g_i = ggT(n_i, r_i / n_i) – g_i &gt; 1 heißt: n_i teilt einen Primfaktor mit einem anderen Modulus.
+ *
+ * Verteilung:
+ * 1) Rank 0 liest die Moduli, entfernt Duplikate (gemeldet als identischer Modulus) und verteilt sie per Scatterv.
+ * 2) Jeder Rank baut den Produktbaum seines Anteils (Ebenen parallel über BlockExecutor).
+ * 3) Die oberen Ebenen laufen binomial über die Ranks: in Runde s schickt Rank r (r mod 2s = s) seine Wurzel an r - s,
+ *    der multipliziert. Abwärts schickt r - s den Rest für den Teilbaum von r zurück – jede Baumebene liegt so auf
+ *    den Ranks, die sie berechnet haben, und keine Zahl wird öfter als einmal übertragen.
+ * 4) Lokaler Restbaum bis zu den Blättern, dann g_i; Rank 0 sammelt die Treffer und ordnet die gemeinsamen
+ *    Faktoren per CryptoMath.ggt den betroffenen Moduli zu (nur unter den Treffern, also wenige Paare).
+ *
+ * Eingabe (-dir=., rekursiv): Dateien *_n.txt (ein Dezimalwert, Format von MainKeyGen) und Schlüsselbestände *.moduli
+ * (ein Modulus pro Zeile, dezimal oder mit 0x hexadezimal, '#' leitet Kommentare ein).
+ * Mit -out=datei wird der Bericht zusätzlich geschrieben; Exit-Code 1, wenn ein Befund vorliegt.
+ *
+ * Aufruf: mpjrun -np 8 org.example.mpjkeygen.BatchGcdAudit -dir=keys -out=audit.txt
+ */
+public class BatchGcdAudit {
+
+    private static final int TAG_LENGTH = 30;
+    private static final int TAG_VALUE = 31;
+
+    /** Höchstens so viele Befunde auf der Konsole (alle stehen in -out). */
+    private static final int MAX_REPORTED = 20;
+
+    /** Bis zu so vielen Treffern werden die Partner paarweise bestimmt (quadratisch in der Trefferzahl). */
+    private static final int MAX_PAIRWISE = Integer.getInteger("rsa.auditPairwise", 2000);
+
+    static {
+        try {
+            System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), true, StandardCharsets.UTF_8));
+            System.setErr(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.err)), true, StandardCharsets.UTF_8));
+        } catch (Exception ignored) {}
+    }
+
+    public static void main(String[] args) throws Exception {
+        MPI.Init(args);
+        int findings = run(MPI.COMM_WORLD, args);
+        MPI.Finalize();
+        if (findings > 0) System.exit(1);
+    }
+
+    /**
+     * Ein kompletter Audit auf comm (alle Ranks rufen auf); MPI.Init/Finalize liegen beim Aufrufer.
+     * @return Anzahl der Befunde (betroffene Moduli + Gruppen identischer Moduli), nur auf Rank 0 aussagekräftig
+     */
+    public static int run(Intracomm comm, String[] args) throws Exception {
+        int rank = comm.Rank();
+        int size = comm.Size();
+        PerfCounters.reset();
+
+        String dir = ".";
+        String outFile = null;
+        for (String arg : args) {
+            if (arg.startsWith("-dir=")) {
+                dir = arg.substring(arg.indexOf('=') + 1);
+            } else if (arg.startsWith("-out=")) {
+                outFile = arg.substring(arg.indexOf('=') + 1);
+            }
+        }
+
+        // ---- 1) Einlesen und Verteilen ----
+        long t0 = System.currentTimeMillis();
+        Map<BigInteger, List<String>> sources = null;
+        List<BigInteger> moduli = null;
+        BlockArray packed = null;
+        int[] meta = new int[2];   // Anzahl, Breite in Byte
+        Exception setupError = null;
+        if (rank == 0) {
+            try {
+                sources = collect(Path.of(dir));
+                moduli = new ArrayList<>(sources.keySet());
+                int maxBits = 0;
+                for (BigInteger n : moduli) maxBits = Math.max(maxBits, n.bitLength());
+                meta[0] = moduli.size();
+                meta[1] = BlockCodec.cipherBlockSize(Math.max(maxBits, 9));
+                packed = BlockArray.of(moduli, meta[1]);
+                System.out.println("[Audit] Prozesse: " + size + " | Moduli: " + moduli.size() + " (eindeutig) aus " + dir
+                        + " | max. " + maxBits + " Bit");
+            } catch (Exception ex) {
+                setupError = ex;   // z. B. -dir fehlt
+            }
+        }
+        SetupStatus.check(comm, 0, setupError);
+
+        comm.Bcast(meta, 0, 2, MPI.INT, 0);
+        int total = meta[0], width = meta[1];
+
+        int[] counts = BlockScatter.partition(total, size);
+        int[] first = new int[size];
+        for (int r = 1; r < size; r++) first[r] = first[r - 1] + counts[r - 1];
+        int[] byteCounts = new int[size];
+        for (int r = 0; r < size; r++) byteCounts[r] = counts[r] * width;
+        BlockArray mine = BlockArray.allocate(counts[rank], width);
+
+        long w0 = PerfCounters.start();
+        comm.Scatterv(rank == 0 ? packed.array() : mine.array(), 0, byteCounts, BlockScatter.displacements(counts, width), MPI.BYTE,
+                mine.array(), 0, mine.byteLength(), MPI.BYTE, 0);
+        PerfCounters.stop(Counter.COLLECTIVE_WAIT_NANOS, Counter.COLLECTIVE_CALLS, w0);
+
+        BigInteger[] leaves = new BigInteger[mine.size()];
+        for (int i = 0; i < leaves.length; i++) leaves[i] = mine.get(i);
+        BlockExecutor executor = BlockExecutor.shared();
+
+        // ---- 2) Produktbaum: lokal, dann binomial über die Ranks ----
+        long t1 = System.currentTimeMillis();
+        List<BigInteger[]> levels = productTree(leaves, executor);
+        BigInteger root = levels.isEmpty() ? BigInteger.ONE : levels.get(levels.size() - 1)[0];
+
+        // pro Runde s, in der dieser Rank empfangen hat: {eigener Teilbaum, Teilbaum von rank + s}
+        Deque<BigInteger[]> merged = new ArrayDeque<>();
+        Deque<Integer> mergedFrom = new ArrayDeque<>();
+        int parent = -1;
+        for (int s = 1; s < size; s <<= 1) {
+            if (rank % (2 * s) == s) {
+                sendBig(comm, root, rank - s);
+                parent = rank - s;
+                break;
+            }
+            if (rank + s < size) {
+                BigInteger right = recvBig(comm, rank + s);
+                merged.push(new BigInteger[]{ root, right });
+                mergedFrom.push(rank + s);
+                // Das Gesamtprodukt auf Rank 0 wird nie gebraucht (siehe unten)
+                if (rank != 0 || 2 * s < size) root = multiply(root, right);
+            }
+        }
+
+        // ---- 3) Restbaum: über die Ranks abwärts, dann lokal ----
+        long t2 = System.currentTimeMillis();
+        BigInteger rem;
+        if (parent >= 0) {
+            rem = recvBig(comm, parent);
+        } else if (merged.isEmpty()) {
+            rem = null;   // nur ein Rank: der lokale Baum ist der ganze Baum (siehe leafGcds)
+        } else {
+            // oberste Runde auf Rank 0: P = L·R ⇒ P mod L² = L·(R mod L), P mod R² = R·(L mod R)
+            BigInteger[] top = merged.pop();
+            sendBig(comm, top[1].multiply(top[0].mod(top[1])), mergedFrom.pop());
+            rem = top[0].multiply(top[1].mod(top[0]));
+        }
+        while (!merged.isEmpty()) {
+            BigInteger[] lr = merged.pop();
+            sendBig(comm, rem.mod(lr[1].multiply(lr[1])), mergedFrom.pop());
+            rem = rem.mod(lr[0].multiply(lr[0]));
+        }
+        BigInteger[] g = leafGcds(levels, rem, executor);
+
+        // ---- 4) Treffer einsammeln ----
+        long t3 = System.currentTimeMillis();
+        StringBuilder hits = new StringBuilder();
+        for (int i = 0; i < g.length; i++) {
+            if (!g[i].equals(BigInteger.ONE)) hits.append(first[rank] + i).append(' ').append(g[i].toString(16)).append('\n');
+        }
+        Object[] send = new Object[]{ hits.toString() };
+        Object[] all = new Object[size];
+        w0 = PerfCounters.start();
+        comm.Gather(send, 0, 1, MPI.OBJECT, all, 0, 1, MPI.OBJECT, 0);
+        PerfCounters.stop(Counter.COLLECTIVE_WAIT_NANOS, Counter.COLLECTIVE_CALLS, w0);
+        PerfCounters.Totals counters = PerfCounters.reduce(comm, 0);
+        if (rank != 0) return 0;
+
+        Map<Integer, BigInteger> flagged = new LinkedHashMap<>();
+        for (Object o : all) {
+            for (String line : ((String) o).split("\n")) {
+                if (line.isEmpty()) continue;
+                int sp = line.indexOf(' ');
+                flagged.put(Integer.parseInt(line.substring(0, sp)), new BigInteger(line.substring(sp + 1), 16));
+            }
+        }
+        List<String> report = report(moduli, sources, flagged);
+        long t4 = System.currentTimeMillis();
+
+        int shown = 0;
+        for (String line : report) {
+            if (shown++ < MAX_REPORTED) System.out.println("[Audit] " + line);
+        }
+        if (report.size() > MAX_REPORTED) System.out.println("[Audit] ... (" + (report.size() - MAX_REPORTED) + " weitere)");
+        if (outFile != null) {
+            try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(Path.of(outFile), StandardCharsets.UTF_8))) {
+                for (String line : report) w.println(line);
+            }
+            System.out.println("[Audit] Bericht geschrieben: " + outFile);
+        }
+        System.out.println("[Audit] Moduli mit gemeinsamem Faktor: " + flagged.size() + " | Befunde gesamt: " + report.size());
+        System.out.println("[Audit] Zeiten: Einlesen " + (t1 - t0) + " ms | Produktbaum " + (t2 - t1) + " ms | Restbaum "
+                + (t3 - t2) + " ms | Auswertung " + (t4 - t3) + " ms | gesamt " + (t4 - t0) + " ms");
+        System.out.println("[Audit] Zähler (Summe | Max pro Rank):");
+        System.out.print(counters.describe());
+        return report.size();
+    }
+
+    // ---------------- Eingabe ----------------
+
+    /** Alle Moduli unter dir (rekursiv), eindeutig, mit ihren Fundstellen in Einlesereihenfolge. */
+    static Map<BigInteger, List<String>> collect(Path dir) throws IOException {
+        Map<BigInteger, List<String>> sources = new LinkedHashMap<>();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(f -> f.getFileName().toString().endsWith("_n.txt") || f.getFileName().toString().endsWith(".moduli"))
+                    .sorted()
+                    .toList();
+        }
+        for (Path f : files) {
+            List<String> lines = Files.readAllLines(f, StandardCharsets.UTF_8);
+            boolean single = f.getFileName().toString().endsWith("_n.txt");
+            for (int i = 0; i < lines.size(); i++) {
+                String s = lines.get(i);
+                int hash = s.indexOf('#');
+                if (hash >= 0) s = s.substring(0, hash);
+                s = s.trim();
+                if (s.isEmpty()) continue;
+                BigInteger n;
+                try {
+                    n = (s.startsWith("0x") || s.startsWith("0X")) ? new BigInteger(s.substring(2), 16) : new BigInteger(s);
+                } catch (NumberFormatException e) {
+                    System.err.println("[Audit] Übersprungen (kein Modulus): " + f + ":" + (i + 1));
+                    continue;
+                }
+                if (n.compareTo(BigInteger.ONE) <= 0) continue;
+                sources.computeIfAbsent(n, k -> new ArrayList<>(1)).add(single ? f.toString() : f + ":" + (i + 1));
+            }
+        }
+        return sources;
+    }
+
+    // ---------------- Bäume ----------------
+
+    /** Ebenen von unten (Blätter) nach oben (eine Wurzel); leer, wenn leaves leer ist. */
+    static List<BigInteger[]> productTree(BigInteger[] leaves, BlockExecutor executor) {
+        List<BigInteger[]> levels = new ArrayList<>();
+        if (leaves.length == 0) return levels;
+        levels.add(leaves);
+        BigInteger[] level = leaves;
+        while (level.length > 1) {
+            BigInteger[] below = level;
+            BigInteger[] next = new BigInteger[(below.length + 1) / 2];
+            executor.forEach(0, next.length, j -> next[j] = (2 * j + 1 < below.length)
+                    ? multiply(below[2 * j], below[2 * j + 1]) : below[2 * j]);
+            levels.add(next);
+            level = next;
+        }
+        return levels;
+    }
+
+    /**
+     * Restbaum ab rootRem = P mod Wurzel², dann g_i = ggT(n_i, (P mod n_i²) / n_i) für alle Blätter.
+     * rootRem = null: die lokale Wurzel ist P selbst; die Reste ihrer Kinder L, R folgen dann ohne Quadrat als
+     * L·(R mod L) und R·(L mod R).
+     */
+    static BigInteger[] leafGcds(List<BigInteger[]> levels, BigInteger rootRem, BlockExecutor executor) {
+        if (levels.isEmpty()) return new BigInteger[0];
+        int top = levels.size() - 2;
+        BigInteger[] rems = new BigInteger[]{ rootRem };
+        if (rootRem == null) {
+            if (top < 0) return new BigInteger[]{ BigInteger.ONE };   // ein einziger Modulus
+            BigInteger[] children = levels.get(top);   // genau zwei Knoten unter der Wurzel
+            rems = new BigInteger[]{
+                    children[0].multiply(children[1].mod(children[0])), children[1].multiply(children[0].mod(children[1])) };
+            top--;
+        }
+        for (int l = top; l >= 0; l--) {
+            BigInteger[] nodes = levels.get(l);
+            BigInteger[] above = rems;
+            BigInteger[] next = new BigInteger[nodes.length];
+            executor.forEach(0, nodes.length, i -> next[i] = above[i / 2].mod(nodes[i].multiply(nodes[i])));
+            rems = next;
+        }
+        return finish(levels.get(0), rems, executor);
+    }
+
+    private static BigInteger[] finish(BigInteger[] leaves, BigInteger[] leafRems, BlockExecutor executor) {
+        BigInteger[] g = new BigInteger[leaves.length];
+        executor.forEach(0, leaves.length, i -> g[i] = leafRems[i].divide(leaves[i]).gcd(leaves[i]));
+        return g;
+    }
+
+    /** Große Produkte (oberste Ebenen) mit BigInteger.parallelMultiply, sonst multiply. */
+    private static BigInteger multiply(BigInteger a, BigInteger b) {
+        return (Math.min(a.bitLength(), b.bitLength()) > (1 << 20)) ? a.parallelMultiply(b) : a.multiply(b);
+    }
+
+    // ---------------- Bericht ----------------
+
+    /**
+     * Ordnet die Treffer zu: gemeinsame Faktoren per paarweisem ggT unter den Treffern (g_i = n_i bedeutet, dass beide
+     * Primfaktoren anderswo vorkommen; ohne Partnerliste oberhalb von MAX_PAIRWISE Treffern), dazu Gruppen identischer
+     * Moduli aus dem Einlesen.
+     */
+    static List<String> report(List<BigInteger> moduli, Map<BigInteger, List<String>> sources, Map<Integer, BigInteger> flagged) {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<BigInteger, List<String>> e : sources.entrySet()) {
+            if (e.getValue().size() > 1) {
+                lines.add("IDENTISCHER MODULUS (" + e.getKey().bitLength() + " Bit) in: " + String.join(", ", e.getValue()));
+            }
+        }
+        List<Integer> idx = new ArrayList<>(flagged.keySet());
+        for (int a : idx) {
+            BigInteger n = moduli.get(a);
+            StringBuilder sb = new StringBuilder("GEMEINSAMER FAKTOR: ").append(label(sources, n))
+                    .append(" (").append(n.bitLength()).append(" Bit) → faktorisierbar");
+            BigInteger g = flagged.get(a);
+            if (!g.equals(n)) sb.append(", p = ").append(abbrev(g)).append(" (").append(g.bitLength()).append(" Bit)");
+            List<String> partners = new ArrayList<>();
+            for (int b : (idx.size() <= MAX_PAIRWISE) ? idx : List.<Integer>of()) {
+                if (b == a) continue;
+                BigInteger h = CryptoMath.ggt(n, moduli.get(b));
+                if (!h.equals(BigInteger.ONE)) partners.add(label(sources, moduli.get(b)) + " [" + abbrev(h) + "]");
+            }
+            if (!partners.isEmpty()) sb.append(" | geteilt mit: ").append(String.join(", ", partners));
+            lines.add(sb.toString());
+        }
+        return lines;
+    }
+
+    private static String label(Map<BigInteger, List<String>> sources, BigInteger n) {
+        return String.join(" = ", sources.get(n));
+    }
+
+    private static String abbrev(BigInteger x) {
+        String hex = x.toString(16);
+        return hex.length() <= 16 ? "0x" + hex : "0x" + hex.substring(0, 8) + "…" + hex.substring(hex.length() - 8);
+    }
+
+    // ---------------- Punkt-zu-Punkt ----------------
+
+    private static void sendBig(Intracomm comm, BigInteger x, int dest) {
+        byte[] raw = x.toByteArray();
+        long w0 = PerfCounters.start();
+        comm.Send(new int[]{ raw.length }, 0, 1, MPI.INT, dest, TAG_LENGTH);
+        comm.Send(raw, 0, raw.length, MPI.BYTE, dest, TAG_VALUE);
+        PerfCounters.stop(Counter.P2P_WAIT_NANOS, w0);
+    }
+
+    private static BigInteger recvBig(Intracomm comm, int src) {
+        int[] len = new int[1];
+        long w0 = PerfCounters.start();
+        comm.Recv(len, 0, 1, MPI.INT, src, TAG_LENGTH);
+        byte[] raw = new byte[len[0]];
+        comm.Recv(raw, 0, raw.length, MPI.BYTE, src, TAG_VALUE);
+        PerfCounters.stop(Counter.P2P_WAIT_NANOS, w0);
+        return new BigInteger(raw);
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.mpjkeygen;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import org.example.PerfCounters;
+import org.example.PerfCounters.Counter;
+
+/**
+ * Kandidatenquelle für die Primsuche.
+ *
+ * - window = 0: wie bisher ein frischer Zufallskandidat pro Aufruf (richtige Bitlänge, ungerade).
+ * - window > 0: ab einem zufälligen ungeraden Start werden window aufeinanderfolgende ungerade Zahlen
+ *   gegen die ersten primes kleinen Primzahlen gesiebt; next() liefert nur die Überlebenden.
+ *   Pro Fenster kostet das eine BigInteger-Division je Primzahlgruppe statt einer pro Kandidat und Primzahl.
+ *
+ * Die kleinen Primzahlen werden in Gruppen zusammengefasst, deren Produkt in ein long passt:
+ * n mod (p1·p2·…) einmal als BigInteger, danach nur noch long-Arithmetik (auch für hasSmallFactor).
+ * Nicht threadsicher; eine Instanz pro Suche.
+ */
+public final class CandidateSieve {
+
+    /** Obergrenze für die Anzahl kleiner Primzahlen (Probedivision bzw. Sieb). */
+    public static final int MAX_PRIMES = 4096;
+
+    private static final int[] PRIMES = oddPrimes(MAX_PRIMES);      // 3, 5, 7, …
+    private static final long[] GROUP_PRODUCT;
+    private static final int[] GROUP_START;                           // Gruppe g = PRIMES[GROUP_START[g] .. GROUP_START[g+1])
+
+    static {
+        long[] products = new long[PRIMES.length];
+        int[] starts = new int[PRIMES.length + 1];
+        int groups = 0;
+        int i = 0;
+        while (i < PRIMES.length) {
+            starts[groups] = i;
+            long product = 1;
+            while (i < PRIMES.length && product <= Long.MAX_VALUE / PRIMES[i]) product *= PRIMES[i++];
+            products[groups++] = product;
+        }
+        starts[groups] = PRIMES.length;
+        GROUP_PRODUCT = Arrays.copyOf(products, groups);
+        GROUP_START = Arrays.copyOf(starts, groups + 1);
+    }
+
+    private final int bits;
+    private final int window;
+    private final int primes;
+    private final SecureRandom rnd;
+    private final boolean[] composite;
+
+    private BigInteger base;
+    private int limit;      // gültige Positionen im aktuellen Fenster (kürzer, wenn 2^bits erreicht wird)
+    private int pos;
+
+    /**
+     * @param bits   Bitlänge der Kandidaten
+     * @param window Anzahl ungerader Zahlen pro Siebfenster (0 = kein Sieb)
+     * @param primes Anzahl kleiner Primzahlen im Sieb (1..MAX_PRIMES)
+     */
+    public CandidateSieve(int bits, int window, int primes, SecureRandom rnd) {
+        this.bits = bits;
+        // Für sehr kleine Bitlängen wären die Siebprimzahlen selbst Kandidaten → dort ohne Sieb
+        this.window = (bits < 16) ? 0 : Math.max(0, window);
+        this.primes = Math.max(1, Math.min(primes, MAX_PRIMES));
+        this.rnd = rnd;
+        this.composite = new boolean[this.window];
+        this.pos = this.window;
+    }
+
+    public int window() { return window; }
+    public int primes() { return primes; }
+
+    /** Nächster Kandidat; bei aktivem Sieb ohne Teiler unter den ersten primes Primzahlen. */
+    public BigInteger next() {
+        if (window == 0) {
+            PerfCounters.inc(Counter.CANDIDATES);
+            return new BigInteger(bits, rnd).setBit(bits - 1).setBit(0);
+        }
+        while (true) {
+            if (pos >= limit) refill();
+            int i = pos++;
+            PerfCounters.inc(Counter.CANDIDATES);
+            if (composite[i]) {
+                PerfCounters.inc(Counter.TRIAL_DIVISION_REJECTS);
+                continue;
+            }
+            return base.add(BigInteger.valueOf(2L * i));
+        }
+    }
+
+    private void refill() {
+        base = new BigInteger(bits, rnd).setBit(bits - 1).setBit(0);
+        // base + 2*(limit-1) muss < 2^bits bleiben
+        BigInteger room = BigInteger.ONE.shiftLeft(bits).subtract(base).shiftRight(1);
+        limit = (room.bitLength() < 31) ? Math.min(window, room.intValue()) : window;
+        pos = 0;
+        Arrays.fill(composite, 0, limit, false);
+
+        for (int g = 0; g < GROUP_PRODUCT.length && GROUP_START[g] < primes; g++) {
+            long m = base.mod(BigInteger.valueOf(GROUP_PRODUCT[g])).longValue();
+            int end = Math.min(GROUP_START[g + 1], primes);
+            for (int k = GROUP_START[g]; k < end; k++) {
+                int p = PRIMES[k];
+                long r = m % p;
+                // base + 2i ≡ 0 (mod p)  ⇔  i ≡ (p - r) · 2⁻¹ (mod p), 2⁻¹ = (p+1)/2
+                long first = ((p - r) % p) * ((p + 1) / 2) % p;
+                for (long i = first; i < limit; i += p) composite[(int) i] = true;
+            }
+        }
+    }
+
+    /** true, wenn n durch eine der ersten count ungeraden Primzahlen teilbar ist (n selbst ausgenommen). */
+    public static boolean hasSmallFactor(BigInteger n, int count) {
+        int limit = Math.min(count, MAX_PRIMES);
+        boolean small = n.bitLength() < 31;
+        for (int g = 0; g < GROUP_PRODUCT.length && GROUP_START[g] < limit; g++) {
+            long m = n.mod(BigInteger.valueOf(GROUP_PRODUCT[g])).longValue();
+            int end = Math.min(GROUP_START[g + 1], limit);
+            for (int k = GROUP_START[g]; k < end; k++) {
+                int p = PRIMES[k];
+                if (m % p == 0 && !(small && n.intValue() == p)) return true;
+            }
+        }
+        return false;
+    }
+
+    /** Die ersten count ungeraden Primzahlen (Sieb des Eratosthenes). */
+    static int[] oddPrimes(int count) {
+        int bound = 64;
+        while (true) {
+            boolean[] notPrime = new boolean[bound + 1];
+            int[] result = new int[count];
+            int found = 0;
+            for (int i = 3; i <= bound && found < count; i += 2) {
+                if (notPrime[i]) continue;
+                result[found++] = i;
+                for (long j = (long) i * i; j <= bound; j += 2L * i) notPrime[(int) j] = true;
+            }
+            if (found == count) return result;
+            bound *= 2;
+        }
+    }
+}
@@ -11,6 +11,11 @@ import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 
+import org.example.Autotuner;
+import org.example.PerfCounters;
+import org.example.SetupStatus;
+import org.example.TuningProfile;
+
 public class MainKeyGen {
 
     static {
@@ -26,9 +31,24 @@ public class MainKeyGen {
         // 0) MPI initialisieren
         // ---------------------------------------------------------
         MPI.Init(args);
-        Intracomm comm = MPI.COMM_WORLD;
+        run(MPI.COMM_WORLD, args);
+
+        // ---------------------------------------------------------
+        // 6) MPI beenden
+        // ---------------------------------------------------------
+        MPI.Finalize();
+    }
+
+    /**
+     * Komplette Schlüsselerzeugung auf comm (alle Ranks rufen auf); MPI.Init/Finalize liegen beim Aufrufer,
+     * damit auch der Job-Server (MpjJobServer) Schlüssel erzeugen kann.
+     * Optionale Argumente: -bitlength=..., -mriterationen=..., -tune[=force] (Autotuner vor der Suche)
+     * und -seed=... (fester Seed für RankDrbg, reproduzierbare Läufe)
+     */
+    public static RsaKeyMaterial run(Intracomm comm, String[] args) throws Exception {
         int rank = comm.Rank();
         int size = comm.Size();
+        PerfCounters.reset();
 
         if (rank == 0) {
             System.out.println("=== RSA Key Generation gestartet ===");
@@ -38,13 +58,33 @@ public class MainKeyGen {
         // ---------------------------------------------------------
         // 1) Parameter für KeyGen
         // ---------------------------------------------------------
-        final int totalBits   = 1024;       // Zielgröße n (z. B. 1024 oder 2048)
-        final int mrIterations= 20;         // Genauigkeit Miller–Rabin
-        SecureRandom rnd = new SecureRandom();
+        int totalBits   = 1024;       // Zielgröße n (z. B. 1024 oder 2048)
+        int mrIterations= 20;         // Genauigkeit Miller–Rabin
+        String tune = null;           // -tune | -tune=force
+        String seed = null;           // -seed=… → reproduzierbare Primzahlsuche (nur für Benchmarks!)
+        for (String arg : args) {
+            if (arg.startsWith("-bitlength=")) {
+                totalBits = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("-mriterationen=")) {
+                mrIterations = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.equals("-tune") || arg.startsWith("-tune=")) {
+                tune = arg;
+            } else if (arg.startsWith("-seed=")) {
+                seed = arg.substring(arg.indexOf('=') + 1);
+            }
+        }
+        SecureRandom rnd = RankDrbg.forRank(rank, seed);
+        TuningProfile.Params tuning = (tune != null)
+                ? Autotuner.ensure(comm, totalBits, tune.equals("-tune=force"))
+                : TuningProfile.current().forKeyBits(totalBits);
+        tuning.activate();
 
         if (rank == 0) {
             System.out.println("[Setup] Zielgröße: " + totalBits + " Bit");
             System.out.println("[Setup] Miller-Rabin Runden: " + mrIterations);
+            System.out.println("[Setup] Tuning: " + tuning);
+            System.out.println("[Setup] Zufall: " + rnd);
+            if (seed != null) System.out.println("[Setup] WARNUNG: fester Seed – Schlüssel nur für Tests verwenden!");
         }
 
         long t0 = System.currentTimeMillis();
@@ -53,12 +93,12 @@ public class MainKeyGen {
         // 2) Verteilte Suche nach Primzahlen
         // ---------------------------------------------------------
         if (rank == 0) System.out.println("\n[Phase 1] Suche nach Primzahl p...");
-        BigInteger p = PrimeSearch.findPrimeHalfSize(totalBits, mrIterations, comm, rnd);
+        BigInteger p = PrimeSearch.findPrimeHalfSize(totalBits, mrIterations, comm, rnd, tuning);
 
         if (rank == 0) System.out.println("[Phase 1] p gefunden mit " + p.bitLength() + " Bit.");
 
         if (rank == 0) System.out.println("\n[Phase 2] Suche nach Primzahl q...");
-        BigInteger q = PrimeSearch.findPrimeHalfSize(totalBits, mrIterations, comm, rnd);
+        BigInteger q = PrimeSearch.findPrimeHalfSize(totalBits, mrIterations, comm, rnd, tuning);
 
         if (rank == 0) System.out.println("[Phase 2] q gefunden mit " + q.bitLength() + " Bit.");
 
@@ -66,30 +106,36 @@ public class MainKeyGen {
         // 3) Ableitung der Schlüsselkomponenten (nur Rank 0)
         // ---------------------------------------------------------
         RsaKeyMaterial km = null;
+        Exception setupError = null;
         if (rank == 0) {
-            System.out.println("\n[Phase 3] Berechnung der RSA-Komponenten...");
+            try {
+                System.out.println("\n[Phase 3] Berechnung der RSA-Komponenten...");
 
-            if (p.equals(q)) {
-                throw new IllegalStateException("p == q; bitte erneut versuchen");
-            }
+                if (p.equals(q)) {
+                    throw new IllegalStateException("p == q; bitte erneut versuchen");
+                }
 
-            BigInteger n   = p.multiply(q);
-            BigInteger phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
-            BigInteger e   = BigInteger.valueOf(65537);
+                BigInteger n   = p.multiply(q);
+                BigInteger phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+                BigInteger e   = BigInteger.valueOf(65537);
 
-            if (!CryptoMath.sindTeilerfremd(e, phi)) {
-                throw new IllegalStateException("gcd(e,phi)!=1; bitte erneut versuchen");
-            }
+                if (!CryptoMath.sindTeilerfremd(e, phi)) {
+                    throw new IllegalStateException("gcd(e,phi)!=1; bitte erneut versuchen");
+                }
 
-            BigInteger d   = CryptoMath.modInverse(e, phi);
-            BigInteger dp  = d.mod(p.subtract(BigInteger.ONE));
-            BigInteger dq  = d.mod(q.subtract(BigInteger.ONE));
-            BigInteger qInv= CryptoMath.modInverse(q, p);
+                BigInteger d   = CryptoMath.modInverse(e, phi);
+                BigInteger dp  = d.mod(p.subtract(BigInteger.ONE));
+                BigInteger dq  = d.mod(q.subtract(BigInteger.ONE));
+                BigInteger qInv= CryptoMath.modInverse(q, p);
 
-            km = new RsaKeyMaterial(p, q, n, phi, e, d, dp, dq, qInv);
+                km = new RsaKeyMaterial(p, q, n, phi, e, d, dp, dq, qInv);
 
-            System.out.println("[Phase 3] Berechnung abgeschlossen. Modulus n hat " + n.bitLength() + " Bit.");
+                System.out.println("[Phase 3] Berechnung abgeschlossen. Modulus n hat " + n.bitLength() + " Bit.");
+            } catch (Exception ex) {
+                setupError = ex;
+            }
         }
+        SetupStatus.check(comm, 0, setupError);
 
         // ---------------------------------------------------------
         // 4) Broadcast: KeyMaterial verteilen
@@ -100,6 +146,9 @@ public class MainKeyGen {
 
         long t1 = System.currentTimeMillis();
 
+        // Kandidaten, Probedivision vs. Miller–Rabin und Wartezeit im Allgather über alle Ranks
+        PerfCounters.Totals counters = PerfCounters.reduce(comm, 0);
+
         // ---------------------------------------------------------
 // 5) Rank 0 schreibt Schlüsseldateien (Alice & Bob)
 // ---------------------------------------------------------
@@ -125,13 +174,11 @@ public class MainKeyGen {
             System.out.println("  Alice: n,e,d,p,q,dp,dq,qInv");
             System.out.println("  Bob:   n,e,d");
 
+            System.out.println("\n[Zähler] Summe | Max pro Rank:");
+            System.out.print(counters.describe());
             System.out.println("\n=== KeyGen erfolgreich abgeschlossen in " + (t1 - t0) + " ms ===");
         }
 
-
-        // ---------------------------------------------------------
-        // 6) MPI beenden
-        // ---------------------------------------------------------
-        MPI.Finalize();
+        return km;
     }
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package org.example.mpjkeygen;
 
+import org.example.PerfCounters;
+import org.example.PerfCounters.Counter;
 import org.example.SchnelleExponentiation;
+import org.example.jfr.PrimalityTestEvent;
 
 import java.math.BigInteger;
 import java.security.SecureRandom;
@@ -15,6 +18,12 @@ import java.util.Objects;
  */
 public final class MillerRabin {
 
+    /** Standard für die Probedivision: die ungeraden Primzahlen 3..37. */
+    public static final int DEFAULT_TRIAL_PRIMES = 11;
+
+    /** Für Aufrufe ohne rnd: ein Strom pro Thread statt eines neuen SecureRandom pro Test. */
+    private static final ThreadLocal<SecureRandom> FALLBACK = ThreadLocal.withInitial(() -> RankDrbg.forRank(0, null));
+
     private MillerRabin() {}
 
     /** Bequemer Wrapper: wählt Runden abhängig von der Bitlänge. */
@@ -28,13 +37,33 @@ public final class MillerRabin {
      *
      * @param n          Ungerade Zahl > 2 (gerade Zahlen werden sofort verworfen)
      * @param iterations Anzahl der Test-Runden (>=1 empfohlen)
-     * @param rnd        SecureRandom-Instanz (falls null, wird intern erzeugt)
+     * @param rnd        SecureRandom-Instanz, z. B. RankDrbg (falls null, ein RankDrbg pro Thread)
      * @return true, falls n vermutlich prim
      */
     public static boolean isProbablePrimeMR(BigInteger n, int iterations, SecureRandom rnd) {
+        return isProbablePrimeMR(n, iterations, rnd, DEFAULT_TRIAL_PRIMES);
+    }
+
+    /**
+     * Wie isProbablePrimeMR(n, iterations, rnd), aber mit Probedivision durch die ersten trialPrimes ungeraden
+     * Primzahlen (0 = keine, z. B. wenn die Kandidaten schon aus einem CandidateSieve stammen).
+     */
+    public static boolean isProbablePrimeMR(BigInteger n, int iterations, SecureRandom rnd, int trialPrimes) {
+        long t0 = PerfCounters.start();
+        PrimalityTestEvent event = PrimalityTestEvent.start();
+        boolean prime = test(n, iterations, rnd, trialPrimes, event);
+        event.finish(n.bitLength(), prime);
+        PerfCounters.stop(Counter.MR_NANOS, t0);
+        if (prime) PerfCounters.inc(Counter.PROBABLE_PRIMES);
+        return prime;
+    }
+
+    private static boolean test(BigInteger n, int iterations, SecureRandom rnd, int trialPrimes,
+                                PrimalityTestEvent event) {
         Objects.requireNonNull(n, "n");
         if (iterations <= 0) iterations = 1;
-        if (rnd == null) rnd = new SecureRandom();
+        if (rnd == null) rnd = FALLBACK.get();
+        event.rejectStage = PrimalityTestEvent.STAGE_TRIVIAL;
 
         // Triviale Fälle
         if (n.compareTo(BigInteger.TWO) < 0) return false;              // n < 2
@@ -42,11 +71,10 @@ public final class MillerRabin {
         if (n.testBit(0) == false) return false;                         // gerade
 
         // schneller Primteiler-Check für kleine Primes (vermeidet teure MR-Runden bei klaren Kompositen)
-        final int[] smallPrimes = {3,5,7,11,13,17,19,23,29,31,37};
-        for (int p : smallPrimes) {
-            BigInteger P = BigInteger.valueOf(p);
-            if (n.equals(P)) return true;
-            if (n.mod(P).equals(BigInteger.ZERO)) return false;
+        event.rejectStage = PrimalityTestEvent.STAGE_TRIAL_DIVISION;
+        if (trialPrimes > 0 && CandidateSieve.hasSmallFactor(n, trialPrimes)) {
+            PerfCounters.inc(Counter.TRIAL_DIVISION_REJECTS);
+            return false;
         }
 
         // schreibe n-1 = 2^s * d mit d ungerade
@@ -56,8 +84,11 @@ public final class MillerRabin {
 
         final BigInteger nMinusOne = n.subtract(BigInteger.ONE);
         final BigInteger two = BigInteger.TWO;
+        event.rejectStage = PrimalityTestEvent.STAGE_MILLER_RABIN;
 
         for (int i = 0; i < iterations; i++) {
+            PerfCounters.inc(Counter.MR_ROUNDS);
+            event.roundsRun = i + 1;
             // Wähle zufällige Basis a ∈ [2, n-2] gleichverteilt
             BigInteger a = randomInRange(two, nMinusOne, rnd);
 
@@ -77,6 +108,7 @@ public final class MillerRabin {
                 }
             }
             if (!passed) {
+                PerfCounters.inc(Counter.MR_REJECTS);
                 return false; // sicher zusammengesetzt
             }
         }
@@ -91,7 +123,7 @@ public final class MillerRabin {
         // Rejection Sampling: ziehe 0..range so lange, bis <= range
         BigInteger r;
         do {
-            r = new BigInteger(bitLength + 1, rnd);   // +1, um Bias bei 2^k-1 zu vermeiden
+            r = new BigInteger(bitLength, rnd);       // gleichverteilt in [0, 2^k), Annahme ≥ 50 %
         } while (r.compareTo(range) > 0);
         return lo.add(r);
     }
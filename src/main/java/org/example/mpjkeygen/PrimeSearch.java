@@ -7,11 +7,17 @@ import mpi.MPIException;
 import java.math.BigInteger;
 import java.security.SecureRandom;
 
+import org.example.PerfCounters;
+import org.example.PerfCounters.Counter;
+import org.example.TuningProfile;
+import org.example.jfr.CollectiveEvent;
+
 public final class PrimeSearch {
 
     /**
      * Sucht verteilte Primzahlen:
-     * - Jeder Prozess erzeugt 1 Kandidaten pro Runde (halbe Bitlänge von n).
+     * - Jeder Prozess prüft pro Runde bis zu candidatesPerRound Kandidaten (halbe Bitlänge von n),
+     *   wahlweise aus einem Siebfenster (CandidateSieve); Parameter aus TuningProfile.current().
      * - Prüft mit Miller-Rabin.
      * - Allgather sammelt alle Kandidaten (null, wenn nicht prime).
      * - Gewinner = erste nicht-null Position (niedrigstes Rank mit Fund).
@@ -19,35 +25,42 @@ public final class PrimeSearch {
     public static BigInteger findPrimeHalfSize(
             int totalBits, int iterations,
             Intracomm comm, SecureRandom rnd) throws MPIException {
+        return findPrimeHalfSize(totalBits, iterations, comm, rnd, TuningProfile.current().forKeyBits(totalBits));
+    }
+
+    public static BigInteger findPrimeHalfSize(
+            int totalBits, int iterations,
+            Intracomm comm, SecureRandom rnd, TuningProfile.Params tuning) throws MPIException {
 
         final int bits = totalBits / 2;
         final int size = comm.Size();
         final int rank = comm.Rank();
+        final CandidateSieve source = new CandidateSieve(bits, tuning.sieveWindow, tuning.trialPrimes, rnd);
 
         BigInteger winner = null;
 
         // Runden drehen, bis einer gefunden wurde
         while (winner == null) {
 
-            // 1) Kandidat erzeugen (richtige Bitlänge & ungerade)
-            BigInteger cand = new BigInteger(bits, rnd)
-                    .setBit(bits - 1)
-                    .setBit(0);
-
-            // 2) Primalitätstest
-            boolean ok = MillerRabin.isProbablePrimeMR(cand, iterations, rnd);
+            // 1)+2) Kandidaten erzeugen (richtige Bitlänge & ungerade) und prüfen
+            BigInteger found = searchRound(source, iterations, rnd, tuning.candidatesPerRound);
+            boolean ok = found != null;
             if (ok) {
-                System.out.println("[Rank " + comm.Rank() + "] hat eine Primzahl gefunden: "
-                        + cand.bitLength() + " Bit");
+                System.out.println("[Rank " + rank + "] hat eine Primzahl gefunden: "
+                        + found.bitLength() + " Bit");
             }
 
 
             // 3) Alle senden ihren (ggf. null-)Kandidaten
-            Object[] send = new Object[]{ ok ? cand : null };
+            Object[] send = new Object[]{ found };
             Object[] recv = new Object[size];
 
+            long w0 = PerfCounters.start();
+            CollectiveEvent jfr = CollectiveEvent.start();
             comm.Allgather(send, 0, 1, MPI.OBJECT,
                     recv, 0, 1, MPI.OBJECT);
+            PerfCounters.stop(Counter.COLLECTIVE_WAIT_NANOS, Counter.COLLECTIVE_CALLS, w0);
+            jfr.finish("Allgather Kandidaten", ok ? (bits + 7) / 8 : 0, comm);
 
             // 4) Gewinner deterministisch auswählen (erste nicht-null → kleinstes Rank)
             for (Object o : recv) {
@@ -61,4 +74,17 @@ public final class PrimeSearch {
 
         return winner; // identisch auf allen Ranks
     }
+
+    /**
+     * Lokaler Teil einer Runde: prüft bis zu maxCandidates Kandidaten aus source, erste wahrscheinliche
+     * Primzahl oder null. Bei aktivem Sieb entfällt die Probedivision im Miller–Rabin-Test.
+     */
+    public static BigInteger searchRound(CandidateSieve source, int iterations, SecureRandom rnd, int maxCandidates) {
+        int trialPrimes = (source.window() > 0) ? 0 : source.primes();
+        for (int i = 0; i < Math.max(1, maxCandidates); i++) {
+            BigInteger cand = source.next();
+            if (MillerRabin.isProbablePrimeMR(cand, iterations, rnd, trialPrimes)) return cand;
+        }
+        return null;
+    }
 }
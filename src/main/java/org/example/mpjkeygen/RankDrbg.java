@@ -0,0 +1,155 @@
+package org.example.mpjkeygen;
+
+import java.io.Serial;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.SecureRandomSpi;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Deterministischer Zufallsbitgenerator pro Rank für die Primzahlsuche: AES-256 im CTR-Modus über einen
+ * Puffer von BUFFER_BYTES, einmal geseedet.
+ *
+ * new SecureRandom() (unter Linux NativePRNG) synchronisiert jeden Aufruf und liest je nach Konfiguration aus
+ * /dev/urandom – das trifft jeden Kandidaten, jede Miller–Rabin-Basis und jede Wiederholung beim Rejection
+ * Sampling. Hier kopiert nextBytes nur aus dem Puffer; nachgefüllt wird blockweise (AES-NI), ohne Sperre.
+ *
+ * - Schlüssel = SHA-256(Seed || Rank): jeder Rank hat einen eigenen Strom, auch bei gleichem Seed.
+ * - Seed aus new SecureRandom() (einmal 32 Byte) oder fest über -seed=… (Main, MainKeyGen) → ein Lauf lässt sich
+ *   für Benchmarks exakt wiederholen (gleiche Rankzahl und Parameter vorausgesetzt).
+ * - Nach jedem Nachfüllen ersetzen die ersten 32 Byte des Puffers den Schlüssel (Fast Key Erasure); bereits
+ *   ausgegebene Bytes lassen sich aus dem aktuellen Zustand nicht zurückrechnen.
+ *
+ * Ist ein SecureRandom, damit CandidateSieve, PrimeSearch und beide MillerRabin-Klassen unverändert bleiben.
+ * Nicht threadsicher: ein Exemplar pro Rank bzw. Thread.
+ */
+public final class RankDrbg extends SecureRandom {
+    @Serial private static final long serialVersionUID = 1L;
+
+    public static final String ALGORITHM = "AES-256-CTR-DRBG";
+
+    /** Puffergröße; die ersten KEY_BYTES jeder Füllung werden zum nächsten Schlüssel. */
+    private static final int BUFFER_BYTES = 4096;
+    private static final int KEY_BYTES = 32;
+
+    private final transient Engine engine;
+    private final String description;
+
+    private RankDrbg(Engine engine, String description) {
+        super(engine, null);
+        this.engine = engine;
+        this.description = description;
+    }
+
+    /** Strom für rank; seed == null → einmalig aus new SecureRandom() geseedet, sonst reproduzierbar. */
+    public static RankDrbg forRank(int rank, String seed) {
+        byte[] material;
+        if (seed != null) {
+            material = seed.getBytes(StandardCharsets.UTF_8);
+        } else {
+            material = new byte[KEY_BYTES];
+            new SecureRandom().nextBytes(material);
+        }
+        MessageDigest sha = sha256();
+        sha.update(ALGORITHM.getBytes(StandardCharsets.US_ASCII));
+        sha.update((byte) 0);
+        sha.update(material);
+        sha.update(ByteBuffer.allocate(Integer.BYTES).putInt(rank).array());
+        return new RankDrbg(new Engine(sha.digest()), ALGORITHM + " (Rank " + rank + ", "
+                + (seed != null ? "Seed '" + seed + "'" : "Seed aus SecureRandom") + ")");
+    }
+
+    /** Ohne Sperre (SecureRandom.nextBytes synchronisiert bei nicht als threadsicher markierten Providern). */
+    @Override
+    public void nextBytes(byte[] bytes) {
+        engine.engineNextBytes(bytes);
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Zustand: Schlüssel, Cipher und Ausgabepuffer. */
+    private static final class Engine extends SecureRandomSpi {
+        @Serial private static final long serialVersionUID = 1L;
+
+        private final transient Cipher cipher;
+        private final byte[] zeros = new byte[BUFFER_BYTES];
+        private final byte[] buffer = new byte[BUFFER_BYTES];
+        private final byte[] iv = new byte[16];      // Zähler startet bei 0, jeder Schlüssel nur für eine Füllung
+        private byte[] key;
+        private int pos = BUFFER_BYTES;
+
+        Engine(byte[] key) {
+            this.key = key;
+            try {
+                this.cipher = Cipher.getInstance("AES/CTR/NoPadding");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("AES/CTR nicht verfügbar", e);
+            }
+        }
+
+        @Override
+        protected void engineNextBytes(byte[] bytes) {
+            int done = 0;
+            while (done < bytes.length) {
+                if (pos == BUFFER_BYTES) refill();
+                int n = Math.min(bytes.length - done, BUFFER_BYTES - pos);
+                System.arraycopy(buffer, pos, bytes, done, n);
+                Arrays.fill(buffer, pos, pos + n, (byte) 0);
+                pos += n;
+                done += n;
+            }
+        }
+
+        /** Mischt zusätzliche Bytes in den Schlüssel; der restliche Puffer wird verworfen. */
+        @Override
+        protected void engineSetSeed(byte[] seed) {
+            MessageDigest sha = sha256();
+            sha.update(key);
+            sha.update(seed);
+            key = sha.digest();
+            pos = BUFFER_BYTES;
+        }
+
+        @Override
+        protected byte[] engineGenerateSeed(int numBytes) {
+            byte[] out = new byte[numBytes];
+            engineNextBytes(out);
+            return out;
+        }
+
+        private void refill() {
+            try {
+                cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+                cipher.doFinal(zeros, 0, BUFFER_BYTES, buffer, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("AES/CTR fehlgeschlagen", e);
+            }
+            key = Arrays.copyOf(buffer, KEY_BYTES);
+            Arrays.fill(buffer, 0, KEY_BYTES, (byte) 0);
+            pos = KEY_BYTES;
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package org.example.mpjkeygen;
 
 import java.math.BigInteger;
+
+import org.example.PerfCounters;
+import org.example.jfr.ModExpEvent;
+
 /**
  * Lehr-Implementierung: Schnelle Exponentiation (Square-and-Multiply).
  * sonst BigInteger.modPow schneller und sicherer.
@@ -8,6 +12,14 @@ import java.math.BigInteger;
 public class schnelleExponentiation {
 
     public static BigInteger pow(BigInteger basis, BigInteger exponent, BigInteger modulus) {
+        PerfCounters.inc(PerfCounters.Counter.MODEXP_CALLS);
+        ModExpEvent event = ModExpEvent.start();
+        BigInteger result = compute(basis, exponent, modulus);
+        event.finish("mpjkeygen", exponent, modulus);
+        return result;
+    }
+
+    private static BigInteger compute(BigInteger basis, BigInteger exponent, BigInteger modulus) {
         if (modulus.equals(BigInteger.ONE)) return BigInteger.ZERO;
         if (exponent.equals(BigInteger.ZERO)) return BigInteger.ONE;
 
@@ -24,6 +36,48 @@ public class schnelleExponentiation {
         return result;
     }
 
+    /**
+     * Fenster-Variante (k-är, links nach rechts): Tabelle basis^0..basis^(2^k - 1), danach pro k Exponentenbits
+     * k Quadrierungen und höchstens eine Multiplikation → ca. bits/k statt bits/2 Multiplikationen.
+     * Fensterbreite typischerweise 3–6; die beste Breite hängt von Bitlänge und Rechner ab (siehe Autotuner).
+     */
+    public static BigInteger powWindow(BigInteger basis, BigInteger exponent, BigInteger modulus, int windowBits) {
+        PerfCounters.inc(PerfCounters.Counter.MODEXP_CALLS);
+        ModExpEvent event = ModExpEvent.start();
+        BigInteger result = computeWindow(basis, exponent, modulus, windowBits);
+        event.finish("window", exponent, modulus);
+        return result;
+    }
+
+    private static BigInteger computeWindow(BigInteger basis, BigInteger exponent, BigInteger modulus, int windowBits) {
+        if (modulus.equals(BigInteger.ONE)) return BigInteger.ZERO;
+        if (exponent.equals(BigInteger.ZERO)) return BigInteger.ONE;
+
+        int k = Math.max(1, Math.min(windowBits, 8));
+        BigInteger[] table = new BigInteger[1 << k];
+        table[0] = BigInteger.ONE;
+        table[1] = basis.mod(modulus);
+        for (int i = 2; i < table.length; i++) {
+            table[i] = table[i - 1].multiply(table[1]).mod(modulus);
+        }
+
+        // Exponent in k-Bit-Ziffern von oben nach unten; die oberste Ziffer ist ggf. kürzer
+        int bits = exponent.bitLength();
+        int top = ((bits - 1) / k) * k;
+        BigInteger result = BigInteger.ONE;
+        for (int pos = top; pos >= 0; pos -= k) {
+            if (pos != top) {
+                for (int i = 0; i < k; i++) result = result.multiply(result).mod(modulus);
+            }
+            int digit = 0;
+            for (int i = k - 1; i >= 0; i--) {
+                digit = (digit << 1) | (exponent.testBit(pos + i) ? 1 : 0);
+            }
+            if (digit != 0) result = result.multiply(table[digit]).mod(modulus);
+        }
+        return result;
+    }
+
     public static void main(String[] args) {
         BigInteger base = new BigInteger("123456789");
         BigInteger exp  = new BigInteger("987654321");
@@ -0,0 +1,234 @@
+package org.example.mpjserver;
+
+import mpi.Intracomm;
+import mpi.MPI;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.example.mpjbench.RSALibBenchmarkMPI;
+import org.example.mpjbench.ThroughputBenchmarkMPI;
+import org.example.mpjkeygen.BatchGcdAudit;
+import org.example.mpjkeygen.MainKeyGen;
+import org.example.rsa.RSAUtils;
+import org.example.rsa.mpj.mpjRSADecrypt;
+import org.example.rsa.mpj.mpjRSAEncrypt;
+
+/**
+ * Residenter Job-Server: die MPI-Welt bleibt über viele Jobs hinweg bestehen.
+ * MPI.Init, Daemon-Start, JIT-Warmup und das Laden der Schlüssel fallen nur einmal an.
+ *
+ * Jobs kommen über ein Spool-Verzeichnis (Standard "spool"), eine Datei *.job pro Job:
+ *   - erste Zeile: Typ (encrypt | decrypt | keygen | bench | throughput | audit | shutdown)
+ *   - jede weitere Zeile: ein Argument wie beim jeweiligen Treiber (Leerzeichen ohne Quoting möglich),
+ *     Zeilen mit # werden ignoriert
+ *
+ * Rank 0 übernimmt Jobs in Namensreihenfolge (atomares Umbenennen nach *.running), verteilt sie per Bcast,
+ * alle Ranks rechnen den Job, danach liegen in spool/out:
+ *   - name.log    : Konsolenausgabe von Rank 0 während des Jobs
+ *   - name.status : "OK <ms> ms" oder "ERR <Meldung>"
+ *   - name.job    : der abgearbeitete Auftrag
+ *
+ * Aufrufbeispiel (PowerShell):
+ *   mpjrun.bat -dev multicore -np 4 -cp ".;JAR;mpj.jar" org.example.mpjserver.MpjJobServer -spool=spool -poll=200
+ *   Set-Content spool\a.job "encrypt`nMöge die Macht mit dir sein!`nc1.txt"
+ *   Set-Content spool\zz.job "shutdown"
+ */
+public class MpjJobServer {
+
+    static {
+        try {
+            System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), true, StandardCharsets.UTF_8));
+            System.setErr(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.err)), true, StandardCharsets.UTF_8));
+        } catch (Exception ignored) {}
+    }
+
+    /** Treiber mit eigenem static-Block, der System.out neu setzt → vorab laden, sonst geht die Job-Ausgabe verloren. */
+    private static final Class<?>[] DRIVERS = {
+            mpjRSAEncrypt.class, mpjRSADecrypt.class, MainKeyGen.class, RSALibBenchmarkMPI.class, ThroughputBenchmarkMPI.class,
+            BatchGcdAudit.class
+    };
+
+    public static void main(String[] args) throws Exception {
+        MPI.Init(args);
+        Intracomm comm = MPI.COMM_WORLD;
+        int rank = comm.Rank();
+        int size = comm.Size();
+
+        Path spool = Path.of("spool");
+        long pollMs = 200;
+        for (String arg : args) {
+            if (arg.startsWith("-spool=")) {
+                spool = Path.of(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("-poll=")) {
+                pollMs = Long.parseLong(arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        Path outDir = spool.resolve("out");
+
+        for (Class<?> driver : DRIVERS) {
+            Class.forName(driver.getName(), true, MpjJobServer.class.getClassLoader());
+        }
+
+        if (rank == 0) {
+            Files.createDirectories(outDir);
+            try {
+                RSAUtils.loadKeysFromFiles();
+                System.out.println("[Server] Schlüssel geladen und zwischengespeichert.");
+            } catch (IOException ex) {
+                System.out.println("[Server] Noch keine Schlüsseldateien (" + ex.getMessage() + ") – erst keygen ausführen.");
+            }
+            System.out.println("[Server] Prozesse: " + size + " | Spool: " + spool.toAbsolutePath() + " | Poll: " + pollMs + " ms");
+        }
+
+        long jobs = 0;
+        while (true) {
+            // Rank 0 wartet auf den nächsten Auftrag, alle anderen warten im Bcast
+            Path claimed = null;
+            String[] job = null;
+            if (rank == 0) {
+                claimed = waitForJob(spool, pollMs);
+                job = readJob(claimed);
+            }
+            Object[] box = new Object[]{ job };
+            comm.Bcast(box, 0, 1, MPI.OBJECT, 0);
+            job = (String[]) box[0];
+
+            String type = job[0];
+            String[] jobArgs = Arrays.copyOfRange(job, 1, job.length);
+            String name = (rank == 0) ? jobName(claimed) : null;
+
+            if (type.equals("shutdown")) {
+                if (rank == 0) finish(claimed, outDir, name, "OK shutdown");
+                break;
+            }
+
+            long t0 = System.currentTimeMillis();
+            PrintStream console = System.out;
+            PrintStream log = null;
+            if (rank == 0) {
+                log = new PrintStream(Files.newOutputStream(outDir.resolve(name + ".log")), true, StandardCharsets.UTF_8);
+                System.setOut(log);
+            }
+
+            String error = null;
+            try {
+                execute(comm, type, jobArgs);
+            } catch (Exception ex) {
+                error = ex.toString();
+                ex.printStackTrace(rank == 0 ? log : System.err);
+            } finally {
+                if (rank == 0) {
+                    System.setOut(console);
+                    log.close();
+                }
+            }
+
+            // Fehler irgendeines Ranks zählt für den ganzen Job
+            int[] failed = new int[]{ error != null ? 1 : 0 };
+            int[] anyFailed = new int[1];
+            comm.Allreduce(failed, 0, anyFailed, 0, 1, MPI.INT, MPI.MAX);
+            jobs++;
+
+            if (rank == 0) {
+                long ms = System.currentTimeMillis() - t0;
+                String status = (anyFailed[0] == 0) ? "OK " + ms + " ms"
+                        : "ERR " + (error != null ? error : "Fehler auf einem anderen Rank");
+                finish(claimed, outDir, name, status);
+                System.out.println("[Server] Job " + jobs + " (" + name + ", " + type + "): " + status);
+            }
+        }
+
+        if (rank == 0) System.out.println("[Server] Beendet nach " + jobs + " Jobs.");
+        MPI.Finalize();
+    }
+
+    /**
+     * Führt einen Job auf allen Ranks aus. Ein Rank darf nur dann allein werfen, wenn kein Kollektiv mehr folgt –
+     * sonst warten die übrigen Ranks darin, und der Server hängt. Die Treiber gleichen deshalb alles, was nur
+     * Rank 0 vorbereitet (Schlüssel laden, Ein-/Ausgabe öffnen), per SetupStatus ab, bevor das erste
+     * Datenkollektiv läuft; Fehler nach dem letzten Kollektiv fängt das Allreduce in der Schleife auf.
+     */
+    private static void execute(Intracomm comm, String type, String[] args) throws Exception {
+        switch (type) {
+            case "encrypt":
+                mpjRSAEncrypt.run(comm, args);
+                break;
+            case "decrypt":
+                mpjRSADecrypt.run(comm, args);
+                break;
+            case "keygen":
+                MainKeyGen.run(comm, args);
+                if (comm.Rank() == 0) RSAUtils.reloadKeysFromFiles();  // Cache auf die neuen Schlüssel umstellen
+                break;
+            case "bench":
+                RSALibBenchmarkMPI.run(comm, args);
+                break;
+            case "throughput":
+                ThroughputBenchmarkMPI.run(comm, args);
+                break;
+            case "audit":
+                BatchGcdAudit.run(comm, args);
+                break;
+            default:
+                throw new IllegalArgumentException("Unbekannter Jobtyp: '" + type + "' (erlaubt: encrypt | decrypt | keygen | bench | throughput | audit | shutdown)");
+        }
+    }
+
+    /** Pollt das Spool-Verzeichnis und übernimmt den ersten *.job (Namensreihenfolge) per atomarem Umbenennen. */
+    private static Path waitForJob(Path spool, long pollMs) throws IOException, InterruptedException {
+        while (true) {
+            List<Path> jobs = new ArrayList<>();
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(spool, "*.job")) {
+                for (Path p : ds) jobs.add(p);
+            }
+            jobs.sort(null);
+            for (Path job : jobs) {
+                Path running = job.resolveSibling(job.getFileName() + ".running");
+                try {
+                    Files.move(job, running, StandardCopyOption.ATOMIC_MOVE);
+                    return running;
+                } catch (IOException ignored) {
+                    // noch nicht fertig geschrieben oder schon weg → nächster Versuch
+                }
+            }
+            Thread.sleep(pollMs);
+        }
+    }
+
+    /** Erste Zeile = Typ, weitere Zeilen = Argumente; leere Datei ergibt einen ungültigen Typ. */
+    private static String[] readJob(Path file) throws IOException {
+        List<String> parts = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.startsWith("#")) continue;
+            if (parts.isEmpty()) {
+                if (line.isBlank()) continue;
+                line = line.trim().toLowerCase();
+            }
+            parts.add(line);
+        }
+        if (parts.isEmpty()) parts.add("");
+        return parts.toArray(new String[0]);
+    }
+
+    private static String jobName(Path running) {
+        String f = running.getFileName().toString();
+        return f.substring(0, f.length() - ".job.running".length());
+    }
+
+    private static void finish(Path running, Path outDir, String name, String status) throws IOException {
+        Files.writeString(outDir.resolve(name + ".status"), status + System.lineSeparator(), StandardCharsets.UTF_8);
+        Files.move(running, outDir.resolve(name + ".job"), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
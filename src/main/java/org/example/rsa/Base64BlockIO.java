@@ -0,0 +1,136 @@
+package org.example.rsa;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Streaming-Ein-/Ausgabe für Base64-Chiffrate (gleiches Format wie blocksToBase64String).
+ *
+ * - Writer: Blöcke fester Länge → Base64.getEncoder().wrap(...) → Channel
+ * - Reader: Channel → Base64.getMimeDecoder().wrap(...) → Blöcke fester Länge
+ *
+ * Es wird immer nur ein Batch im Speicher gehalten; der Heap-Bedarf hängt damit von der
+ * Batchgröße ab, nicht von der Länge des Chiffrats.
+ */
+public final class Base64BlockIO {
+
+    private static final int IO_BUFFER = 64 * 1024;
+
+    private Base64BlockIO() {}
+
+    // ---------------- Schreiben ----------------
+
+    public static final class Writer implements Closeable {
+        private final OutputStream out;
+        private final int blockLength;
+        private long blocksWritten = 0;
+
+        public Writer(WritableByteChannel channel, int blockLength) {
+            this.blockLength = blockLength;
+            this.out = Base64.getEncoder().wrap(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), IO_BUFFER));
+        }
+
+        /** Öffnet (bzw. überschreibt) eine Chiffrat-Datei. */
+        public static Writer open(Path file, int blockLength) throws IOException {
+            return new Writer(FileChannel.open(file,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE), blockLength);
+        }
+
+        public int blockLength()     { return blockLength; }
+        public long blocksWritten()  { return blocksWritten; }
+
+        /** Schreibt einen Batch gepackter Blöcke (Breite muss blockLength sein). */
+        public void writeBlocks(BlockArray blocks) throws IOException {
+            if (blocks.width() != blockLength) {
+                throw new IllegalArgumentException("Blockbreite " + blocks.width() + " != " + blockLength);
+            }
+            writeBlockBytes(blocks.array(), blocks.offset(), blocks.size());
+        }
+
+        /** Schreibt blockCount bereits fest formatierte Blöcke ab src[off]. */
+        public void writeBlockBytes(byte[] src, int off, int blockCount) throws IOException {
+            out.write(src, off, blockCount * blockLength);
+            blocksWritten += blockCount;
+        }
+
+        /** Schließt den Base64-Strom (schreibt ggf. das '='-Padding) und den Channel. */
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    // ---------------- Lesen ----------------
+
+    public static final class Reader implements Closeable {
+        private final InputStream in;
+        private final int blockLength;
+        private long blocksRead = 0;
+
+        public Reader(ReadableByteChannel channel, int blockLength) {
+            this(Channels.newInputStream(channel), blockLength);
+        }
+
+        private Reader(InputStream raw, int blockLength) {
+            this.blockLength = blockLength;
+            // MIME-Decoder ignoriert Zeilenumbrüche/Whitespace (z. B. abschließendes '\n' in cipher.txt)
+            this.in = Base64.getMimeDecoder().wrap(new BufferedInputStream(raw, IO_BUFFER));
+        }
+
+        public static Reader open(Path file, int blockLength) throws IOException {
+            return new Reader(FileChannel.open(file, StandardOpenOption.READ), blockLength);
+        }
+
+        /** Liest Base64 aus einem bereits vorliegenden String (z. B. Kommandozeilenargument). */
+        public static Reader ofString(String base64, int blockLength) {
+            return new Reader(new ByteArrayInputStream(base64.getBytes(StandardCharsets.US_ASCII)), blockLength);
+        }
+
+        public int blockLength()  { return blockLength; }
+        public long blocksRead()  { return blocksRead; }
+
+        /**
+         * Liest bis zu maxBlocks Blöcke als Rohbytes nach dst[0 ..).
+         * Ein unvollständiger letzter Block wird mit Nullen aufgefüllt (wie base64StringToBlocks).
+         * @return Anzahl gelesener Blöcke, 0 am Ende des Stroms
+         */
+        public int readBlockBytes(byte[] dst, int maxBlocks) throws IOException {
+            int want = maxBlocks * blockLength;
+            int got = in.readNBytes(dst, 0, want);
+            if (got == 0) return 0;
+            int blocks = BlockCodec.blockCount(got, blockLength);
+            Arrays.fill(dst, got, blocks * blockLength, (byte) 0);
+            blocksRead += blocks;
+            return blocks;
+        }
+
+        /** Liest bis zu maxBlocks Blöcke gepackt; leeres BlockArray am Ende des Stroms. */
+        public BlockArray readBatch(int maxBlocks) throws IOException {
+            BlockArray batch = BlockArray.allocate(maxBlocks, blockLength);
+            int count = readBlockBytes(batch.array(), maxBlocks);
+            return (count == maxBlocks) ? batch : batch.slice(0, count);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.rsa;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Blöcke fester Breite (width Byte, Big-Endian, rechtsbündig wie BlockCodec.writeBlock) in einem einzigen byte[].
+ *
+ * Gegenüber BigInteger[] / List&lt;BigInteger&gt; entfallen pro Block das BigInteger-Objekt samt int[] und der Zeiger
+ * darauf; ein Batch ist ein zusammenhängender Puffer. BigInteger-Werte entstehen nur kurzlebig während der
+ * Exponentiation (get/set bzw. BlockExecutor.map) und sterben damit jung.
+ *
+ * Das Layout ist dasselbe wie auf der Leitung (MPI.BYTE in BlockScatter/PipelinedStream), in Base64-Chiffraten und in
+ * BlockContainer-Records: array()/offset()/byteLength() lassen sich ohne Umkodierung senden, schreiben oder hashen.
+ * slice liefert Sichten auf denselben Puffer. Nicht threadsicher, außer bei disjunkten Blockindizes.
+ */
+public final class BlockArray {
+
+    private final byte[] data;
+    private final int offset;
+    private final int size;
+    private final int width;
+
+    private BlockArray(byte[] data, int offset, int size, int width) {
+        if (width <= 0 || size < 0 || offset < 0 || (long) offset + (long) size * width > data.length) {
+            throw new IllegalArgumentException("Ungültiger Blockbereich: offset=" + offset + ", size=" + size
+                    + ", width=" + width + ", Puffer=" + data.length);
+        }
+        this.data = data;
+        this.offset = offset;
+        this.size = size;
+        this.width = width;
+    }
+
+    /** size Blöcke der Breite width, mit Nullen initialisiert. */
+    public static BlockArray allocate(int size, int width) {
+        return new BlockArray(new byte[Math.multiplyExact(size, width)], 0, size, width);
+    }
+
+    /** Sicht auf size Blöcke ab data[offset] (ohne Kopie). */
+    public static BlockArray wrap(byte[] data, int offset, int size, int width) {
+        return new BlockArray(data, offset, size, width);
+    }
+
+    /** Zerlegt data in Blöcke der Breite width (Kopie); ein unvollständiger letzter Block wird mit Nullen aufgefüllt. */
+    public static BlockArray split(byte[] data, int width) {
+        int count = BlockCodec.blockCount(data.length, width);
+        return new BlockArray(Arrays.copyOf(data, count * width), 0, count, width);
+    }
+
+    /** Packt vorhandene BigInteger-Blöcke (z. B. aus älteren Schnittstellen). */
+    public static BlockArray of(List<BigInteger> blocks, int width) {
+        BlockArray a = allocate(blocks.size(), width);
+        for (int i = 0; i < blocks.size(); i++) a.set(i, blocks.get(i));
+        return a;
+    }
+
+    public int size()        { return size; }
+    public int width()       { return width; }
+    public byte[] array()    { return data; }
+    public int offset()      { return offset; }
+    public int byteLength()  { return size * width; }
+
+    /** Byte-Offset von Block i in array(). */
+    public int offsetOf(int i) {
+        return offset + Objects.checkIndex(i, size) * width;
+    }
+
+    /** Block i als (neue) nichtnegative BigInteger. */
+    public BigInteger get(int i) {
+        return new BigInteger(1, data, offsetOf(i), width);
+    }
+
+    /** Schreibt value als Block i (links mit Nullen aufgefüllt bzw. links gekürzt, siehe BlockCodec.writeBlock). */
+    public void set(int i, BigInteger value) {
+        BlockCodec.writeBlock(value, data, offsetOf(i), width);
+    }
+
+    /** Sicht auf die Blöcke [from, to) desselben Puffers. */
+    public BlockArray slice(int from, int to) {
+        Objects.checkFromToIndex(from, to, size);
+        return new BlockArray(data, offset + from * width, to - from, width);
+    }
+
+    /** Kopie der Bytes aller Blöcke. */
+    public byte[] toByteArray() {
+        return Arrays.copyOfRange(data, offset, offset + byteLength());
+    }
+
+    /** Alle Blöcke als BigInteger-Liste (für ältere Schnittstellen). */
+    public List<BigInteger> toList() {
+        List<BigInteger> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) list.add(get(i));
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockArray(" + size + " × " + width + " Byte)";
+    }
+}
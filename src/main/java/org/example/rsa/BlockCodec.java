@@ -0,0 +1,139 @@
+package org.example.rsa;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Block-Codec für die Umwandlung Bytes ↔ RSA-Blöcke.
+ *
+ * - Blockgrößen werden exakt aus n.bitLength() berechnet (keine Logarithmen):
+ *     Klartextblock  k   = (bitLength - 1) / 8   → größtes k mit 256^k <= n
+ *     Chiffratblock  k+1 = ceil(bitLength / 8)   → jeder Wert < n passt hinein
+ * - Instanzen werden pro Modulus gecacht (forModulus).
+ * - Blöcke werden direkt aus dem Quellpuffer gelesen (kein zeroPadData, kein copyOfRange);
+ *   nur der letzte, unvollständige Block läuft über einen kleinen Scratch-Puffer.
+ * - Ergebnisse werden an festen Offsets in einen vorab allokierten Ausgabepuffer geschrieben.
+ *
+ * Instanzen sind unveränderlich und threadsafe.
+ */
+public final class BlockCodec {
+
+    private static final ConcurrentHashMap<BigInteger, BlockCodec> CACHE = new ConcurrentHashMap<>();
+
+    private final BigInteger modulus;
+    private final int plainBlockSize;
+    private final int cipherBlockSize;
+
+    private BlockCodec(BigInteger modulus) {
+        if (modulus.signum() <= 0 || modulus.bitLength() < 9) {
+            throw new IllegalArgumentException("Modulus zu klein für Byte-Blöcke: " + modulus.bitLength() + " Bit");
+        }
+        this.modulus = modulus;
+        this.plainBlockSize = plainBlockSize(modulus.bitLength());
+        this.cipherBlockSize = cipherBlockSize(modulus.bitLength());
+    }
+
+    /** Liefert den (gecachten) Codec für den Modulus n. */
+    public static BlockCodec forModulus(BigInteger modulus) {
+        return CACHE.computeIfAbsent(modulus, BlockCodec::new);
+    }
+
+    /** Klartext-Blockgröße in Byte: größtes k mit 256^k <= n. */
+    public static int plainBlockSize(int bitLength) {
+        return (bitLength - 1) / 8;
+    }
+
+    /** Chiffrat-Blockgröße in Byte: Klartext-Blockgröße + 1 = ceil(bitLength / 8). */
+    public static int cipherBlockSize(int bitLength) {
+        return plainBlockSize(bitLength) + 1;
+    }
+
+    public BigInteger modulus()      { return modulus; }
+    public int plainBlockSize()      { return plainBlockSize; }
+    public int cipherBlockSize()     { return cipherBlockSize; }
+
+    /** Anzahl der Blöcke für dataLength Bytes bei gegebener Blockgröße (letzter Block wird mit Nullen aufgefüllt). */
+    public static int blockCount(int dataLength, int blockSize) {
+        return (dataLength + blockSize - 1) / blockSize;
+    }
+
+    // ---------------- Lesen: Bytes → Blöcke ----------------
+
+    /** Zerlegt Klartext-Bytes in Blöcke der Klartext-Blockgröße. */
+    public List<BigInteger> encodePlain(byte[] data) {
+        return readBlocks(ByteBuffer.wrap(data), plainBlockSize, Integer.MAX_VALUE);
+    }
+
+    /** Zerlegt Chiffrat-Bytes in Blöcke der Chiffrat-Blockgröße. */
+    public List<BigInteger> decodeCipher(byte[] data) {
+        return readBlocks(ByteBuffer.wrap(data), cipherBlockSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Liest bis zu maxBlocks Blöcke der Größe blockSize ab src.position().
+     * Die Position von src wird hinter die gelesenen Bytes gesetzt.
+     * Ein unvollständiger Rest am Ende wird rechts mit Nullen aufgefüllt (wie zeroPadData).
+     */
+    public static List<BigInteger> readBlocks(ByteBuffer src, int blockSize, int maxBlocks) {
+        int count = Math.min(maxBlocks, blockCount(src.remaining(), blockSize));
+        List<BigInteger> blocks = new ArrayList<>(count);
+        byte[] scratch = src.hasArray() ? null : new byte[blockSize];
+        for (int i = 0; i < count; i++) {
+            blocks.add(readBlock(src, blockSize, scratch));
+        }
+        return blocks;
+    }
+
+    /**
+     * Liest genau einen Block. Bei Heap-Puffern wird direkt aus dem Backing-Array gelesen;
+     * sonst (bzw. beim letzten, kurzen Block) über scratch (darf null sein).
+     */
+    public static BigInteger readBlock(ByteBuffer src, int blockSize, byte[] scratch) {
+        int avail = Math.min(blockSize, src.remaining());
+        if (avail == blockSize && src.hasArray()) {
+            int off = src.arrayOffset() + src.position();
+            src.position(src.position() + blockSize);
+            return new BigInteger(1, src.array(), off, blockSize);
+        }
+        if (scratch == null || scratch.length < blockSize) scratch = new byte[blockSize];
+        src.get(scratch, 0, avail);
+        if (avail < blockSize) {
+            Arrays.fill(scratch, avail, blockSize, (byte) 0);
+        }
+        // BigInteger kopiert den Betrag → scratch ist danach wiederverwendbar
+        return new BigInteger(1, scratch, 0, blockSize);
+    }
+
+    // ---------------- Schreiben: Blöcke → Bytes ----------------
+
+    /** Fügt Blöcke zu einem Bytearray fester Blocklänge zusammen (vorab allokiert, keine Zwischenpuffer). */
+    public static byte[] joinBlocks(List<BigInteger> blocks, int blockLength) {
+        byte[] out = new byte[blocks.size() * blockLength];
+        for (int i = 0; i < blocks.size(); i++) {
+            writeBlock(blocks.get(i), out, i * blockLength, blockLength);
+        }
+        return out;
+    }
+
+    /**
+     * Schreibt block rechtsbündig (Big-Endian) nach out[off .. off+blockLength).
+     * Längere Werte werden links gekürzt (wie bisher in bigIntegerBlocksToBytes),
+     * kürzere links mit Nullen aufgefüllt.
+     */
+    public static void writeBlock(BigInteger block, byte[] out, int off, int blockLength) {
+        // BigInteger bietet keinen Export in fremde Puffer → genau eine Allokation (toByteArray) pro Block
+        byte[] raw = block.toByteArray();
+        int len = raw.length;
+        if (len >= blockLength) {
+            System.arraycopy(raw, len - blockLength, out, off, blockLength);
+        } else {
+            int lead = blockLength - len;
+            Arrays.fill(out, off, off + lead, (byte) 0);
+            System.arraycopy(raw, 0, out, off + lead, len);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package org.example.rsa;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Binärer, indizierter Chiffrat-Container mit wahlfreiem Zugriff.
+ *
+ * Layout (Big-Endian):
+ *   Header (HEADER_BYTES):
+ *     "MPJB" | version (short) | headerBytes (short) | keyFingerprint (8 Byte, SHA-256(n) gekürzt)
+ *     | cipherBlockSize (int) | plainBlockSize (int) | blockCount (long) | originalLength (long)
+ *   Records: blockCount × cipherBlockSize Byte, fester Abstand → Block i liegt bei HEADER_BYTES + i * cipherBlockSize
+ *
+ * - Lesen eines Blockbereichs [from, to) mappt nur genau diesen Dateiausschnitt → Aufwand proportional zum Bereich.
+ * - Mehrere Worker (Threads oder MPI-Ranks) können disjunkte Bereiche unabhängig voneinander entschlüsseln.
+ * - originalLength erlaubt das exakte Abschneiden der Null-Auffüllung (kein trim() nötig).
+ */
+public final class BlockContainer {
+
+    private static final byte[] MAGIC = {'M', 'P', 'J', 'B'};
+    private static final short VERSION = 1;
+    public static final int HEADER_BYTES = 40;
+
+    /** Blöcke pro Lese-/Schreibbatch beim Ver-/Entschlüsseln ganzer Dateien. */
+    private static final int BATCH_BLOCKS = Integer.getInteger("rsa.batchBlocks", 4096);
+
+    private BlockContainer() {}
+
+    /** Erste 8 Byte von SHA-256 über den Modulus (Big-Endian, ohne Vorzeichenbyte) als Schlüsselkennung. */
+    public static long keyFingerprint(BigInteger modulus) {
+        byte[] raw = new byte[BlockCodec.cipherBlockSize(modulus.bitLength())];
+        BlockCodec.writeBlock(modulus, raw, 0, raw.length);
+        try {
+            byte[] h = MessageDigest.getInstance("SHA-256").digest(raw);
+            return ByteBuffer.wrap(h, 0, 8).getLong();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 nicht verfügbar", ex);
+        }
+    }
+
+    /** Prüft die ersten Bytes einer Datei auf die Container-Kennung. */
+    public static boolean isContainer(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    // ---------------- Schreiben ----------------
+
+    public static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final long fingerprint;
+        private final int cipherBlockSize;
+        private final int plainBlockSize;
+        private long blockCount = 0;
+        private long originalLength = 0;
+
+        private Writer(FileChannel channel, BigInteger modulus) throws IOException {
+            BlockCodec codec = BlockCodec.forModulus(modulus);
+            this.channel = channel;
+            this.fingerprint = keyFingerprint(modulus);
+            this.cipherBlockSize = codec.cipherBlockSize();
+            this.plainBlockSize = codec.plainBlockSize();
+            writeHeader(); // Platzhalter, wird in close() mit den endgültigen Zählern überschrieben
+            channel.position(HEADER_BYTES);
+        }
+
+        public static Writer open(Path file, BigInteger modulus) throws IOException {
+            return new Writer(FileChannel.open(file,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE), modulus);
+        }
+
+        public int cipherBlockSize() { return cipherBlockSize; }
+        public int plainBlockSize()  { return plainBlockSize; }
+
+        /** Schreibt Chiffratblöcke ans Ende; plainBytes = Anzahl der Klartextbytes, die sie repräsentieren. */
+        public void writeBlocks(BlockArray blocks, long plainBytes) throws IOException {
+            if (blocks.width() != cipherBlockSize) {
+                throw new IllegalArgumentException("Blockbreite " + blocks.width() + " != " + cipherBlockSize);
+            }
+            writeBlockBytes(blocks.array(), blocks.offset(), blocks.size(), plainBytes);
+        }
+
+        /** Schreibt count fest formatierte Chiffratblöcke ab src[off]. */
+        public void writeBlockBytes(byte[] src, int off, int count, long plainBytes) throws IOException {
+            ByteBuffer buf = ByteBuffer.wrap(src, off, count * cipherBlockSize);
+            while (buf.hasRemaining()) channel.write(buf);
+            blockCount += count;
+            originalLength += plainBytes;
+        }
+
+        private void writeHeader() throws IOException {
+            ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES);
+            h.put(MAGIC).putShort(VERSION).putShort((short) HEADER_BYTES).putLong(fingerprint)
+                    .putInt(cipherBlockSize).putInt(plainBlockSize).putLong(blockCount).putLong(originalLength);
+            h.flip();
+            long pos = 0;
+            while (h.hasRemaining()) pos += channel.write(h, pos);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writeHeader();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // ---------------- Lesen ----------------
+
+    public static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final long fingerprint;
+        private final int cipherBlockSize;
+        private final int plainBlockSize;
+        private final long blockCount;
+        private final long originalLength;
+
+        private Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES);
+            while (h.hasRemaining() && channel.read(h, h.position()) > 0) { /* weiterlesen */ }
+            if (h.hasRemaining()) throw new IOException("Container zu kurz für den Header.");
+            h.flip();
+            byte[] magic = new byte[MAGIC.length];
+            h.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) throw new IOException("Kein Block-Container (Magic fehlt).");
+            short version = h.getShort();
+            if (version != VERSION) throw new IOException("Nicht unterstützte Containerversion: " + version);
+            short headerBytes = h.getShort();
+            if (headerBytes != HEADER_BYTES) throw new IOException("Unerwartete Headerlänge: " + headerBytes);
+            this.fingerprint = h.getLong();
+            this.cipherBlockSize = h.getInt();
+            this.plainBlockSize = h.getInt();
+            this.blockCount = h.getLong();
+            this.originalLength = h.getLong();
+            long expected = HEADER_BYTES + blockCount * (long) cipherBlockSize;
+            if (cipherBlockSize <= 0 || plainBlockSize <= 0 || channel.size() < expected) {
+                throw new IOException("Container beschädigt oder unvollständig (erwartet " + expected
+                        + " Byte, vorhanden " + channel.size() + ").");
+            }
+        }
+
+        public static Reader open(Path file) throws IOException {
+            return new Reader(FileChannel.open(file, StandardOpenOption.READ));
+        }
+
+        public long fingerprint()     { return fingerprint; }
+        public int cipherBlockSize()  { return cipherBlockSize; }
+        public int plainBlockSize()   { return plainBlockSize; }
+        public long blockCount()      { return blockCount; }
+        public long originalLength()  { return originalLength; }
+
+        /** Wirft, falls der Container nicht mit diesem Modulus erzeugt wurde. */
+        public void checkKey(BigInteger modulus) {
+            if (keyFingerprint(modulus) != fingerprint
+                    || BlockCodec.cipherBlockSize(modulus.bitLength()) != cipherBlockSize) {
+                throw new IllegalArgumentException(String.format(
+                        "Schlüssel passt nicht zum Container (Fingerprint %016x erwartet).", fingerprint));
+            }
+        }
+
+        /**
+         * Mappt die Records [from, to) schreibgeschützt in den Speicher (nur diesen Ausschnitt).
+         * Ein Bereich darf höchstens Integer.MAX_VALUE Byte groß sein.
+         */
+        public MappedByteBuffer map(long from, long to) throws IOException {
+            checkRange(from, to);
+            long bytes = (to - from) * cipherBlockSize;
+            if (bytes > Integer.MAX_VALUE) throw new IllegalArgumentException("Bereich zu groß für ein Mapping: " + bytes + " Byte");
+            return channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + from * cipherBlockSize, bytes);
+        }
+
+        /** Liest die Chiffratblöcke [from, to) (eine Kopie des gemappten Ausschnitts). */
+        public BlockArray readBlocks(long from, long to) throws IOException {
+            MappedByteBuffer region = map(from, to);
+            BlockArray blocks = BlockArray.allocate((int) (to - from), cipherBlockSize);
+            region.get(blocks.array(), 0, blocks.byteLength());
+            return blocks;
+        }
+
+        /**
+         * Entschlüsselt die Blöcke [from, to) (parallel über executor) und liefert die Klartextbytes.
+         * Enthält der Bereich den letzten Block, wird auf originalLength gekürzt.
+         */
+        public byte[] decryptRange(long from, long to, BigInteger d, BigInteger n, BlockExecutor executor) throws IOException {
+            checkKey(n);
+            byte[] out = executor.pow(readBlocks(from, to), d, n, plainBlockSize).array();
+            long startByte = from * plainBlockSize;
+            long usable = Math.max(0, Math.min(out.length, originalLength - startByte));
+            return (usable == out.length) ? out : Arrays.copyOf(out, (int) usable);
+        }
+
+        private void checkRange(long from, long to) {
+            if (from < 0 || to > blockCount || from > to) {
+                throw new IndexOutOfBoundsException("Blockbereich [" + from + ", " + to + ") außerhalb von [0, " + blockCount + ")");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // ---------------- Ganze Dateien ----------------
+
+    /** Verschlüsselt in → Container-Datei, batchweise (Heap-Bedarf unabhängig von der Eingabegröße). */
+    public static void encryptFile(Path in, Path out, BigInteger e, BigInteger n, BlockExecutor executor) throws IOException {
+        BlockCodec codec = BlockCodec.forModulus(n);
+        int batchBytes = BATCH_BLOCKS * codec.plainBlockSize();
+        try (InputStream src = new BufferedInputStream(Files.newInputStream(in), 1 << 16);
+             Writer w = Writer.open(out, n)) {
+            byte[] buf;
+            while ((buf = src.readNBytes(batchBytes)).length > 0) {
+                w.writeBlocks(executor.pow(BlockArray.split(buf, codec.plainBlockSize()), e, n, codec.cipherBlockSize()), buf.length);
+            }
+        }
+    }
+
+    /** Entschlüsselt die Blöcke [from, to) einer Container-Datei nach out. */
+    public static void decryptFile(Path in, Path out, long from, long to,
+                                   BigInteger d, BigInteger n, BlockExecutor executor) throws IOException {
+        try (Reader r = Reader.open(in);
+             OutputStream dst = new BufferedOutputStream(Files.newOutputStream(out), 1 << 16)) {
+            r.checkKey(n);
+            long end = Math.min(to, r.blockCount());
+            for (long b = from; b < end; b += BATCH_BLOCKS) {
+                dst.write(r.decryptRange(b, Math.min(end, b + BATCH_BLOCKS), d, n, executor));
+            }
+        }
+    }
+
+    // ---------------- CLI ----------------
+
+    /**
+     * Aufruf:
+     *   BlockContainer encrypt <eingabe> <container>
+     *   BlockContainer decrypt <container> <ausgabe> [vonBlock bisBlock]
+     *   BlockContainer info    <container>
+     * Verschlüsselt wird an Bob (Bobs e/n), entschlüsselt mit Bobs d.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Aufruf: BlockContainer encrypt|decrypt|info <eingabe> [ausgabe] [vonBlock bisBlock]");
+            return;
+        }
+        if ("info".equalsIgnoreCase(args[0])) {
+            try (Reader r = Reader.open(Path.of(args[1]))) {
+                System.out.printf("Fingerprint: %016x | Blockgröße: %d/%d Byte | Blöcke: %d | Länge: %d Byte%n",
+                        r.fingerprint(), r.plainBlockSize(), r.cipherBlockSize(), r.blockCount(), r.originalLength());
+            }
+            return;
+        }
+
+        RSAUtils.loadKeysFromFiles();
+        BigInteger n = RSAUtils.getBobModulus();
+        BlockExecutor executor = BlockExecutor.shared();
+        long t0 = System.nanoTime();
+        if ("encrypt".equalsIgnoreCase(args[0])) {
+            encryptFile(Path.of(args[1]), Path.of(args[2]), RSAUtils.getBobPublicKey(), n, executor);
+        } else if ("decrypt".equalsIgnoreCase(args[0])) {
+            long from = args.length > 4 ? Long.parseLong(args[3]) : 0;
+            long to = args.length > 4 ? Long.parseLong(args[4]) : Long.MAX_VALUE;
+            decryptFile(Path.of(args[1]), Path.of(args[2]), from, to, RSAUtils.getBobPrivateKey(), n, executor);
+        } else {
+            System.err.println("Unbekannter Modus: " + args[0]);
+            return;
+        }
+        System.out.println("[Container] " + args[0] + " fertig in " + (System.nanoTime() - t0) / 1_000_000 + " ms.");
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.rsa;
+
+import java.io.Serial;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Verteilt blockweise Berechnungen (z. B. Exponentiation) innerhalb einer JVM auf mehrere Kerne.
+ *
+ * - Fork/Join über Indexbereiche; jedes Ergebnis landet an seinem Eingabeindex → Reihenfolge bleibt deterministisch.
+ * - Unterhalb von sequentialCutoff Blöcken wird im aufrufenden Thread gerechnet (kein Aufteilungs-Overhead bei kurzen Texten).
+ * - parallelism = 1 → rein sequentiell, es wird kein Pool angelegt.
+ * - Eigene Instanzen besitzen einen ForkJoinPool und werden mit close() (try-with-resources) freigegeben;
+ *   shared() lebt so lange wie der Prozess, close() ist dort wirkungslos.
+ *
+ * Standardwerte über -Drsa.parallelism=... und -Drsa.sequentialCutoff=... änderbar.
+ */
+public final class BlockExecutor implements AutoCloseable {
+
+    public static final int DEFAULT_PARALLELISM =
+            Integer.getInteger("rsa.parallelism", Runtime.getRuntime().availableProcessors());
+    public static final int DEFAULT_SEQUENTIAL_CUTOFF = Integer.getInteger("rsa.sequentialCutoff", 4);
+
+    private static volatile BlockExecutor shared;
+
+    private final int parallelism;
+    private final int sequentialCutoff;
+    private final ForkJoinPool pool;
+
+    public BlockExecutor(int parallelism, int sequentialCutoff) {
+        this.parallelism = Math.max(1, parallelism);
+        this.sequentialCutoff = Math.max(1, sequentialCutoff);
+        this.pool = (this.parallelism > 1) ? new ForkJoinPool(this.parallelism) : null;
+    }
+
+    /** Prozessweit geteilte Instanz mit den Standardwerten. */
+    public static BlockExecutor shared() {
+        BlockExecutor s = shared;
+        if (s == null) {
+            synchronized (BlockExecutor.class) {
+                s = shared;
+                if (s == null) shared = s = new BlockExecutor(DEFAULT_PARALLELISM, DEFAULT_SEQUENTIAL_CUTOFF);
+            }
+        }
+        return s;
+    }
+
+    public int parallelism()      { return parallelism; }
+    public int sequentialCutoff() { return sequentialCutoff; }
+
+    /**
+     * x → x^exp mod n: geblendetes CRT für registrierte private Schlüssel (CrtKeyContext),
+     * F4Kernel für e = 65537 (Verschlüsseln, Signaturprüfung), sonst ModExpEngine.active().
+     */
+    public static UnaryOperator<BigInteger> kernel(BigInteger exp, BigInteger n) {
+        CrtKeyContext crt = CrtKeyContext.lookup(exp, n);
+        if (crt != null) return crt::decrypt;
+        F4Kernel f4 = F4Kernel.forExponent(exp, n);
+        if (f4 != null) return f4::pow;
+        ModExpEngine engine = ModExpEngine.active();
+        return x -> engine.pow(x, exp, n);
+    }
+
+    /** Berechnet block^exponent mod modulus für alle Blöcke (Reihenfolge wie Eingabe), siehe kernel. */
+    public BigInteger[] pow(List<BigInteger> blocks, BigInteger exponent, BigInteger modulus) {
+        return map(blocks, kernel(exponent, modulus));
+    }
+
+    /** Berechnet block^exponent mod modulus für alle Blöcke; Ergebnisse mit Breite outWidth (siehe kernel). */
+    public BlockArray pow(BlockArray blocks, BigInteger exponent, BigInteger modulus, int outWidth) {
+        BlockArray out = BlockArray.allocate(blocks.size(), outWidth);
+        map(blocks, out, kernel(exponent, modulus));
+        return out;
+    }
+
+    /** out[i] = op(in[i]) direkt zwischen gepackten Blöcken, ohne BigInteger[] für den ganzen Batch. */
+    public void map(BlockArray in, BlockArray out, UnaryOperator<BigInteger> op) {
+        if (in.size() != out.size()) throw new IllegalArgumentException("Blockanzahl ungleich: " + in + " → " + out);
+        forEach(0, in.size(), i -> out.set(i, op.apply(in.get(i))));
+    }
+
+    /** Wendet op auf alle Blöcke an; out[i] = op(in[i]). */
+    public BigInteger[] map(List<BigInteger> blocks, UnaryOperator<BigInteger> op) {
+        BigInteger[] in = blocks.toArray(new BigInteger[0]);
+        BigInteger[] out = new BigInteger[in.length];
+        map(in, out, 0, in.length, op);
+        return out;
+    }
+
+    /** Wendet op auf in[from..to) an und schreibt nach out[from..to). */
+    public void map(BigInteger[] in, BigInteger[] out, int from, int to, UnaryOperator<BigInteger> op) {
+        forEach(from, to, i -> out[i] = op.apply(in[i]));
+    }
+
+    /** Wie map, aber in-place auf einem Array. */
+    public void mapInPlace(BigInteger[] blocks, UnaryOperator<BigInteger> op) {
+        map(blocks, blocks, 0, blocks.length, op);
+    }
+
+    /** Führt body(i) für alle i in [from, to) aus; jeder Index genau einmal, Indizes disjunkt auf die Threads verteilt. */
+    public void forEach(int from, int to, IntConsumer body) {
+        if (pool == null || to - from <= sequentialCutoff) {
+            for (int i = from; i < to; i++) body.accept(i);
+            return;
+        }
+        // Blattgröße: mindestens cutoff, sonst ca. 4 Teilaufgaben pro Worker für Lastausgleich
+        int leaf = Math.max(sequentialCutoff, (to - from) / (parallelism * 4));
+        pool.invoke(new RangeTask(from, to, leaf, body));
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        @Serial private static final long serialVersionUID = 1L;
+
+        private final int from, to, leaf;
+        private final transient IntConsumer body;
+
+        RangeTask(int from, int to, int leaf, IntConsumer body) {
+            this.from = from; this.to = to; this.leaf = leaf; this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leaf) {
+                for (int i = from; i < to; i++) body.accept(i);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, mid, leaf, body), new RangeTask(mid, to, leaf, body));
+        }
+    }
+
+    /** Beendet den eigenen Pool (laufende Aufgaben werden noch abgearbeitet); für shared() ohne Wirkung. */
+    @Override
+    public void close() {
+        if (pool != null && this != shared) pool.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "BlockExecutor(parallelism=" + parallelism + ", cutoff=" + sequentialCutoff + ")";
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.rsa;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.example.PerfCounters;
+
+/**
+ * Privater Schlüssel in CRT-Form mit Blinding für die Entschlüsselung:
+ *
+ *   m = CRT((c · r^e) mod n) · r^-1 mod n
+ *
+ * Das Paar (r^e, r^-1) wird nicht pro Block neu gezogen (Zufallszahl, Exponentiation und Inverse kosten fast so
+ * viel wie die CRT-Entschlüsselung selbst), sondern nach jeder Benutzung quadriert: (r^2)^e = (r^e)^2 und
+ * (r^2)^-1 = (r^-1)^2 – zwei Multiplikationen mod n. Alle REFRESH_INTERVAL Benutzungen wird r komplett neu gezogen.
+ * Jeder Thread hat sein eigenes Paar (ThreadLocal), es gibt also keine Sperre im Hotpath.
+ *
+ * Kontexte werden pro Modulus registriert (RSAUtils.loadKeysFromFiles registriert Alices Schlüssel);
+ * BlockExecutor.kernel(d, n) rechnet für einen registrierten Schlüssel über decrypt statt x^d mod n.
+ * -Drsa.crt=false schaltet den CRT-Pfad ab, -Drsa.blinding=false nur das Blinding,
+ * -Drsa.blindingRefresh=32 setzt das Intervall für neue Zufallswerte.
+ */
+public final class CrtKeyContext {
+
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("rsa.crt", "true"));
+    public static final boolean BLINDING = Boolean.parseBoolean(System.getProperty("rsa.blinding", "true"));
+    public static final int REFRESH_INTERVAL = Math.max(1, Integer.getInteger("rsa.blindingRefresh", 32));
+
+    private static final ConcurrentHashMap<BigInteger, CrtKeyContext> BY_MODULUS = new ConcurrentHashMap<>();
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    public final BigInteger n, e, d, p, q, dp, dq, qInv;
+
+    private final ThreadLocal<Blinding> blinding = ThreadLocal.withInitial(Blinding::new);
+
+    public CrtKeyContext(BigInteger n, BigInteger e, BigInteger d, BigInteger p, BigInteger q,
+                         BigInteger dp, BigInteger dq, BigInteger qInv) {
+        if (!p.multiply(q).equals(n)) throw new IllegalArgumentException("p · q != n");
+        this.n = n; this.e = e; this.d = d; this.p = p; this.q = q; this.dp = dp; this.dq = dq; this.qInv = qInv;
+    }
+
+    /** Leitet dp, dq und qInv aus p, q und d ab (z. B. nach einem Broadcast von p und q). */
+    public static CrtKeyContext fromPrimes(BigInteger p, BigInteger q, BigInteger e, BigInteger d) {
+        return new CrtKeyContext(p.multiply(q), e, d, p, q,
+                d.mod(p.subtract(BigInteger.ONE)), d.mod(q.subtract(BigInteger.ONE)), q.modInverse(p));
+    }
+
+    /** Macht den Kontext für lookup bekannt (ersetzt einen vorhandenen Kontext mit gleichem Modulus). */
+    public static CrtKeyContext register(CrtKeyContext ctx) {
+        BY_MODULUS.put(ctx.n, ctx);
+        return ctx;
+    }
+
+    /** Registrierter Kontext, falls (exp, n) ein privater Schlüssel mit bekannten Primfaktoren ist, sonst null. */
+    public static CrtKeyContext lookup(BigInteger exp, BigInteger n) {
+        if (!ENABLED) return null;
+        CrtKeyContext ctx = BY_MODULUS.get(n);
+        return (ctx != null && ctx.d.equals(exp)) ? ctx : null;
+    }
+
+    /** c^d mod n über CRT, geblendet (außer mit -Drsa.blinding=false). Threadsicher. */
+    public BigInteger decrypt(BigInteger c) {
+        if (!BLINDING) return crt(c);
+        Blinding b = blinding.get();
+        BigInteger m = crt(c.multiply(b.rE).mod(n)).multiply(b.rInv).mod(n);
+        b.advance();
+        return m;
+    }
+
+    /** c^d mod n über CRT ohne Blinding (Garner: m2 + q · (qInv · (m1 - m2) mod p)). */
+    public BigInteger crt(BigInteger c) {
+        ModExpEngine engine = ModExpEngine.active();
+        BigInteger m1 = engine.pow(c.mod(p), dp, p);
+        BigInteger m2 = engine.pow(c.mod(q), dq, q);
+        BigInteger h = qInv.multiply(m1.subtract(m2)).mod(p);
+        return m2.add(h.multiply(q));
+    }
+
+    /** Blinding-Paar eines Threads. */
+    private final class Blinding {
+        BigInteger rE, rInv;
+        int uses;
+
+        Blinding() {
+            refresh();
+        }
+
+        void advance() {
+            if (++uses >= REFRESH_INTERVAL) {
+                refresh();
+            } else {
+                rE = rE.multiply(rE).mod(n);
+                rInv = rInv.multiply(rInv).mod(n);
+            }
+        }
+
+        private void refresh() {
+            BigInteger r;
+            do {
+                r = new BigInteger(n.bitLength(), RANDOM);
+            } while (r.compareTo(BigInteger.TWO) < 0 || r.compareTo(n) >= 0 || !r.gcd(n).equals(BigInteger.ONE));
+            F4Kernel f4 = F4Kernel.forExponent(e, n);
+            rE = (f4 != null) ? f4.pow(r) : ModExpEngine.active().pow(r, e, n);
+            rInv = r.modInverse(n);
+            uses = 0;
+            PerfCounters.inc(PerfCounters.Counter.BLINDING_REFRESHES);
+        }
+    }
+}
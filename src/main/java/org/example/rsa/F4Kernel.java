@@ -0,0 +1,68 @@
+package org.example.rsa;
+
+import java.math.BigInteger;
+
+import org.example.PerfCounters;
+import org.example.jfr.ModExpEvent;
+
+/**
+ * Spezialkern für den öffentlichen Exponenten e = 65537 (F4 = 2^16 + 1): x^e mod n = (x^(2^16)) · x mod n,
+ * also genau 16 Quadrierungen und 1 Multiplikation – ohne Bit-Schleife über den Exponenten.
+ *
+ * Reduktion per Barrett mit vorab berechnetem mu = floor(4^k / n): zwei Multiplikationen und Shifts statt
+ * einer BigInteger-Division pro Schritt (etwa Faktor 2–3 gegenüber multiply().mod()).
+ * BigInteger.modPow rechnet mit Montgomery-Intrinsics des JDK und ist trotzdem schneller; ist MODPOW die
+ * aktive Engine (TuningProfile), liefert forExponent daher null und die Engine rechnet selbst.
+ *
+ * Unveränderlich und threadsicher; of(n) hält die Instanz für den zuletzt benutzten Modulus vor.
+ */
+public final class F4Kernel {
+
+    public static final BigInteger F4 = BigInteger.valueOf(65537);
+
+    private static volatile F4Kernel last;
+
+    private final BigInteger n;
+    private final BigInteger mu;
+    private final int k;
+
+    private F4Kernel(BigInteger n) {
+        this.n = n;
+        this.k = n.bitLength();
+        this.mu = BigInteger.ONE.shiftLeft(2 * k).divide(n);
+    }
+
+    /** Kern für Modulus n (gecacht für den zuletzt benutzten Modulus). */
+    public static F4Kernel of(BigInteger n) {
+        F4Kernel kernel = last;
+        if (kernel == null || !kernel.n.equals(n)) last = kernel = new F4Kernel(n);
+        return kernel;
+    }
+
+    /** Kern für x^exp mod n, falls er sich lohnt (exp = 65537 und aktive Engine nicht MODPOW), sonst null. */
+    public static F4Kernel forExponent(BigInteger exp, BigInteger n) {
+        return (exp.equals(F4) && ModExpEngine.active() != ModExpEngine.MODPOW) ? of(n) : null;
+    }
+
+    public BigInteger modulus() { return n; }
+
+    /** x^65537 mod n. */
+    public BigInteger pow(BigInteger x) {
+        PerfCounters.inc(PerfCounters.Counter.MODEXP_CALLS);
+        ModExpEvent event = ModExpEvent.start();
+        BigInteger base = (x.signum() < 0 || x.compareTo(n) >= 0) ? x.mod(n) : x;
+        BigInteger y = base;
+        for (int i = 0; i < 16; i++) y = reduce(y.multiply(y));
+        y = reduce(y.multiply(base));
+        event.finish("f4", F4, n);
+        return y;
+    }
+
+    /** Barrett-Reduktion für 0 <= x < n^2. */
+    private BigInteger reduce(BigInteger x) {
+        BigInteger q = x.shiftRight(k - 1).multiply(mu).shiftRight(k + 1);
+        BigInteger r = x.subtract(q.multiply(n));
+        while (r.compareTo(n) >= 0) r = r.subtract(n);   // höchstens zweimal
+        return r;
+    }
+}
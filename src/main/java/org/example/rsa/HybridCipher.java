@@ -0,0 +1,305 @@
+package org.example.rsa;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.example.mpjkeygen.schnelleExponentiation;
+
+/**
+ * Hybrid-Verschlüsselung: RSA kapselt einen zufälligen AES-256-Schlüssel, die Nutzdaten laufen über AES-GCM.
+ * Damit geht nur noch ein einziger Block durch die RSA-Exponentiation, unabhängig von der Nachrichtenlänge.
+ *
+ * Kapselung nach RSA-KEM (ISO/IEC 18033-2): zufälliges r ∈ [2, n), wrappedKey = r^e mod n,
+ * AES-Schlüssel = SHA-256(r als k Byte, k = Bytelänge von n). Anders als die direkte Kapselung key^e mod n ist das
+ * weder deterministisch noch formbar: ein mit x^e multipliziertes wrappedKey liefert ein r', dessen Hash mit dem
+ * ursprünglichen Schlüssel nichts zu tun hat – GCM verwirft dann schon das erste Segment.
+ *
+ * Containerformat (Big-Endian):
+ *   Header:  "MPJH" | version (1 Byte) | segmentSize (int) | wrappedKeyLength (int) | wrappedKey | noncePrefix (4 Byte)
+ *   Segment: flag (1 Byte, 1 = letztes Segment) | ctLength (int) | Chiffrat + GCM-Tag (16 Byte)
+ *
+ * - IV pro Segment = noncePrefix || Segmentindex (8 Byte) → nie doppelt unter demselben Schlüssel.
+ * - AAD pro Segment = Header || Segmentindex || flag → Vertauschen, Kürzen und Header-Manipulation fallen auf.
+ * - Segmente sind unabhängig und werden fensterweise parallel ver-/entschlüsselt.
+ */
+public final class HybridCipher {
+
+    private static final byte[] MAGIC = {'M', 'P', 'J', 'H'};
+    /** 2: RSA-KEM (Version 1 kapselte den AES-Schlüssel direkt als k^e mod n und wird abgelehnt). */
+    private static final byte VERSION = 2;
+    private static final int KEY_BYTES = 32;
+    private static final int NONCE_PREFIX_BYTES = 4;
+    private static final int TAG_BITS = 128;
+    private static final int TAG_BYTES = TAG_BITS / 8;
+
+    /** Klartextbytes pro Segment (über -Drsa.hybrid.segmentSize=... änderbar). */
+    private static final int SEGMENT_SIZE = Integer.getInteger("rsa.hybrid.segmentSize", 1 << 20);
+
+    /** Segmente pro parallel verarbeitetem Fenster. */
+    private static final int WINDOW = Math.max(1, 2 * Runtime.getRuntime().availableProcessors());
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private HybridCipher() {}
+
+    // ---------------- Verschlüsseln ----------------
+
+    /** Verschlüsselt in → out mit dem öffentlichen Schlüssel (e, n). */
+    public static void encrypt(InputStream in, OutputStream out, BigInteger e, BigInteger n) throws IOException {
+        int blockBytes = BlockCodec.cipherBlockSize(n.bitLength());
+        byte[] noncePrefix = new byte[NONCE_PREFIX_BYTES];
+        RANDOM.nextBytes(noncePrefix);
+
+        // Schlüsselkapselung (RSA-KEM): r zufällig in [2, n), gespeichert wird r^e mod n
+        BigInteger r;
+        do {
+            r = new BigInteger(n.bitLength(), RANDOM);
+        } while (r.compareTo(BigInteger.TWO) < 0 || r.compareTo(n) >= 0);
+        byte[] wrappedKey = new byte[blockBytes];
+        BlockCodec.writeBlock(schnelleExponentiation.pow(r, e, n), wrappedKey, 0, blockBytes);
+        byte[] key = deriveKey(r, blockBytes);
+
+        byte[] header = header(SEGMENT_SIZE, wrappedKey, noncePrefix);
+        SecretKeySpec aesKey = new SecretKeySpec(key, "AES");
+        Arrays.fill(key, (byte) 0);
+
+        DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        dout.write(header);
+
+        InputStream bin = new BufferedInputStream(in, 1 << 16);
+        byte[][] plain = new byte[WINDOW][];
+        byte[][] cipher = new byte[WINDOW][];
+        long index = 0;
+        // ein Segment Vorlauf, damit das letzte Segment als solches markiert werden kann
+        byte[] next = bin.readNBytes(SEGMENT_SIZE);
+        boolean last = false;
+        while (!last) {
+            int k = 0;
+            while (k < WINDOW && !last) {
+                plain[k++] = next;
+                next = (next.length < SEGMENT_SIZE) ? new byte[0] : bin.readNBytes(SEGMENT_SIZE);
+                last = next.length == 0;
+            }
+            final long base = index;
+            final int count = k;
+            final boolean windowIsLast = last;
+            parallel(count, i -> cipher[i] = seal(aesKey, noncePrefix, header, base + i,
+                    windowIsLast && i == count - 1, plain[i]));
+            for (int i = 0; i < count; i++) {
+                dout.writeByte((windowIsLast && i == count - 1) ? 1 : 0);
+                dout.writeInt(cipher[i].length);
+                dout.write(cipher[i]);
+                plain[i] = null;
+                cipher[i] = null;
+            }
+            index += count;
+        }
+        dout.flush();
+    }
+
+    // ---------------- Entschlüsseln ----------------
+
+    /** Entschlüsselt in → out mit dem privaten Schlüssel (d, n). */
+    public static void decrypt(InputStream in, OutputStream out, BigInteger d, BigInteger n) throws IOException {
+        DataInputStream din = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+
+        byte[] magic = new byte[MAGIC.length];
+        din.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException("Kein Hybrid-Container (Magic fehlt).");
+        byte version = din.readByte();
+        if (version != VERSION) throw new IOException("Nicht unterstützte Containerversion: " + version);
+        int segmentSize = din.readInt();
+        int wrappedLength = din.readInt();
+        if (segmentSize <= 0 || wrappedLength <= 0 || wrappedLength > (1 << 16)) {
+            throw new IOException("Ungültiger Header (segmentSize=" + segmentSize + ", keyLength=" + wrappedLength + ").");
+        }
+        byte[] wrappedKey = new byte[wrappedLength];
+        din.readFully(wrappedKey);
+        byte[] noncePrefix = new byte[NONCE_PREFIX_BYTES];
+        din.readFully(noncePrefix);
+        byte[] header = header(segmentSize, wrappedKey, noncePrefix);
+
+        // Ein falscher privater Schlüssel liefert ein anderes r → GCM lehnt das erste Segment ab
+        int blockBytes = BlockCodec.cipherBlockSize(n.bitLength());
+        BigInteger c = new BigInteger(1, wrappedKey);
+        if (wrappedLength != blockBytes || c.compareTo(n) >= 0) {
+            throw new IOException("Container passt nicht zu diesem Schlüssel (gekapselter Wert: " + wrappedLength + " Byte).");
+        }
+        byte[] key = deriveKey(BlockExecutor.kernel(d, n).apply(c), blockBytes);
+        SecretKeySpec aesKey = new SecretKeySpec(key, "AES");
+        Arrays.fill(key, (byte) 0);
+
+        OutputStream bout = new BufferedOutputStream(out, 1 << 16);
+        byte[][] cipher = new byte[WINDOW][];
+        boolean[] flags = new boolean[WINDOW];
+        byte[][] plain = new byte[WINDOW][];
+        long index = 0;
+        boolean last = false;
+        while (!last) {
+            int count = 0;
+            while (count < WINDOW && !last) {
+                int flag;
+                try {
+                    flag = din.readUnsignedByte();
+                } catch (EOFException eof) {
+                    throw new IOException("Container abgeschnitten: letztes Segment fehlt.");
+                }
+                int len = din.readInt();
+                if (len < TAG_BYTES || len > segmentSize + TAG_BYTES) throw new IOException("Ungültige Segmentlänge: " + len);
+                cipher[count] = new byte[len];
+                din.readFully(cipher[count]);
+                flags[count] = flag == 1;
+                last = flags[count];
+                count++;
+            }
+            final long base = index;
+            parallel(count, i -> plain[i] = open(aesKey, noncePrefix, header, base + i, flags[i], cipher[i]));
+            for (int i = 0; i < count; i++) {
+                bout.write(plain[i]);
+                plain[i] = null;
+                cipher[i] = null;
+            }
+            index += count;
+        }
+        if (din.read() != -1) throw new IOException("Unerwartete Daten nach dem letzten Segment.");
+        bout.flush();
+    }
+
+    // ---------------- Bequeme Varianten ----------------
+
+    public static byte[] encrypt(byte[] data, BigInteger e, BigInteger n) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + 256);
+        encrypt(new ByteArrayInputStream(data), out, e, n);
+        return out.toByteArray();
+    }
+
+    public static byte[] decrypt(byte[] container, BigInteger d, BigInteger n) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(container.length);
+        decrypt(new ByteArrayInputStream(container), out, d, n);
+        return out.toByteArray();
+    }
+
+    // ---------------- Interna ----------------
+
+    /** AES-Schlüssel = SHA-256(r als blockBytes Byte, Big-Endian). */
+    private static byte[] deriveKey(BigInteger r, int blockBytes) {
+        byte[] encoded = new byte[blockBytes];
+        BlockCodec.writeBlock(r, encoded, 0, blockBytes);
+        try {
+            byte[] key = MessageDigest.getInstance("SHA-256").digest(encoded);
+            return Arrays.copyOf(key, KEY_BYTES);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            Arrays.fill(encoded, (byte) 0);
+        }
+    }
+
+    private static byte[] header(int segmentSize, byte[] wrappedKey, byte[] noncePrefix) {
+        ByteBuffer b = ByteBuffer.allocate(MAGIC.length + 1 + 4 + 4 + wrappedKey.length + noncePrefix.length);
+        b.put(MAGIC).put(VERSION).putInt(segmentSize).putInt(wrappedKey.length).put(wrappedKey).put(noncePrefix);
+        return b.array();
+    }
+
+    private static byte[] seal(SecretKeySpec key, byte[] noncePrefix, byte[] header, long index,
+                               boolean last, byte[] plain) {
+        try {
+            Cipher gcm = Cipher.getInstance("AES/GCM/NoPadding");
+            gcm.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv(noncePrefix, index)));
+            gcm.updateAAD(aad(header, index, last));
+            return gcm.doFinal(plain);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("AES-GCM-Verschlüsselung fehlgeschlagen (Segment " + index + ")", ex);
+        }
+    }
+
+    private static byte[] open(SecretKeySpec key, byte[] noncePrefix, byte[] header, long index,
+                               boolean last, byte[] cipher) {
+        try {
+            Cipher gcm = Cipher.getInstance("AES/GCM/NoPadding");
+            gcm.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv(noncePrefix, index)));
+            gcm.updateAAD(aad(header, index, last));
+            return gcm.doFinal(cipher);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Segment " + index + " ist manipuliert oder der Schlüssel passt nicht.", ex);
+        }
+    }
+
+    private static byte[] iv(byte[] noncePrefix, long index) {
+        return ByteBuffer.allocate(NONCE_PREFIX_BYTES + 8).put(noncePrefix).putLong(index).array();
+    }
+
+    private static byte[] aad(byte[] header, long index, boolean last) {
+        return ByteBuffer.allocate(header.length + 9).put(header).putLong(index).put((byte) (last ? 1 : 0)).array();
+    }
+
+    /** Führt task(0..count-1) parallel aus; Fehler aus AES-GCM werden als IOException weitergereicht. */
+    private static void parallel(int count, IntConsumer task) throws IOException {
+        try {
+            if (count == 1) {
+                task.accept(0);
+            } else {
+                IntStream.range(0, count).parallel().forEach(task);
+            }
+        } catch (IllegalStateException ex) {
+            // parallele Streams verpacken die Originalausnahme ggf. noch einmal
+            IllegalStateException src = (ex.getCause() instanceof IllegalStateException ise) ? ise : ex;
+            throw new IOException(src.getMessage(), src.getCause());
+        }
+    }
+
+    // ---------------- CLI ----------------
+
+    /**
+     * Aufruf: HybridCipher encrypt|decrypt <eingabe> <ausgabe> [alice2bob|bob2alice]
+     * alice2bob (Standard): Bobs (e, n) zum Verschlüsseln, Bobs d zum Entschlüsseln.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Aufruf: HybridCipher encrypt|decrypt <eingabe> <ausgabe> [alice2bob|bob2alice]");
+            return;
+        }
+        boolean toBob = args.length < 4 || !"bob2alice".equalsIgnoreCase(args[3]);
+        RSAUtils.loadKeysFromFiles();
+        BigInteger n = toBob ? RSAUtils.getBobModulus() : RSAUtils.getAliceModulus();
+
+        long t0 = System.nanoTime();
+        try (InputStream in = Files.newInputStream(Path.of(args[1]));
+             OutputStream out = Files.newOutputStream(Path.of(args[2]))) {
+            if ("encrypt".equalsIgnoreCase(args[0])) {
+                encrypt(in, out, toBob ? RSAUtils.getBobPublicKey() : RSAUtils.getAlicePublicKey(), n);
+            } else if ("decrypt".equalsIgnoreCase(args[0])) {
+                decrypt(in, out, toBob ? RSAUtils.getBobPrivateKey() : RSAUtils.getAlicePrivateKey(), n);
+            } else {
+                System.err.println("Unbekannter Modus: " + args[0]);
+                return;
+            }
+        }
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        long bytes = Files.size(Path.of(args[1]));
+        System.out.printf("[Hybrid] %s: %d Byte in %d ms (%.1f MB/s)%n", args[0], bytes, ms,
+                bytes / 1e6 / Math.max(1e-3, ms / 1000.0));
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.rsa;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.example.PerfCounters;
+import org.example.SchnelleExponentiation;
+import org.example.jfr.ModExpEvent;
+import org.example.mpjkeygen.schnelleExponentiation;
+
+/**
+ * Alle im Projekt vorhandenen Implementierungen der modularen Exponentiation hinter einer Schnittstelle,
+ * damit Benchmarks und Treiber sie per Name (-engine=...) austauschen können.
+ * Die Treiber rechnen mit active(); gesetzt über configure(...), normalerweise aus dem TuningProfile.
+ */
+public enum ModExpEngine {
+
+    /** Square-and-Multiply aus mpjkeygen (Standard in den Treibern). */
+    MPJKEYGEN("mpjkeygen") {
+        @Override public BigInteger pow(BigInteger base, BigInteger exp, BigInteger mod) {
+            return schnelleExponentiation.pow(base, exp, mod);
+        }
+    },
+
+    /** Ursprüngliche Implementierung aus org.example (Bittest per mod 2). */
+    LEGACY("legacy") {
+        @Override public BigInteger pow(BigInteger base, BigInteger exp, BigInteger mod) {
+            return SchnelleExponentiation.schnelleExponentiation(base, exp, mod);
+        }
+    },
+
+    /** Fenster-Variante aus mpjkeygen; Fensterbreite über configure(...) bzw. TuningProfile. */
+    WINDOW("window") {
+        @Override public BigInteger pow(BigInteger base, BigInteger exp, BigInteger mod) {
+            return schnelleExponentiation.powWindow(base, exp, mod, windowBits);
+        }
+    },
+
+    /** Referenz: BigInteger.modPow (Montgomery + Fenster im JDK). */
+    MODPOW("modpow") {
+        @Override public BigInteger pow(BigInteger base, BigInteger exp, BigInteger mod) {
+            PerfCounters.inc(PerfCounters.Counter.MODEXP_CALLS);
+            ModExpEvent event = ModExpEvent.start();
+            BigInteger result = base.modPow(exp, mod);
+            event.finish("modpow", exp, mod);
+            return result;
+        }
+    };
+
+    /** Engine der Treiber-Hotpaths (BlockScatter, BlockExecutor); Standard wie bisher mpjkeygen. */
+    private static volatile ModExpEngine active = MPJKEYGEN;
+    private static volatile int windowBits = 4;
+
+    private final String id;
+
+    ModExpEngine(String id) {
+        this.id = id;
+    }
+
+    public abstract BigInteger pow(BigInteger base, BigInteger exp, BigInteger mod);
+
+    public String id() { return id; }
+
+    public static ModExpEngine active() { return active; }
+
+    public static int windowBits()      { return windowBits; }
+
+    /** Setzt die prozessweit aktive Engine und die Fensterbreite für WINDOW (z. B. aus dem TuningProfile). */
+    public static void configure(ModExpEngine engine, int windowBits) {
+        ModExpEngine.windowBits = Math.max(1, Math.min(windowBits, 8));
+        ModExpEngine.active = engine;
+    }
+
+    /** Name wie in -engine=... (Groß-/Kleinschreibung egal). */
+    public static ModExpEngine parse(String name) {
+        String n = name.trim().toLowerCase(Locale.ROOT);
+        for (ModExpEngine e : values()) {
+            if (e.id.equals(n)) return e;
+        }
+        throw new IllegalArgumentException("Unbekannte Engine: " + name + " (erlaubt: "
+                + String.join(", ", Arrays.stream(values()).map(ModExpEngine::id).toList()) + ")");
+    }
+}
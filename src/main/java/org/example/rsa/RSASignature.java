@@ -0,0 +1,197 @@
+package org.example.rsa;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RSA-Signaturen nach PKCS#1 v1.5 (RSASSA-PKCS1-v1_5, RFC 8017) mit SHA-256 und den Schlüsseln aus RSAUtils.
+ *
+ * - sign: über den CRT-Pfad (m^dp mod p, m^dq mod q, Garner), danach Gegenprobe s^e mod n = m, damit ein
+ *   Rechenfehler in einem CRT-Zweig keine Signatur verlässt, aus der sich p oder q ableiten ließe.
+ * - verify / verifyBatch: s^e mod n über BlockExecutor.kernel (F4Kernel für e = 65537), Vergleich der kodierten Nachricht in
+ *   konstanter Zeit. verifyBatch verteilt die Exponentiationen über einen BlockExecutor.
+ *
+ * Signaturen haben die Länge k = Bytelänge von n (wie Chiffratblöcke, siehe BlockCodec.cipherBlockSize).
+ * Verteilt über MPI: org.example.rsa.mpj.mpjRSABatchVerify.
+ *
+ * Aufruf zum Signieren einer Datensatzdatei (eine Zeile = ein Datensatz, Signaturen Base64 wie Chiffrate):
+ *   java -cp bin org.example.rsa.RSASignature records.txt signatures.txt
+ */
+public final class RSASignature {
+
+    /** DER-Präfix der DigestInfo für SHA-256 (RFC 8017, 9.2, Anmerkung 1). */
+    private static final byte[] SHA256_PREFIX = {
+            0x30, 0x31, 0x30, 0x0d, 0x06, 0x09, 0x60, (byte) 0x86, 0x48, 0x01, 0x65, 0x03, 0x04, 0x02, 0x01,
+            0x05, 0x00, 0x04, 0x20
+    };
+    private static final int DIGEST_LENGTH = 32;
+
+    private RSASignature() {}
+
+    /** Privater Schlüssel in CRT-Form. */
+    public static final class PrivateKey {
+        public final BigInteger n, e, p, q, dp, dq, qInv;
+
+        public PrivateKey(BigInteger n, BigInteger e, BigInteger p, BigInteger q,
+                          BigInteger dp, BigInteger dq, BigInteger qInv) {
+            this.n = n; this.e = e; this.p = p; this.q = q; this.dp = dp; this.dq = dq; this.qInv = qInv;
+        }
+
+        /** Alices Schlüssel (MainKeyGen schreibt nur für Alice die CRT-Werte); RSAUtils muss geladen sein. */
+        public static PrivateKey alice() {
+            return new PrivateKey(RSAUtils.getAliceModulus(), RSAUtils.getAlicePublicKey(), RSAUtils.getAliceP(),
+                    RSAUtils.getAliceQ(), RSAUtils.getAliceDP(), RSAUtils.getAliceDQ(), RSAUtils.getAliceQInv());
+        }
+    }
+
+    public static byte[] sha256(byte[] message) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(message);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** EMSA-PKCS1-v1_5: 0x00 01 FF..FF 00 || DigestInfo || Hash, Länge k. */
+    public static byte[] encode(byte[] digest, int k) {
+        if (digest.length != DIGEST_LENGTH) throw new IllegalArgumentException("SHA-256-Hash erwartet");
+        int tLen = SHA256_PREFIX.length + DIGEST_LENGTH;
+        if (k < tLen + 11) throw new IllegalArgumentException("Modulus zu kurz für PKCS#1 v1.5 mit SHA-256");
+        byte[] em = new byte[k];
+        em[1] = 0x01;
+        for (int i = 2; i < k - tLen - 1; i++) em[i] = (byte) 0xFF;
+        System.arraycopy(SHA256_PREFIX, 0, em, k - tLen, SHA256_PREFIX.length);
+        System.arraycopy(digest, 0, em, k - DIGEST_LENGTH, DIGEST_LENGTH);
+        return em;
+    }
+
+    public static byte[] sign(byte[] message, PrivateKey key) {
+        return signDigest(sha256(message), key);
+    }
+
+    /** Signatur zu einem SHA-256-Hash (k Byte). */
+    public static byte[] signDigest(byte[] digest, PrivateKey key) {
+        int k = BlockCodec.cipherBlockSize(key.n.bitLength());
+        byte[] out = new byte[k];
+        BlockCodec.writeBlock(signRepresentative(new BigInteger(1, encode(digest, k)), key), out, 0, k);
+        return out;
+    }
+
+    /** s = m^d mod n über CRT (Garner) mit Gegenprobe; m ist die kodierte Nachricht als Zahl. */
+    public static BigInteger signRepresentative(BigInteger m, PrivateKey key) {
+        ModExpEngine engine = ModExpEngine.active();
+        BigInteger m1 = engine.pow(m.mod(key.p), key.dp, key.p);
+        BigInteger m2 = engine.pow(m.mod(key.q), key.dq, key.q);
+        BigInteger h = key.qInv.multiply(m1.subtract(m2)).mod(key.p);
+        BigInteger s = m2.add(h.multiply(key.q));
+
+        if (!publicOp(s, key.e, key.n).equals(m)) {
+            throw new IllegalStateException("CRT-Signatur fehlerhaft (Gegenprobe s^e mod n != m), Signatur verworfen");
+        }
+        return s;
+    }
+
+    public static boolean verify(byte[] message, byte[] signature, BigInteger n, BigInteger e) {
+        return verifyDigest(sha256(message), signature, n, e);
+    }
+
+    public static boolean verifyDigest(byte[] digest, byte[] signature, BigInteger n, BigInteger e) {
+        int k = BlockCodec.cipherBlockSize(n.bitLength());
+        if (signature.length != k) return false;
+        BigInteger s = new BigInteger(1, signature);
+        if (s.compareTo(n) >= 0) return false;
+        return matches(publicOp(s, e, n), digest, k);
+    }
+
+    /**
+     * Prüft viele Signaturen unter demselben Schlüssel; ok[i] gilt für messages[i]/signatures[i].
+     * Erst alle Hashes und Formatprüfungen, dann die Exponentiationen gesammelt über executor,
+     * zuletzt der Vergleich – die Schleifen enthalten damit keine Abbrüche.
+     */
+    public static boolean[] verifyBatch(List<byte[]> messages, List<byte[]> signatures,
+                                        BigInteger n, BigInteger e, BlockExecutor executor) {
+        int count = messages.size();
+        if (signatures.size() != count) throw new IllegalArgumentException("Anzahl Nachrichten != Anzahl Signaturen");
+        int k = BlockCodec.cipherBlockSize(n.bitLength());
+
+        boolean[] ok = new boolean[count];
+        byte[][] digests = new byte[count][];
+        BigInteger[] s = new BigInteger[count];
+        for (int i = 0; i < count; i++) {
+            byte[] sig = signatures.get(i);
+            BigInteger v = (sig.length == k) ? new BigInteger(1, sig) : n;
+            ok[i] = v.compareTo(n) < 0;
+            s[i] = ok[i] ? v : BigInteger.ZERO;
+            digests[i] = sha256(messages.get(i));
+        }
+
+        executor.mapInPlace(s, BlockExecutor.kernel(e, n));
+
+        for (int i = 0; i < count; i++) ok[i] &= matches(s[i], digests[i], k);
+        return ok;
+    }
+
+    /** true, wenn em (s^e mod n) der PKCS#1-Kodierung von digest entspricht (konstante Laufzeit). */
+    public static boolean matches(BigInteger em, byte[] digest, int k) {
+        byte[] actual = new byte[k];
+        BlockCodec.writeBlock(em, actual, 0, k);
+        return matchesEncoded(actual, 0, digest, k);
+    }
+
+    /** Wie matches, für eine bereits als k Byte vorliegende Kodierung ab em[off]. */
+    public static boolean matchesEncoded(byte[] em, int off, byte[] digest, int k) {
+        byte[] expected = encode(digest, k);
+        int diff = 0;
+        for (int i = 0; i < k; i++) diff |= expected[i] ^ em[off + i];
+        return diff == 0;
+    }
+
+    private static BigInteger publicOp(BigInteger s, BigInteger e, BigInteger n) {
+        return BlockExecutor.kernel(e, n).apply(s);
+    }
+
+    /** Signiert jede Zeile von args[0] (UTF-8, ohne Zeilenende) mit Alices Schlüssel; Signaturen als Base64 nach args[1]. */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Aufruf: RSASignature <datensaetze.txt> <signaturen.txt>");
+            System.exit(2);
+        }
+        RSAUtils.loadKeysFromFiles();
+        PrivateKey key = PrivateKey.alice();
+        int k = BlockCodec.cipherBlockSize(key.n.bitLength());
+        BlockExecutor executor = BlockExecutor.shared();
+
+        long t0 = System.currentTimeMillis();
+        long total = 0;
+        try (BufferedReader in = Files.newBufferedReader(Path.of(args[0]), StandardCharsets.UTF_8);
+             Base64BlockIO.Writer out = Base64BlockIO.Writer.open(Path.of(args[1]), k)) {
+            List<byte[]> batch = new ArrayList<>();
+            String line;
+            while (true) {
+                line = in.readLine();
+                if (line != null) batch.add(line.getBytes(StandardCharsets.UTF_8));
+                if (batch.size() == 1024 || (line == null && !batch.isEmpty())) {
+                    int count = batch.size();
+                    BigInteger[] m = new BigInteger[count];
+                    for (int i = 0; i < count; i++) m[i] = new BigInteger(1, encode(sha256(batch.get(i)), k));
+                    executor.mapInPlace(m, x -> signRepresentative(x, key));
+                    byte[] joined = new byte[count * k];
+                    for (int i = 0; i < count; i++) BlockCodec.writeBlock(m[i], joined, i * k, k);
+                    out.writeBlockBytes(joined, 0, count);
+                    total += count;
+                    batch.clear();
+                }
+                if (line == null) break;
+            }
+        }
+        System.out.println("Signiert: " + total + " Datensätze in " + (System.currentTimeMillis() - t0) + " ms → " + args[1]);
+    }
+}
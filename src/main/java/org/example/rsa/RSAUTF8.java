@@ -1,29 +1,51 @@
 package org.example.rsa;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
 
-import org.example.mpjkeygen.schnelleExponentiation;
+import org.example.jfr.BlockBatchEvent;
 
-public class RSAUTF8 {
+public class RSAUTF8 implements AutoCloseable {
 
     private BigInteger friendPubKey;
     private BigInteger friendModulus;
 
+    /** Verteilt die Block-Exponentiation auf die Kerne dieser JVM (sequentiell bei parallelism=1 oder kurzen Texten). */
+    private final BlockExecutor executor;
+    /** true, wenn der Executor hier angelegt wurde und mit close() freigegeben wird. */
+    private final boolean ownsExecutor;
+
+    /** Chiffratblöcke (Breite = Chiffrat-Blockgröße), gepackt in einem Puffer. */
     public static class RSAResult {
-        public final List<BigInteger> blocks;
-        public RSAResult(List<BigInteger> blocks) {
+        public final BlockArray blocks;
+        public RSAResult(BlockArray blocks) {
             this.blocks = blocks;
         }
     }
 
     public RSAUTF8(int bitLength) {
+        this(bitLength, BlockExecutor.shared());
+    }
+
+    /**
+     * Mit eigenem Pool; per close() (try-with-resources) freigeben.
+     * @param parallelism      Anzahl Threads für die Block-Exponentiation (1 = sequentiell)
+     * @param sequentialCutoff bis zu dieser Blockanzahl wird ohne Aufteilung gerechnet
+     */
+    public RSAUTF8(int bitLength, int parallelism, int sequentialCutoff) {
+        this(bitLength, new BlockExecutor(parallelism, sequentialCutoff), true);
+    }
+
+    /** Mit einem vorhandenen Executor; dessen Lebensdauer bleibt beim Aufrufer. */
+    public RSAUTF8(int bitLength, BlockExecutor executor) {
+        this(bitLength, executor, false);
+    }
+
+    private RSAUTF8(int bitLength, BlockExecutor executor, boolean ownsExecutor) {
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
         try {
             RSAUtils.loadKeysFromFiles();
         } catch (Exception e) {
@@ -42,14 +64,13 @@ public class RSAUTF8 {
         return result + blex * Math.log(2);
     }
 
+    /**
+     * Blockgröße in Byte, exakt aus der Bitlänge (gecacht pro Modulus, siehe BlockCodec).
+     * plusOne=false → Klartextblock, plusOne=true → Chiffratblock.
+     */
     public static int calculateBlockSize(BigInteger modulus, boolean plusOne) {
-        int blockSize = (int) Math.floor(logBigInteger(modulus) / Math.log(256));
-        if (plusOne) {
-            blockSize++;
-        }
-     //   System.out.println("DEBUG: modulus = " + modulus);
-       // System.out.println("DEBUG: Berechnete Blockgröße (plusOne=" + plusOne + "): " + blockSize + " Bytes");
-        return blockSize;
+        BlockCodec codec = BlockCodec.forModulus(modulus);
+        return plusOne ? codec.cipherBlockSize() : codec.plainBlockSize();
     }
 
     public static int getEncryptionBlockSize(BigInteger modulus) {
@@ -72,87 +93,43 @@ public class RSAUTF8 {
     }
 
     public static List<BigInteger> textToBigIntegerBlocks(final String text, final BigInteger modulus) {
-        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
-        //System.out.println("Anzahl der Zeichen: " + text.length());
-        //System.out.println("DEBUG: Ursprünglicher Text: " + text);
-        //System.out.println("DEBUG: Länge des ursprünglichen Bytearrays: " + textBytes.length);
-        //System.out.println("-----------------------");
-
-        int blockSize = getEncryptionBlockSize(modulus);
-        //System.out.println("DEBUG: Berechnete Verschlüsselungsblockgröße: " + blockSize + " Bytes");
-
-        byte[] paddedBytes = zeroPadData(textBytes, blockSize);
-        //System.out.println("DEBUG: Länge des gepaddeten Bytearrays: " + paddedBytes.length);
-        //System.out.println("DEBUG: Anzahl der erzeugten Blöcke: " + (paddedBytes.length / blockSize));
-
-        List<BigInteger> blocks = new ArrayList<>();
-        for (int i = 0; i < paddedBytes.length; i += blockSize) {
-            byte[] blockBytes = Arrays.copyOfRange(paddedBytes, i, i + blockSize);
-            blocks.add(new BigInteger(1, blockBytes));
-        }
-        return blocks;
+        return bytesToBigIntegerBlocks(text.getBytes(StandardCharsets.UTF_8), modulus);
+    }
+
+    /** Wie textToBigIntegerBlocks, aber für beliebige Byte-Nutzdaten (letzter Block mit Nullen aufgefüllt). */
+    public static List<BigInteger> bytesToBigIntegerBlocks(final byte[] data, final BigInteger modulus) {
+        return BlockCodec.forModulus(modulus).encodePlain(data);
     }
 
     public static byte[] bigIntegerBlocksToBytes(List<BigInteger> blocks, int blockLength) {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        //System.out.println("DEBUG: Anzahl der Blöcke zum Zusammenfügen: " + blocks.size());
-        try {
-            for (int i = 0; i < blocks.size(); i++) {
-                BigInteger block = blocks.get(i);
-                byte[] blockBytes = block.toByteArray();
-          //      System.out.println("DEBUG: Block " + i + " original Länge: " + blockBytes.length);
-                byte[] fixedBlock = new byte[blockLength];
-                if (blockBytes.length > blockLength) {
-                    System.arraycopy(blockBytes, blockBytes.length - blockLength, fixedBlock, 0, blockLength);
-            //        System.out.println("DEBUG: Block " + i + " wurde gekürzt auf " + blockLength + " Bytes");
-                } else if (blockBytes.length < blockLength) {
-                    System.arraycopy(blockBytes, 0, fixedBlock, blockLength - blockBytes.length, blockBytes.length);
-              //      System.out.println("DEBUG: Block " + i + " wurde aufgefüllt auf " + blockLength + " Bytes");
-                } else {
-                    fixedBlock = blockBytes;
-                //    System.out.println("DEBUG: Block " + i + " hat bereits die korrekte Länge: " + blockLength + " Bytes");
-                }
-                outputStream.write(fixedBlock);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        byte[] result = outputStream.toByteArray();
-        //System.out.println("DEBUG: Gesamtzahl der Bytes nach Zusammenfügen: " + result.length);
-        return result;
+        return BlockCodec.joinBlocks(blocks, blockLength);
     }
 
     public static String blocksToBase64String(List<BigInteger> blocks, BigInteger modulus) {
         int modBlockSize = getDecryptionBlockSize(modulus);
-        //System.out.println("DEBUG: Berechnete Blockgröße für Base64-Darstellung: " + modBlockSize + " Bytes");
         byte[] allBytes = bigIntegerBlocksToBytes(blocks, modBlockSize);
-        //System.out.println("DEBUG: Anzahl der Bytes im zusammengesetzten Base64-Bytearray: " + allBytes.length);
-        String base64String = java.util.Base64.getEncoder().encodeToString(allBytes);
-        //System.out.println("DEBUG: Base64-codiertes Chiffrat: " + base64String);
-        return base64String;
+        return Base64.getEncoder().encodeToString(allBytes);
     }
 
-    public static List<BigInteger> base64StringToBlocks(String base64String, BigInteger modulus) {
+    /** Gepackte Chiffratblöcke → Base64 (die Bytes liegen bereits im Ausgabeformat vor). */
+    public static String blocksToBase64String(BlockArray blocks) {
+        return Base64.getEncoder().encodeToString(blocks.toByteArray());
+    }
+
+    public static BlockArray base64StringToBlocks(String base64String, BigInteger modulus) {
         byte[] allBytes = Base64.getDecoder().decode(base64String);
-        int modBlockSize = getDecryptionBlockSize(modulus);
-        //System.out.println("-----------------------");
-        //System.out.println("DEBUG: Gesamtlänge des eingelesenen Base64-Bytearrays: " + allBytes.length);
-        //System.out.println("DEBUG: Erwartete Blockgröße: " + modBlockSize + " Bytes");
-        //System.out.println("-----------------------");
-
-        List<BigInteger> blocks = new ArrayList<>();
-        for (int i = 0; i < allBytes.length; i += modBlockSize) {
-            byte[] blockBytes = Arrays.copyOfRange(allBytes, i, i + modBlockSize);
-            blocks.add(new BigInteger(1, blockBytes));
-        }
-        //System.out.println("DEBUG: Anzahl der extrahierten Blöcke: " + blocks.size());
-        return blocks;
+        return BlockArray.split(allBytes, getDecryptionBlockSize(modulus));
     }
 
     // ---------------- RSA-Funktionen (angepasst auf schnelleExponentiation.pow) ----------------
 
     /** Verschlüsselt eine UTF-8 Nachricht: von Alice an Bob (nutzt Bobs (e,n)). */
     public RSAResult encrypt(String message, boolean fromAlice) {
+        return encrypt(message.getBytes(StandardCharsets.UTF_8), fromAlice);
+    }
+
+    /** Verschlüsselt beliebige Bytes (letzter Block wird mit Nullen aufgefüllt). */
+    public RSAResult encrypt(byte[] data, boolean fromAlice) {
         BigInteger pubKey, modulus;
         if (fromAlice) {
             pubKey = RSAUtils.getBobPublicKey();
@@ -162,13 +139,12 @@ public class RSAUTF8 {
             modulus = RSAUtils.getAliceModulus();
         }
 
-        List<BigInteger> blocks = textToBigIntegerBlocks(message, modulus);
-        List<BigInteger> encryptedBlocks = new ArrayList<>();
+        BlockCodec codec = BlockCodec.forModulus(modulus);
+        BlockArray blocks = BlockArray.split(data, codec.plainBlockSize());
         long startTime = System.currentTimeMillis();
-        for (BigInteger block : blocks) {
-            BigInteger cipherBlock = schnelleExponentiation.pow(block, pubKey, modulus);
-            encryptedBlocks.add(cipherBlock);
-        }
+        BlockBatchEvent event = BlockBatchEvent.start();
+        BlockArray encryptedBlocks = executor.pow(blocks, pubKey, modulus, codec.cipherBlockSize());
+        event.finish("encrypt", "RSAUTF8", blocks.size(), data.length, -1);
         long encryptionTime = System.currentTimeMillis() - startTime;
         //System.out.println("Verschlüsselungszeit: " + encryptionTime + " ms");
         return new RSAResult(encryptedBlocks);
@@ -176,6 +152,11 @@ public class RSAUTF8 {
 
     /** Entschlüsselt mit privatem Schlüssel. toAlice=true → Alice entschlüsselt. */
     public String decrypt(RSAResult result, boolean toAlice) {
+        return new String(decryptBytes(result, toAlice), StandardCharsets.UTF_8).trim();
+    }
+
+    /** Entschlüsselt zu Rohbytes (inkl. Null-Auffüllung des letzten Blocks). */
+    public byte[] decryptBytes(RSAResult result, boolean toAlice) {
         BigInteger privKey, modulus;
         if (toAlice) {
             privKey = RSAUtils.getAlicePrivateKey();
@@ -186,19 +167,15 @@ public class RSAUTF8 {
             modulus = RSAUtils.getBobModulus();
         }
 
-        List<BigInteger> decryptedBlocks = new ArrayList<>();
         long startTime = System.currentTimeMillis();
-        for (BigInteger block : result.blocks) {
-            BigInteger plainBlock = schnelleExponentiation.pow(block, privKey, modulus);
-            decryptedBlocks.add(plainBlock);
-        }
+        BlockBatchEvent event = BlockBatchEvent.start();
+        BlockArray decryptedBlocks = executor.pow(result.blocks, privKey, modulus, getEncryptionBlockSize(modulus));
+        event.finish("decrypt", "RSAUTF8", result.blocks.size(), result.blocks.byteLength(), -1);
         //System.out.println("verwendeter modulus: " + modulus);
         long decryptionTime = System.currentTimeMillis() - startTime;
         //System.out.println("Entschlüsselungszeit: " + decryptionTime + " ms");
 
-        int blockSize = getEncryptionBlockSize(modulus);
-        byte[] allBytes = bigIntegerBlocksToBytes(decryptedBlocks, blockSize);
-        return new String(allBytes, StandardCharsets.UTF_8).trim();
+        return decryptedBlocks.toByteArray();
     }
 
     public void setPublicKey(BigInteger modulus, BigInteger pubKey) {
@@ -211,6 +188,12 @@ public class RSAUTF8 {
         }
     }
 
+    /** Gibt einen im Konstruktor angelegten Pool frei; geteilte oder übergebene Executors bleiben unberührt. */
+    @Override
+    public void close() {
+        if (ownsExecutor) executor.close();
+    }
+
     // Demo main (optional)
     public static void main(String[] args) {
         RSAUTF8 rsa = new RSAUTF8(1024);
@@ -230,23 +213,23 @@ public class RSAUTF8 {
         RSAResult result = rsa.encrypt(messageAliceToBob, true);
 
         System.out.println("\nVerschlüsselte Blöcke (als BigInteger):");
-        for (BigInteger block : result.blocks) {
-            System.out.println(block);
+        for (int i = 0; i < result.blocks.size(); i++) {
+            System.out.println(result.blocks.get(i));
         }
 
-        String base64Cipher = blocksToBase64String(result.blocks, RSAUtils.getBobModulus());
+        String base64Cipher = blocksToBase64String(result.blocks);
         System.out.println("\nGesamtes Chiffrat (Alice→Bob, Base64):\n" + base64Cipher);
 
         // Nur wenn Bob privat vorhanden ist, kannst du jetzt „bei Bob“ entschlüsseln.
         try {
-            List<BigInteger> recoveredBlocks = base64StringToBlocks(base64Cipher, RSAUtils.getBobModulus());
+            BlockArray recoveredBlocks = base64StringToBlocks(base64Cipher, RSAUtils.getBobModulus());
             RSAResult recoveredResult = new RSAResult(recoveredBlocks);
             String decrypted = rsa.decrypt(recoveredResult, false);
             System.out.println("\nBob entschlüsselt:\n" + decrypted);
         } catch (IllegalStateException ex) {
             System.out.println("\n[Hinweis] Bob kann nicht entschlüsseln: " + ex.getMessage());
             System.out.println("          Entschlüssele stattdessen bei Alice (Demo):");
-            List<BigInteger> recoveredBlocks = base64StringToBlocks(base64Cipher, RSAUtils.getAliceModulus());
+            BlockArray recoveredBlocks = base64StringToBlocks(base64Cipher, RSAUtils.getAliceModulus());
             RSAResult recoveredResult = new RSAResult(recoveredBlocks);
             String decryptedAtAlice = rsa.decrypt(recoveredResult, true);
             System.out.println("\nAlice entschlüsselt (Demo):\n" + decryptedAtAlice);
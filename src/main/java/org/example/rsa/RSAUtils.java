@@ -45,9 +45,18 @@ public final class RSAUtils {
         // bob_d.txt ist aktuell NICHT geschrieben – versuche optional zu laden
         bobD = tryReadBig("bob_d.txt"); // kann null sein
 
+        // Entschlüsseln mit (d, n) läuft damit über geblendetes CRT (Bobs Dateien teilen sich n und d mit Alice)
+        CrtKeyContext.register(new CrtKeyContext(aliceN, aliceE, aliceD, aliceP, aliceQ, aliceDP, aliceDQ, aliceQInv));
+
         loaded = true;
     }
 
+    /** Verwirft die zwischengespeicherten Schlüssel und liest die Dateien neu (z. B. nach einer neuen KeyGen). */
+    public static synchronized void reloadKeysFromFiles() throws IOException {
+        loaded = false;
+        loadKeysFromFiles();
+    }
+
     // ----------------- Getter Alice -----------------
     public static BigInteger getAliceModulus()     { ensureLoaded(); return aliceN; }
     public static BigInteger getAlicePublicKey()   { ensureLoaded(); return aliceE; }
@@ -0,0 +1,201 @@
+package org.example.rsa.mpj;
+
+import mpi.Intracomm;
+import mpi.MPI;
+
+import java.math.BigInteger;
+import java.util.function.UnaryOperator;
+
+import org.example.HostTopology;
+import org.example.PerfCounters;
+import org.example.PerfCounters.Counter;
+import org.example.TraceRecorder;
+import org.example.TraceRecorder.Category;
+import org.example.jfr.CollectiveEvent;
+import org.example.rsa.BlockArray;
+import org.example.rsa.BlockExecutor;
+
+/**
+ * Verteilung eines Block-Batches über alle Ranks ohne Java-Serialisierung:
+ *
+ * - Eingabe liegt auf Rank 0 als zusammenhängendes byte[] aus Blöcken fester Breite (inWidth).
+ * - Scatterv gibt jedem Rank einen zusammenhängenden Bereich (ausgeglichene Aufteilung).
+ * - Jeder Rank rechnet x^exp mod n und schreibt Ergebnisse fester Breite (outWidth).
+ * - Gatherv sammelt direkt in den Ausgabepuffer von Rank 0 – ohne Indexarrays, in Eingabereihenfolge.
+ *
+ * Netzvolumen pro Rank: O(total / size) statt O(total) beim Bcast aller Blöcke.
+ *
+ * scatterComputeHierarchical verteilt zweistufig (Leader übers Netz, dann innerhalb des Hosts) und rechnet
+ * pro Rank mit mehreren Threads – gedacht für einen Rank pro Host (siehe HostTopology).
+ */
+public final class BlockScatter {
+
+    private BlockScatter() {}
+
+    /** Ausgeglichene, zusammenhängende Aufteilung: die ersten (total % size) Ranks bekommen einen Block mehr. */
+    public static int[] partition(int total, int size) {
+        int[] counts = new int[size];
+        int base = total / size, rest = total % size;
+        for (int r = 0; r < size; r++) counts[r] = base + (r < rest ? 1 : 0);
+        return counts;
+    }
+
+    /** Aufteilung proportional zu weights (z. B. Ranks pro Host); Rest geht an die ersten Einträge. */
+    public static int[] weightedPartition(int total, int[] weights) {
+        int sum = 0;
+        for (int w : weights) sum += w;
+        int[] counts = new int[weights.length];
+        int assigned = 0;
+        for (int i = 0; i < weights.length; i++) {
+            counts[i] = (int) ((long) total * weights[i] / sum);
+            assigned += counts[i];
+        }
+        for (int i = 0; assigned < total; i = (i + 1) % weights.length) {
+            counts[i]++;
+            assigned++;
+        }
+        return counts;
+    }
+
+    /** Präfixsummen von counts[i] * width als Byte-Offsets. */
+    public static int[] displacements(int[] counts, int width) {
+        int[] displs = new int[counts.length];
+        for (int r = 1; r < counts.length; r++) displs[r] = displs[r - 1] + counts[r - 1] * width;
+        return displs;
+    }
+
+    private static int[] scale(int[] counts, int width) {
+        int[] bytes = new int[counts.length];
+        for (int r = 0; r < counts.length; r++) bytes[r] = counts[r] * width;
+        return bytes;
+    }
+
+    /**
+     * Rechnet count Blöcke: out[outOff + i*outWidth] = (in[inOff + i*inWidth])^exp mod n (siehe BlockExecutor.kernel).
+     */
+    public static void computeSlice(byte[] in, int inOff, int count, int inWidth,
+                                    byte[] out, int outOff, int outWidth,
+                                    BigInteger exp, BigInteger n) {
+        long t0 = PerfCounters.start();
+        BlockArray src = BlockArray.wrap(in, inOff, count, inWidth);
+        BlockArray dst = BlockArray.wrap(out, outOff, count, outWidth);
+        UnaryOperator<BigInteger> pow = BlockExecutor.kernel(exp, n);
+        for (int i = 0; i < count; i++) dst.set(i, pow.apply(src.get(i)));
+        PerfCounters.stop(Counter.COMPUTE_NANOS, t0);
+        PerfCounters.add(Counter.BLOCKS, count);
+    }
+
+    /** Wie computeSlice, aber die Blöcke werden über executor auf mehrere Threads verteilt (direkt zwischen den Puffern). */
+    public static void computeSlice(byte[] in, int inOff, int count, int inWidth,
+                                    byte[] out, int outOff, int outWidth,
+                                    BigInteger exp, BigInteger n, BlockExecutor executor) {
+        long t0 = PerfCounters.start();
+        executor.map(BlockArray.wrap(in, inOff, count, inWidth), BlockArray.wrap(out, outOff, count, outWidth),
+                BlockExecutor.kernel(exp, n));
+        PerfCounters.stop(Counter.COMPUTE_NANOS, t0);
+        PerfCounters.add(Counter.BLOCKS, count);
+    }
+
+    /**
+     * Verteilt total Blöcke aus inBatch (nur Rank 0) per Scatterv, rechnet lokal und sammelt per Gatherv
+     * nach outBatch (nur Rank 0). Alle Ranks müssen total, Breiten und Schlüssel kennen.
+     */
+    public static void scatterCompute(Intracomm comm, byte[] inBatch, int total, int inWidth,
+                                      byte[] outBatch, int outWidth,
+                                      BigInteger exp, BigInteger n) {
+        int rank = comm.Rank();
+        int size = comm.Size();
+
+        int[] counts = partition(total, size);
+        int mine = counts[rank];
+
+        byte[] localIn = new byte[mine * inWidth];
+        byte[] localOut = new byte[mine * outWidth];
+
+        long w0 = PerfCounters.start();
+        CollectiveEvent jfr = CollectiveEvent.start();
+        comm.Scatterv(rank == 0 ? inBatch : localIn, 0, scale(counts, inWidth), displacements(counts, inWidth), MPI.BYTE,
+                localIn, 0, localIn.length, MPI.BYTE, 0);
+        PerfCounters.stop(Counter.COLLECTIVE_WAIT_NANOS, Counter.COLLECTIVE_CALLS, w0);
+        TraceRecorder.end("Scatterv", Category.COMM, w0);
+        jfr.finish("Scatterv", localIn.length, comm);
+
+        long c0 = TraceRecorder.begin();
+        computeSlice(localIn, 0, mine, inWidth, localOut, 0, outWidth, exp, n);
+        TraceRecorder.end("Rechnen", Category.COMPUTE, c0);
+
+        w0 = PerfCounters.start();
+        jfr = CollectiveEvent.start();
+        comm.Gatherv(localOut, 0, localOut.length, MPI.BYTE,
+                rank == 0 ? outBatch : localOut, 0, scale(counts, outWidth), displacements(counts, outWidth), MPI.BYTE, 0);
+        PerfCounters.stop(Counter.COLLECTIVE_WAIT_NANOS, Counter.COLLECTIVE_CALLS, w0);
+        TraceRecorder.end("Gatherv", Category.COMM, w0);
+        jfr.finish("Gatherv", localOut.length, comm);
+    }
+
+    /**
+     * Zweistufige Variante von scatterCompute:
+     * 1) Rank 0 verteilt per Scatterv nur an die Host-Leader (Anteil proportional zu den Ranks pro Host),
+     * 2) jeder Leader verteilt im Host weiter, 3) jeder Rank rechnet mit executor (Threads),
+     * 4) Gatherv im Host, dann Gatherv der Leader nach Rank 0.
+     * Übers Netz gehen damit hostCount statt size Nachrichten pro Richtung.
+     */
+    public static void scatterComputeHierarchical(HostTopology topo, byte[] inBatch, int total, int inWidth,
+                                                  byte[] outBatch, int outWidth,
+                                                  BigInteger exp, BigInteger n, BlockExecutor executor) {
+        Intracomm local = topo.local();
+        Intracomm leaders = topo.leaders();
+
+        int[] hostCounts = weightedPartition(total, topo.ranksPerHost());
+        int hostTotal = hostCounts[topo.hostIndex()];
+        byte[] hostIn = topo.isLeader() ? new byte[hostTotal * inWidth] : null;
+        byte[] hostOut = topo.isLeader() ? new byte[hostTotal * outWidth] : null;
+
+        long w0;
+        CollectiveEvent jfr;
+        if (leaders != null) {
+            w0 = PerfCounters.start();
+            jfr = CollectiveEvent.start();
+            leaders.Scatterv(inBatch != null ? inBatch : hostIn, 0, scale(hostCounts, inWidth), displacements(hostCounts, inWidth), MPI.BYTE,
+                    hostIn, 0, hostIn.length, MPI.BYTE, 0);
+            PerfCounters.stop(Counter.COLLECTIVE_WAIT_NANOS, Counter.COLLECTIVE_CALLS, w0);
+            TraceRecorder.end("Scatterv Leader", Category.COMM, w0);
+            jfr.finish("Scatterv Leader", hostIn.length, leaders);
+        }
+
+        int[] counts = partition(hostTotal, local.Size());
+        int mine = counts[local.Rank()];
+        byte[] localIn = new byte[mine * inWidth];
+        byte[] localOut = new byte[mine * outWidth];
+
+        w0 = PerfCounters.start();
+        jfr = CollectiveEvent.start();
+        local.Scatterv(hostIn != null ? hostIn : localIn, 0, scale(counts, inWidth), displacements(counts, inWidth), MPI.BYTE,
+                localIn, 0, localIn.length, MPI.BYTE, 0);
+        PerfCounters.stop(Counter.COLLECTIVE_WAIT_NANOS, Counter.COLLECTIVE_CALLS, w0);
+        TraceRecorder.end("Scatterv Host", Category.COMM, w0);
+        jfr.finish("Scatterv Host", localIn.length, local);
+
+        long c0 = TraceRecorder.begin();
+        computeSlice(localIn, 0, mine, inWidth, localOut, 0, outWidth, exp, n, executor);
+        TraceRecorder.end("Rechnen", Category.COMPUTE, c0);
+
+        w0 = PerfCounters.start();
+        jfr = CollectiveEvent.start();
+        local.Gatherv(localOut, 0, localOut.length, MPI.BYTE,
+                hostOut != null ? hostOut : localOut, 0, scale(counts, outWidth), displacements(counts, outWidth), MPI.BYTE, 0);
+        PerfCounters.stop(Counter.COLLECTIVE_WAIT_NANOS, Counter.COLLECTIVE_CALLS, w0);
+        TraceRecorder.end("Gatherv Host", Category.COMM, w0);
+        jfr.finish("Gatherv Host", localOut.length, local);
+
+        if (leaders != null) {
+            w0 = PerfCounters.start();
+            jfr = CollectiveEvent.start();
+            leaders.Gatherv(hostOut, 0, hostOut.length, MPI.BYTE,
+                    outBatch != null ? outBatch : hostOut, 0, scale(hostCounts, outWidth), displacements(hostCounts, outWidth), MPI.BYTE, 0);
+            PerfCounters.stop(Counter.COLLECTIVE_WAIT_NANOS, Counter.COLLECTIVE_CALLS, w0);
+            TraceRecorder.end("Gatherv Leader", Category.COMM, w0);
+            jfr.finish("Gatherv Leader", hostOut.length, leaders);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.rsa.mpj;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.example.rsa.Base64BlockIO;
+import org.example.rsa.BlockCodec;
+
+/**
+ * Quellen und Senken für Blöcke fester Breite auf Rank 0.
+ * Die Treiber lesen darüber batchweise ein und schreiben in Eingabereihenfolge aus,
+ * unabhängig davon, ob die Verteilung statisch, dynamisch oder gepipelined erfolgt.
+ */
+public final class BlockStreams {
+
+    private BlockStreams() {}
+
+    /** Füllt dst mit bis zu maxBlocks Blöcken fester Breite; liefert die Anzahl, 0 am Ende. */
+    public interface BlockSource {
+        int read(byte[] dst, int maxBlocks) throws IOException;
+    }
+
+    /** Nimmt count Ergebnisblöcke ab src[0] entgegen (Aufrufe in Eingabereihenfolge). */
+    public interface BlockSink {
+        void write(byte[] src, int count) throws IOException;
+
+        /** Wird nach dem letzten Block aufgerufen. */
+        default void finish() throws IOException {}
+    }
+
+    /** Klartext aus einem Stream; der letzte Block wird mit Nullen aufgefüllt. */
+    public static BlockSource plain(InputStream in, int width) {
+        return (dst, maxBlocks) -> {
+            int len = in.readNBytes(dst, 0, maxBlocks * width);
+            if (len == 0) return 0;
+            int count = BlockCodec.blockCount(len, width);
+            Arrays.fill(dst, len, count * width, (byte) 0);
+            return count;
+        };
+    }
+
+    /** Base64-Chiffrat (Format wie blocksToBase64String). */
+    public static BlockSource base64(Base64BlockIO.Reader reader) {
+        return reader::readBlockBytes;
+    }
+
+    /** Chiffratblöcke als Base64 schreiben. */
+    public static BlockSink base64(Base64BlockIO.Writer writer) {
+        return new BlockSink() {
+            @Override public void write(byte[] src, int count) throws IOException { writer.writeBlockBytes(src, 0, count); }
+            @Override public void finish() throws IOException { writer.close(); }
+        };
+    }
+
+    /**
+     * Klartextblöcke ausgeben; Null-Bytes am Ende werden zurückgehalten und nur nachgereicht,
+     * wenn danach wieder Daten folgen. Die Null-Auffüllung des letzten Blocks erscheint so nie.
+     */
+    public static BlockSink plainWithoutTrailingZeros(OutputStream out, int width) {
+        return new BlockSink() {
+            private long pendingZeros = 0;
+
+            @Override
+            public void write(byte[] data, int count) throws IOException {
+                int length = count * width;
+                int last = length - 1;
+                while (last >= 0 && data[last] == 0) last--;
+                if (last < 0) {
+                    pendingZeros += length;
+                    return;
+                }
+                for (; pendingZeros > 0; pendingZeros--) out.write(0);
+                out.write(data, 0, last + 1);
+                pendingZeros = length - 1 - last;
+            }
+
+            @Override
+            public void finish() throws IOException {
+                out.flush();
+            }
+        };
+    }
+}
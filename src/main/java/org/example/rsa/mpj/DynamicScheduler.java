@@ -0,0 +1,130 @@
+package org.example.rsa.mpj;
+
+import mpi.Intracomm;
+import mpi.MPI;
+import mpi.Status;
+
+import java.math.BigInteger;
+
+import org.example.PerfCounters;
+import org.example.PerfCounters.Counter;
+import org.example.TraceRecorder;
+import org.example.TraceRecorder.Category;
+
+/**
+ * Dynamische Lastverteilung (Master/Worker, Self-Scheduling mit „guided“ Chunkgrößen) für einen Block-Batch.
+ *
+ * - Rank 0 hält Ein- und Ausgabepuffer und vergibt Chunks auf Anfrage: chunk = max(minChunk, rest / (2 * size)).
+ *   Große Chunks am Anfang sparen Nachrichten, kleine am Ende gleichen langsame Rechner aus.
+ * - Worker schicken mit jeder Anfrage das Ergebnis ihres letzten Chunks mit (Recv direkt an den Zieloffset).
+ * - Rank 0 rechnet zwischen den Anfragen selbst mit, jeweils blockweise, damit Worker nicht warten müssen.
+ *
+ * Gleiche Signatur wie BlockScatter.scatterCompute; Ergebnis liegt in outBatch auf Rank 0.
+ */
+public final class DynamicScheduler {
+
+    private static final int TAG_REQUEST = 300;
+    private static final int TAG_RESULT  = 301;
+    private static final int TAG_ASSIGN  = 302;
+    private static final int TAG_WORK    = 303;
+
+    private DynamicScheduler() {}
+
+    /** Guided Self-Scheduling: Chunkgröße schrumpft mit der Restmenge, nie unter minChunk (außer am Ende). */
+    static int guidedChunk(int remaining, int size, int minChunk) {
+        if (remaining <= 0) return 0;
+        int chunk = Math.max(minChunk, (remaining + 2 * size - 1) / (2 * size));
+        return Math.min(chunk, remaining);
+    }
+
+    public static void compute(Intracomm comm, byte[] inBatch, int total, int inWidth,
+                               byte[] outBatch, int outWidth,
+                               BigInteger exp, BigInteger n, int minChunk) {
+        if (comm.Rank() == 0) {
+            master(comm, inBatch, total, inWidth, outBatch, outWidth, exp, n, Math.max(1, minChunk));
+        } else {
+            worker(comm, inWidth, outWidth, exp, n);
+        }
+    }
+
+    private static void master(Intracomm comm, byte[] in, int total, int inWidth,
+                               byte[] out, int outWidth, BigInteger exp, BigInteger n, int minChunk) {
+        int size = comm.Size();
+        int next = 0;                 // nächster noch nicht vergebener Block
+        int activeWorkers = size - 1; // Worker, die noch kein Ende-Signal bekommen haben
+        int ownPos = 0, ownEnd = 0;   // eigener Chunk von Rank 0
+
+        int[] req = new int[2];
+        while (activeWorkers > 0 || ownPos < ownEnd || next < total) {
+            // 1) Anfragen haben Vorrang: Worker nie warten lassen
+            Status st = (activeWorkers > 0) ? comm.Iprobe(MPI.ANY_SOURCE, TAG_REQUEST) : null;
+
+            // 2) Nichts zu tun außer warten → blockierend auf die nächste Anfrage
+            if (st == null && ownPos >= ownEnd && next >= total) {
+                long w0 = PerfCounters.start();
+                st = comm.Probe(MPI.ANY_SOURCE, TAG_REQUEST);
+                PerfCounters.stop(Counter.P2P_WAIT_NANOS, w0);
+                TraceRecorder.end("Warten auf Anfrage", Category.WAIT, w0);
+            }
+
+            if (st != null) {
+                int src = st.source;
+                comm.Recv(req, 0, 2, MPI.INT, src, TAG_REQUEST);
+                if (req[1] > 0) {
+                    comm.Recv(out, req[0] * outWidth, req[1] * outWidth, MPI.BYTE, src, TAG_RESULT);
+                }
+                int chunk = guidedChunk(total - next, size, minChunk);
+                comm.Send(new int[]{next, chunk}, 0, 2, MPI.INT, src, TAG_ASSIGN);
+                if (chunk > 0) {
+                    comm.Send(in, next * inWidth, chunk * inWidth, MPI.BYTE, src, TAG_WORK);
+                    next += chunk;
+                } else {
+                    activeWorkers--;
+                }
+                continue;
+            }
+
+            // 3) Selbst rechnen: eigenen Chunk blockweise abarbeiten, dann neuen nehmen
+            if (ownPos >= ownEnd) {
+                int chunk = guidedChunk(total - next, size, minChunk);
+                ownPos = next;
+                ownEnd = next + chunk;
+                next = ownEnd;
+            }
+            if (ownPos < ownEnd) {
+                BlockScatter.computeSlice(in, ownPos * inWidth, 1, inWidth, out, ownPos * outWidth, outWidth, exp, n);
+                ownPos++;
+            }
+        }
+    }
+
+    private static void worker(Intracomm comm, int inWidth, int outWidth, BigInteger exp, BigInteger n) {
+        int[] req = new int[]{0, 0};
+        int[] assign = new int[2];
+        byte[] inBuf = new byte[0];
+        byte[] outBuf = new byte[0];
+        while (true) {
+            comm.Send(req, 0, 2, MPI.INT, 0, TAG_REQUEST);
+            if (req[1] > 0) {
+                comm.Send(outBuf, 0, req[1] * outWidth, MPI.BYTE, 0, TAG_RESULT);
+            }
+            long w0 = PerfCounters.start();
+            comm.Recv(assign, 0, 2, MPI.INT, 0, TAG_ASSIGN);
+            PerfCounters.stop(Counter.P2P_WAIT_NANOS, w0);
+            TraceRecorder.end("Warten auf Zuteilung", Category.WAIT, w0);
+            int count = assign[1];
+            if (count == 0) return;
+
+            if (inBuf.length < count * inWidth) {
+                inBuf = new byte[count * inWidth];
+                outBuf = new byte[count * outWidth];
+            }
+            comm.Recv(inBuf, 0, count * inWidth, MPI.BYTE, 0, TAG_WORK);
+            long c0 = TraceRecorder.begin();
+            BlockScatter.computeSlice(inBuf, 0, count, inWidth, outBuf, 0, outWidth, exp, n);
+            TraceRecorder.end("Rechnen", Category.COMPUTE, c0);
+            req[0] = assign[0];
+            req[1] = count;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package org.example.rsa.mpj;
+
+import mpi.Intracomm;
+import mpi.MPI;
+import mpi.Request;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+
+import org.example.PerfCounters;
+import org.example.PerfCounters.Counter;
+import org.example.TraceRecorder;
+import org.example.TraceRecorder.Category;
+import org.example.jfr.BlockBatchEvent;
+
+/**
+ * Gepipelinete Verarbeitung großer Eingaben mit Doppelpuffern (Isend/Irecv).
+ *
+ * - Rank 0 ist I/O-Rank: liest Chunk k+1, während die Worker Chunk k rechnen, und schreibt fertige Chunks
+ *   in Eingabereihenfolge (geordnete Wiederzusammensetzung über eine FIFO der laufenden Chunks).
+ * - Jeder Worker hat zwei Slots: während er einen Chunk rechnet, läuft der Empfang des nächsten bereits.
+ * - Es sind höchstens 2 * (size - 1) Chunks unterwegs → Rank 0 hält nie den ganzen Datensatz.
+ *
+ * Durchsatz nähert sich damit max(Rechnen, I/O) statt der Summe beider Phasen.
+ * Header (seq, count, Lamport) und Ergebnis (Blöcke + 8 Byte Lamport) tragen den Zähler von TraceRecorder mit.
+ * Mit nur einem Prozess wird lokal gelesen → gerechnet → geschrieben.
+ */
+public final class PipelinedStream {
+
+    private static final int TAG_HEADER = 400;
+    private static final int TAG_DATA   = 401;
+    private static final int TAG_RESULT = 402;
+
+    /** Lamport-Zähler des Workers hinter den Ergebnisblöcken. */
+    private static final int STAMP_BYTES = Long.BYTES;
+
+    private PipelinedStream() {}
+
+    /** Ein Chunk auf Rank 0, der gerade bei einem Worker ist. */
+    private static final class Chunk {
+        final byte[] in;
+        byte[] out;          // wird nach Eingang des Ergebnisses gegen den Reservepuffer getauscht
+        final long[] header = new long[3];
+        int worker;
+        int count;
+        Request[] sends;
+        Request result;
+
+        Chunk(int inBytes, int outBytes) {
+            in = new byte[inBytes];
+            out = new byte[outBytes + STAMP_BYTES];
+        }
+    }
+
+    /**
+     * Verarbeitet die komplette Quelle. source/sink werden nur auf Rank 0 benutzt (sonst null).
+     * @return Anzahl verarbeiteter Blöcke (nur auf Rank 0 aussagekräftig)
+     */
+    public static long run(Intracomm comm, BlockStreams.BlockSource source, BlockStreams.BlockSink sink,
+                           int chunkBlocks, int inWidth, int outWidth,
+                           BigInteger exp, BigInteger n) throws IOException {
+        int rank = comm.Rank();
+        int size = comm.Size();
+        if (size == 1) return runLocal(source, sink, chunkBlocks, inWidth, outWidth, exp, n);
+        if (rank != 0) {
+            worker(comm, chunkBlocks, inWidth, outWidth, exp, n);
+            return 0;
+        }
+
+        int workers = size - 1;
+        ArrayDeque<Chunk> free = new ArrayDeque<>();
+        for (int i = 0; i < 2 * workers; i++) free.add(new Chunk(chunkBlocks * inWidth, chunkBlocks * outWidth));
+        ArrayDeque<Chunk> inFlight = new ArrayDeque<>();
+        // Reserve-Ausgabepuffer: ein fertiger Chunk geht sofort wieder auf die Reise, sein Ergebnis wird aus diesem
+        // Puffer geschrieben → es bleiben durchgehend 2 Chunks pro Worker unterwegs
+        byte[] spareOut = new byte[chunkBlocks * outWidth + STAMP_BYTES];
+
+        long seq = 0, total = 0;
+        boolean eof = false;
+
+        // Vorfüllen: jeder Worker bekommt zwei Chunks (einen zum Rechnen, einen im Empfang)
+        while (!eof && !free.isEmpty()) {
+            eof = !dispatch(comm, source, free.poll(), free, inFlight, seq, workers, chunkBlocks, inWidth, outWidth);
+            if (!eof) seq++;
+        }
+
+        while (!inFlight.isEmpty()) {
+            Chunk c = inFlight.poll();
+            long w0 = PerfCounters.start();
+            c.result.Wait();
+            Request.Waitall(c.sends);
+            PerfCounters.stop(Counter.P2P_WAIT_NANOS, w0);
+            TraceRecorder.end("Warten auf Ergebnis", Category.WAIT, w0);
+            TraceRecorder.receiveStamp(readStamp(c.out, c.count * outWidth));
+
+            // Ergebnis in den Reservepuffer tauschen, dann c (Eingabe ist versendet) sofort mit dem nächsten Chunk
+            // füllen und verschicken, bevor geschrieben wird → Worker bleiben ausgelastet
+            byte[] done = c.out;
+            int doneCount = c.count;
+            c.out = spareOut;
+            spareOut = done;
+            if (!eof) {
+                eof = !dispatch(comm, source, c, free, inFlight, seq, workers, chunkBlocks, inWidth, outWidth);
+                if (!eof) seq++;
+            } else {
+                free.add(c);
+            }
+
+            long io0 = TraceRecorder.begin();
+            sink.write(done, doneCount);
+            TraceRecorder.end("Schreiben", Category.IO, io0);
+            total += doneCount;
+        }
+
+        // Ende signalisieren: Header mit count = 0 plus leere Datennachricht (schließt das vorab gepostete Irecv)
+        for (int w = 1; w <= workers; w++) {
+            comm.Send(new long[]{-1, 0, TraceRecorder.sendStamp()}, 0, 3, MPI.LONG, w, TAG_HEADER);
+            comm.Send(new byte[0], 0, 0, MPI.BYTE, w, TAG_DATA);
+        }
+        sink.finish();
+        return total;
+    }
+
+    /**
+     * Liest den nächsten Chunk in c und schickt ihn an Worker 1 + seq % workers.
+     * @return false, wenn die Quelle erschöpft ist (c geht dann zurück in free)
+     */
+    private static boolean dispatch(Intracomm comm, BlockStreams.BlockSource source, Chunk c,
+                                    ArrayDeque<Chunk> free, ArrayDeque<Chunk> inFlight, long seq, int workers,
+                                    int chunkBlocks, int inWidth, int outWidth) throws IOException {
+        long io0 = TraceRecorder.begin();
+        int count = source.read(c.in, chunkBlocks);
+        TraceRecorder.end("Lesen", Category.IO, io0);
+        if (count == 0) {
+            free.add(c);
+            return false;
+        }
+        c.count = count;
+        c.worker = 1 + (int) (seq % workers);
+        c.header[0] = seq;
+        c.header[1] = count;
+        c.header[2] = TraceRecorder.sendStamp();
+        // Ergebnis-Irecv sofort posten; Ergebnisse eines Workers kommen in Sendereihenfolge
+        c.result = comm.Irecv(c.out, 0, count * outWidth + STAMP_BYTES, MPI.BYTE, c.worker, TAG_RESULT);
+        c.sends = new Request[]{
+                comm.Isend(c.header, 0, 3, MPI.LONG, c.worker, TAG_HEADER),
+                comm.Isend(c.in, 0, count * inWidth, MPI.BYTE, c.worker, TAG_DATA)
+        };
+        inFlight.add(c);
+        return true;
+    }
+
+    private static void worker(Intracomm comm, int chunkBlocks, int inWidth, int outWidth,
+                               BigInteger exp, BigInteger n) {
+        long[][] header = new long[2][3];
+        byte[][] in = {new byte[chunkBlocks * inWidth], new byte[chunkBlocks * inWidth]};
+        byte[][] out = {new byte[chunkBlocks * outWidth + STAMP_BYTES], new byte[chunkBlocks * outWidth + STAMP_BYTES]};
+        Request[] headerReq = new Request[2];
+        Request[] dataReq = new Request[2];
+        Request[] sendReq = new Request[2];
+
+        int slot = 0;
+        headerReq[0] = comm.Irecv(header[0], 0, 3, MPI.LONG, 0, TAG_HEADER);
+        dataReq[0] = comm.Irecv(in[0], 0, in[0].length, MPI.BYTE, 0, TAG_DATA);
+        while (true) {
+            long w0 = PerfCounters.start();
+            headerReq[slot].Wait();
+            dataReq[slot].Wait();
+            PerfCounters.stop(Counter.P2P_WAIT_NANOS, w0);
+            TraceRecorder.end("Warten auf Chunk", Category.WAIT, w0);
+            TraceRecorder.receiveStamp(header[slot][2]);
+            int count = (int) header[slot][1];
+            if (count == 0) break;
+
+            // Empfang des nächsten Chunks in den anderen Slot vorziehen
+            int other = 1 - slot;
+            headerReq[other] = comm.Irecv(header[other], 0, 3, MPI.LONG, 0, TAG_HEADER);
+            dataReq[other] = comm.Irecv(in[other], 0, in[other].length, MPI.BYTE, 0, TAG_DATA);
+
+            // Ausgabepuffer dieses Slots erst wiederverwenden, wenn sein letzter Versand durch ist
+            if (sendReq[slot] != null) {
+                w0 = PerfCounters.start();
+                sendReq[slot].Wait();
+                PerfCounters.stop(Counter.P2P_WAIT_NANOS, w0);
+                TraceRecorder.end("Warten auf Versand", Category.WAIT, w0);
+            }
+            long c0 = TraceRecorder.begin();
+            BlockBatchEvent jfr = BlockBatchEvent.start();
+            BlockScatter.computeSlice(in[slot], 0, count, inWidth, out[slot], 0, outWidth, exp, n);
+            jfr.finish("modexp", "pipeline", count, (long) count * inWidth, comm.Rank());
+            TraceRecorder.end("Rechnen", Category.COMPUTE, c0);
+            writeStamp(out[slot], count * outWidth, TraceRecorder.sendStamp());
+            sendReq[slot] = comm.Isend(out[slot], 0, count * outWidth + STAMP_BYTES, MPI.BYTE, 0, TAG_RESULT);
+
+            slot = other;
+        }
+        for (Request r : sendReq) {
+            if (r != null) r.Wait();
+        }
+    }
+
+    private static long runLocal(BlockStreams.BlockSource source, BlockStreams.BlockSink sink,
+                                 int chunkBlocks, int inWidth, int outWidth,
+                                 BigInteger exp, BigInteger n) throws IOException {
+        byte[] in = new byte[chunkBlocks * inWidth];
+        byte[] out = new byte[chunkBlocks * outWidth];
+        long total = 0;
+        int count;
+        while ((count = source.read(in, chunkBlocks)) > 0) {
+            long c0 = TraceRecorder.begin();
+            BlockBatchEvent jfr = BlockBatchEvent.start();
+            BlockScatter.computeSlice(in, 0, count, inWidth, out, 0, outWidth, exp, n);
+            jfr.finish("modexp", "lokal", count, (long) count * inWidth, 0);
+            TraceRecorder.end("Rechnen", Category.COMPUTE, c0);
+            sink.write(out, count);
+            total += count;
+        }
+        sink.finish();
+        return total;
+    }
+
+    private static void writeStamp(byte[] buf, int off, long stamp) {
+        for (int i = 0; i < STAMP_BYTES; i++) buf[off + i] = (byte) (stamp >>> (8 * (STAMP_BYTES - 1 - i)));
+    }
+
+    private static long readStamp(byte[] buf, int off) {
+        long v = 0;
+        for (int i = 0; i < STAMP_BYTES; i++) v = (v << 8) | (buf[off + i] & 0xFF);
+        return v;
+    }
+}
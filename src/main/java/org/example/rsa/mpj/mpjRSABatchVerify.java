@@ -0,0 +1,315 @@
+package org.example.rsa.mpj;
+
+import mpi.Intracomm;
+import mpi.MPI;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.example.Autotuner;
+import org.example.HostTopology;
+import org.example.LogicalTime;
+import org.example.PerfCounters;
+import org.example.SetupStatus;
+import org.example.TraceRecorder;
+import org.example.TuningProfile;
+import org.example.jfr.BlockBatchEvent;
+import org.example.rsa.Base64BlockIO;
+import org.example.rsa.BlockCodec;
+import org.example.rsa.BlockExecutor;
+import org.example.rsa.RSASignature;
+import org.example.rsa.RSAUtils;
+
+/**
+ * MPI-Wrapper: prüft viele RSA-Signaturen (PKCS#1 v1.5, SHA-256, siehe RSASignature) verteilt über mehrere Prozesse.
+ * Eingabe: Datensätze zeilenweise (-records=records.txt) und Signaturen als Base64 wie ein Chiffrat
+ * (-sigs=signatures.txt, erzeugt z. B. mit org.example.rsa.RSASignature); geprüft wird gegen Alices öffentlichen Schlüssel.
+ *
+ * Aufbau wie mpjRSADecrypt: Rank 0 liest Signaturblöcke batchweise, die Ranks rechnen s^e mod n
+ * (F4Kernel für e = 65537), Rank 0 vergleicht das Ergebnis mit der Kodierung des Datensatz-Hashes.
+ * Verteilung: statisch (Scatterv/Gatherv), -schedule=dynamic [-minchunk=4], -pipeline oder -hierarchical.
+ * Mit -out=datei werden die Zeilennummern ungültiger Datensätze geschrieben; Exit-Code 1, wenn eine Prüfung fehlschlägt.
+ */
+public class mpjRSABatchVerify {
+
+    /** Signaturen pro Batch (über -Drsa.batchBlocks=... änderbar); bestimmt den Heap-Bedarf auf Rank 0. */
+    private static final int BATCH_BLOCKS = Integer.getInteger("rsa.batchBlocks", 4096);
+
+    /** Höchstens so viele ungültige Zeilen auf der Konsole (alle stehen in -out). */
+    private static final int MAX_REPORTED = 10;
+
+    static {
+        try {
+            System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), true, StandardCharsets.UTF_8));
+            System.setErr(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.err)), true, StandardCharsets.UTF_8));
+        } catch (Exception ignored) {}
+    }
+
+    public static void main(String[] args) throws Exception {
+        MPI.Init(args);
+        long invalid = run(MPI.COMM_WORLD, args);
+        MPI.Finalize();
+        if (invalid > 0) System.exit(1);
+    }
+
+    /**
+     * Ein kompletter Lauf auf comm (alle Ranks rufen auf); MPI.Init/Finalize liegen beim Aufrufer.
+     * @return Anzahl ungültiger bzw. fehlender Signaturen (nur auf Rank 0 aussagekräftig)
+     */
+    public static long run(Intracomm comm, String[] args) throws Exception {
+        int rank = comm.Rank();
+        int size = comm.Size();
+        PerfCounters.reset();
+
+        boolean dynamic = false;
+        boolean pipeline = false;
+        boolean hierarchical = false;
+        String traceFile = null;   // -trace[=datei] → Chrome-/Perfetto-Zeitleiste aller Ranks
+        String tune = null;        // -tune[=force] → Autotuner für die Schlüsselgröße
+        int minChunk = 4;
+        String recordsFile = "records.txt";
+        String sigsFile = "signatures.txt";
+        String outFile = null;
+        for (String arg : args) {
+            if (arg.equalsIgnoreCase("-schedule=dynamic")) {
+                dynamic = true;
+            } else if (arg.equalsIgnoreCase("-pipeline")) {
+                pipeline = true;
+            } else if (arg.equalsIgnoreCase("-hierarchical")) {
+                hierarchical = true;
+            } else if (arg.equals("-trace")) {
+                traceFile = "logs/verify-trace.json";
+            } else if (arg.startsWith("-trace=")) {
+                traceFile = arg.substring(arg.indexOf('=') + 1);
+            } else if (arg.equals("-tune") || arg.startsWith("-tune=")) {
+                tune = arg;
+            } else if (arg.startsWith("-minchunk=")) {
+                minChunk = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("-records=")) {
+                recordsFile = arg.substring(arg.indexOf('=') + 1);
+            } else if (arg.startsWith("-sigs=")) {
+                sigsFile = arg.substring(arg.indexOf('=') + 1);
+            } else if (arg.startsWith("-out=")) {
+                outFile = arg.substring(arg.indexOf('=') + 1);
+            }
+        }
+
+        Base64BlockIO.Reader reader = null;
+        BigInteger e = null, n = null;
+        VerifySink sink = null;
+        BlockStreams.BlockSource source = null;
+
+        // Schlüssel laden und Eingabe öffnen nur auf Rank 0; ein Fehler (auch fehlende Eingabe) gilt für alle Ranks,
+        // damit keiner im Schlüssel-Broadcast hängt und ein Lauf ohne Prüfung nicht als "0 ungültig" endet
+        Exception setupError = null;
+        if (rank == 0) {
+            try {
+                if (!Files.isReadable(Path.of(sigsFile)) || !Files.isReadable(Path.of(recordsFile))) {
+                    throw new IOException("Datensätze (" + recordsFile + ") oder Signaturen (" + sigsFile + ") nicht lesbar.");
+                }
+                RSAUtils.loadKeysFromFiles();
+                e = RSAUtils.getAlicePublicKey();
+                n = RSAUtils.getAliceModulus();
+                int width = BlockCodec.forModulus(n).cipherBlockSize();
+                reader = Base64BlockIO.Reader.open(Path.of(sigsFile), width);
+                source = rangeChecked(BlockStreams.base64(reader), n, width);
+                sink = new VerifySink(Files.newBufferedReader(Path.of(recordsFile), StandardCharsets.UTF_8), width,
+                        outFile != null ? new PrintWriter(Files.newBufferedWriter(Path.of(outFile), StandardCharsets.UTF_8)) : null);
+            } catch (Exception ex) {
+                if (reader != null) reader.close();
+                setupError = ex;
+            }
+        }
+        SetupStatus.check(comm, 0, setupError);
+
+        if (traceFile != null) TraceRecorder.enable(rank, new LogicalTime(rank));
+
+        long t0 = System.currentTimeMillis();
+
+        HostTopology topo = (hierarchical && !pipeline) ? HostTopology.build(comm) : null;
+
+        // --- öffentlichen Schlüssel broadcasten ---
+        String[] keyMeta = new String[2];
+        if (rank == 0) {
+            keyMeta[0] = e.toString();
+            keyMeta[1] = n.toString();
+        }
+        comm.Bcast(keyMeta, 0, 2, MPI.OBJECT, 0);
+        e = new BigInteger(keyMeta[0]);
+        n = new BigInteger(keyMeta[1]);
+
+        TuningProfile.Params tuning = (tune != null)
+                ? Autotuner.ensure(comm, n.bitLength(), tune.equals("-tune=force"))
+                : TuningProfile.current().forKeyBits(n.bitLength());
+        tuning.activate();
+        int[] chunkBlocks = new int[]{ tuning.chunkBlocks };
+        comm.Bcast(chunkBlocks, 0, 1, MPI.INT, 0);
+
+        // Signatur und Ergebnis s^e mod n haben beide die Länge k = Bytelänge von n
+        int width = BlockCodec.forModulus(n).cipherBlockSize();
+
+        if (rank == 0) {
+            String mode = pipeline ? "Pipeline (Chunkgröße " + chunkBlocks[0] + ")"
+                    : topo != null ? "hierarchisch (" + topo.describe() + ", " + topo.threadsPerRank(tuning.threads) + " Threads/Rank)"
+                    : dynamic ? "dynamisch (min. Chunk " + minChunk + ")" : "statisch";
+            System.out.println("[Verify][Rank0] Prozesse: " + size + " | Batchgröße: " + BATCH_BLOCKS + " Signaturen"
+                    + " | Verteilung: " + mode);
+            System.out.println("[Verify][Rank0] Datensätze: " + recordsFile + " | Signaturen: " + sigsFile);
+        }
+
+        long total;
+        if (pipeline) {
+            total = PipelinedStream.run(comm, source, sink, chunkBlocks[0], width, width, e, n);
+        } else {
+            total = runBatched(comm, topo, source, sink, width, e, n, dynamic, minChunk, tuning.threads);
+        }
+        if (topo != null) topo.close();
+
+        long failed = 0;
+        if (rank == 0) {
+            reader.close();
+            long t1 = System.currentTimeMillis();
+            failed = sink.invalid + sink.missingSignatures + sink.missingRecords;
+            System.out.println("[Verify][Rank0] Signaturen geprüft: " + total + " | gültig: " + sink.valid
+                    + " | ungültig: " + sink.invalid);
+            if (sink.missingRecords > 0) System.out.println("[Verify][Rank0] Signaturen ohne Datensatz: " + sink.missingRecords);
+            if (sink.missingSignatures > 0) System.out.println("[Verify][Rank0] Datensätze ohne Signatur: " + sink.missingSignatures);
+            if (outFile != null) System.out.println("[Verify][Rank0] Ungültige Zeilen gespeichert in: " + outFile);
+            System.out.printf(Locale.ROOT, "[Verify][Rank0] Fertig in %d ms (%.0f Signaturen/s).%n",
+                    t1 - t0, total * 1000.0 / Math.max(1, t1 - t0));
+        }
+
+        PerfCounters.Totals counters = PerfCounters.reduce(comm, 0);
+        if (rank == 0) {
+            System.out.println("[Verify][Rank0] Zähler (Summe | Max pro Rank):");
+            System.out.print(counters.describe());
+        }
+
+        if (traceFile != null) {
+            TraceRecorder.exportChromeTrace(comm, Path.of(traceFile));
+            TraceRecorder.disable();
+            if (rank == 0) System.out.println("[Verify][Rank0] Trace geschrieben: " + Path.of(traceFile).toAbsolutePath());
+        }
+
+        return failed;
+    }
+
+    /**
+     * Batchweise: Rank 0 liest → statische, dynamische oder (topo != null) hierarchische Verteilung
+     * → Rank 0 vergleicht im VerifySink.
+     */
+    private static long runBatched(Intracomm comm, HostTopology topo, BlockStreams.BlockSource source, BlockStreams.BlockSink sink,
+                                   int width, BigInteger e, BigInteger n,
+                                   boolean dynamic, int minChunk, int hostThreads) throws Exception {
+        int rank = comm.Rank();
+        byte[] inBatch = (rank == 0) ? new byte[BATCH_BLOCKS * width] : null;
+        byte[] outBatch = (rank == 0) ? new byte[BATCH_BLOCKS * width] : null;
+        long total = 0;
+        try (BlockExecutor executor = (topo != null)
+                ? new BlockExecutor(topo.threadsPerRank(hostThreads), BlockExecutor.DEFAULT_SEQUENTIAL_CUTOFF) : null) {
+            while (true) {
+                int[] metaCount = new int[1];
+                if (rank == 0) {
+                    long io0 = TraceRecorder.begin();
+                    metaCount[0] = source.read(inBatch, BATCH_BLOCKS);
+                    TraceRecorder.end("Lesen", TraceRecorder.Category.IO, io0);
+                }
+                comm.Bcast(metaCount, 0, 1, MPI.INT, 0);
+                int count = metaCount[0];
+                if (count == 0) break;
+                BlockBatchEvent jfr = BlockBatchEvent.start();
+
+                if (topo != null) {
+                    BlockScatter.scatterComputeHierarchical(topo, inBatch, count, width, outBatch, width, e, n, executor);
+                } else if (dynamic) {
+                    DynamicScheduler.compute(comm, inBatch, count, width, outBatch, width, e, n, minChunk);
+                } else {
+                    BlockScatter.scatterCompute(comm, inBatch, count, width, outBatch, width, e, n);
+                }
+                jfr.finish("verify", (topo != null) ? "hierarchisch" : dynamic ? "dynamisch" : "statisch",
+                        count, (long) count * width, rank);
+                TraceRecorder.synchronize(comm);
+                if (rank == 0) {
+                    long io0 = TraceRecorder.begin();
+                    sink.write(outBatch, count);
+                    TraceRecorder.end("Vergleichen", TraceRecorder.Category.IO, io0);
+                    total += count;
+                }
+            }
+        }
+        if (rank == 0) sink.finish();
+        return total;
+    }
+
+    /**
+     * PKCS#1 verlangt s < n. Die Ranks rechnen modulo n, s + n ergäbe also dasselbe Ergebnis wie s →
+     * solche Blöcke werden vorab auf 0 gesetzt (0^e = 0 passt zu keiner Kodierung, die mit 00 01 beginnt).
+     */
+    private static BlockStreams.BlockSource rangeChecked(BlockStreams.BlockSource source, BigInteger n, int width) {
+        byte[] limit = new byte[width];
+        BlockCodec.writeBlock(n, limit, 0, width);
+        return (dst, maxBlocks) -> {
+            int count = source.read(dst, maxBlocks);
+            for (int i = 0; i < count; i++) {
+                int off = i * width;
+                if (Arrays.compareUnsigned(dst, off, off + width, limit, 0, width) >= 0) {
+                    Arrays.fill(dst, off, off + width, (byte) 0);
+                }
+            }
+            return count;
+        };
+    }
+
+    /** Rank 0: vergleicht s^e mod n blockweise mit der PKCS#1-Kodierung der Datensätze (gleiche Reihenfolge). */
+    private static final class VerifySink implements BlockStreams.BlockSink {
+        private final BufferedReader records;
+        private final int width;
+        private final PrintWriter out;   // null = nur Konsole
+        private long line;
+        long valid, invalid, missingRecords, missingSignatures;
+
+        VerifySink(BufferedReader records, int width, PrintWriter out) {
+            this.records = records;
+            this.width = width;
+            this.out = out;
+        }
+
+        @Override
+        public void write(byte[] src, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                String record = records.readLine();
+                line++;
+                if (record == null) {
+                    missingRecords++;
+                    continue;
+                }
+                byte[] digest = RSASignature.sha256(record.getBytes(StandardCharsets.UTF_8));
+                if (RSASignature.matchesEncoded(src, i * width, digest, width)) {
+                    valid++;
+                } else {
+                    if (invalid < MAX_REPORTED) System.out.println("[Verify][Rank0] ungültig: Zeile " + line);
+                    if (out != null) out.println(line);
+                    invalid++;
+                }
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            while (records.readLine() != null) missingSignatures++;
+            records.close();
+            if (out != null) out.close();
+        }
+    }
+}
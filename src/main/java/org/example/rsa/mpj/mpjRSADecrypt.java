@@ -6,25 +6,45 @@ import mpi.MPI;
 import java.io.BufferedOutputStream;
 import java.io.FileDescriptor;
 import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 
-import org.example.rsa.RSAUTF8;
+import org.example.Autotuner;
+import org.example.HostTopology;
+import org.example.LogicalTime;
+import org.example.PerfCounters;
+import org.example.SetupStatus;
+import org.example.TraceRecorder;
+import org.example.TuningProfile;
+import org.example.jfr.BlockBatchEvent;
+import org.example.rsa.Base64BlockIO;
+import org.example.rsa.BlockCodec;
+import org.example.rsa.BlockExecutor;
+import org.example.rsa.CrtKeyContext;
 import org.example.rsa.RSAUtils;
-import org.example.mpjkeygen.schnelleExponentiation;
 
 /**
  * MPI-Wrapper: verteilt RSA-Entschlüsselung (Block-weise) über mehrere Prozesse.
  * Eingabe: Base64 aus Datei (default "cipher.txt" oder irgendein *.txt-Arg) ODER direktes Base64.
  * MPJ hängt eigene Argumente vorn an; wir durchsuchen die Argumente von hinten und nehmen das erste valide.
+ * Chiffrat wird batchweise gestreamt; der Klartext wird fortlaufend auf stdout ausgegeben.
+ * Verteilung pro Batch: Scatterv/Gatherv fester Byte-Blöcke (siehe BlockScatter),
+ * oder mit -schedule=dynamic [-minchunk=4] Chunks auf Anfrage für heterogene Rechner (siehe DynamicScheduler),
+ * oder mit -pipeline Doppelpuffer-Streaming, das Lesen/Rechnen/Schreiben überlappt (siehe PipelinedStream),
+ * oder mit -hierarchical zweistufig über Host-Leader und Threads pro Rank (siehe HostTopology).
+ * Mit -out=datei wird der Klartext in eine Datei statt auf stdout geschrieben.
+ * Sind die Primfaktoren des Schlüssels bekannt, rechnet jeder Rank geblendetes CRT (siehe CrtKeyContext).
  */
 public class mpjRSADecrypt {
+
+    /** Blöcke pro Batch (über -Drsa.batchBlocks=... änderbar); bestimmt den Heap-Bedarf auf Rank 0. */
+    private static final int BATCH_BLOCKS = Integer.getInteger("rsa.batchBlocks", 4096);
+
+
     static {
         try {
             System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), true, StandardCharsets.UTF_8));
@@ -33,25 +53,27 @@ public class mpjRSADecrypt {
     }
 
 
-    /** Strenge Base64-Heuristik, um MPJ-Tokens (z. B. "smpdev") auszuschließen. */
+    /** Strenge Base64-Heuristik, um MPJ-Tokens (z. B. "smpdev") auszuschließen. Einmaliger Zeichendurchlauf, kein Regex. */
     private static boolean isBase64Strict(String s) {
         if (s == null) return false;
         s = s.trim();
         int len = s.length();
         if (len < 8 || (len % 4) != 0) return false;                 // sinnvolle Länge + 4er-Multiplikator
-        if (!s.matches("^[A-Za-z0-9+/=]+$")) return false;            // Alphabet
 
-        // Padding prüfen: '=' nur am Ende, max. 2
+        // Alphabet prüfen; '=' nur als Padding am Ende, max. 2
         int eq = 0;
-        for (int i = len - 1; i >= 0 && s.charAt(i) == '='; i--) eq++;
-        if (eq > 2) return false;
-        if (eq > 0 && s.substring(0, len - eq).contains("=")) return false;
-
-        // Für RSA-128-Byte-Blöcke ist Base64 typischerweise ≥ 172 Zeichen.
-        // Falls du kürzere Nachrichten hast, kommentiere die folgende Zeile aus:
-        // if (len < 64) return false;
-
-        return true;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c == '=') {
+                eq++;
+            } else if (eq > 0) {
+                return false;                                         // Zeichen nach Padding
+            } else if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')
+                    || (c >= '0' && c <= '9') || c == '+' || c == '/')) {
+                return false;
+            }
+        }
+        return eq <= 2;
     }
 
     /** Nimmt die Argumentliste und liefert entweder Base64 (String) oder null. */
@@ -68,13 +90,14 @@ public class mpjRSADecrypt {
         return null;
     }
 
-    /** Nimmt die Argumentliste und liefert den ersten *.txt-Pfad (von hinten), sonst null. */
+    /** Nimmt die Argumentliste und liefert den ersten *.txt-Pfad (von hinten), sonst null; Optionen (-out=…, -trace=…) zählen nicht. */
     private static String pickCipherFileFromArgs(String[] args) {
         if (args == null || args.length == 0) return null;
         for (int i = args.length - 1; i >= 0; i--) {
             String a = args[i];
             if (a == null) continue;
             a = a.trim();
+            if (a.startsWith("-")) continue;
             if (a.toLowerCase().endsWith(".txt")) return a;
         }
         return null;
@@ -82,131 +105,233 @@ public class mpjRSADecrypt {
 
     public static void main(String[] args) throws Exception {
         MPI.Init(args);
-        Intracomm comm = MPI.COMM_WORLD;
+        run(MPI.COMM_WORLD, args);
+        MPI.Finalize();
+    }
+
+    /**
+     * Ein kompletter Lauf auf comm (alle Ranks rufen auf). Wird von main und vom Job-Server
+     * (MpjJobServer) benutzt; MPI.Init/Finalize liegen beim Aufrufer.
+     * @return Anzahl verarbeiteter Blöcke (nur auf Rank 0 aussagekräftig)
+     */
+    public static long run(Intracomm comm, String[] args) throws Exception {
         int rank = comm.Rank();
         int size = comm.Size();
+        PerfCounters.reset();   // Zähler gelten pro Lauf (auch bei vielen Jobs im MpjJobServer)
+
+        // Verteilung: statisch (Scatterv/Gatherv, Standard), dynamisch (-schedule=dynamic, Master/Worker)
+        // oder gepipelined (-pipeline)
+        boolean dynamic = false;
+        boolean pipeline = false;
+        boolean hierarchical = false;
+        String traceFile = null;   // -trace[=datei] → Chrome-/Perfetto-Zeitleiste aller Ranks
+        String tune = null;        // -tune[=force] → Autotuner für die Schlüsselgröße
+        int minChunk = 4;
+        String outFile = null;
+        for (String arg : args) {
+            if (arg.equalsIgnoreCase("-schedule=dynamic")) {
+                dynamic = true;
+            } else if (arg.equalsIgnoreCase("-pipeline")) {
+                pipeline = true;
+            } else if (arg.equalsIgnoreCase("-hierarchical")) {
+                hierarchical = true;
+            } else if (arg.equals("-trace")) {
+                traceFile = "logs/decrypt-trace.json";
+            } else if (arg.startsWith("-trace=")) {
+                traceFile = arg.substring(arg.indexOf('=') + 1);
+            } else if (arg.equals("-tune") || arg.startsWith("-tune=")) {
+                tune = arg;
+            } else if (arg.startsWith("-minchunk=")) {
+                minChunk = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("-out=")) {
+                outFile = arg.substring(arg.indexOf('=') + 1);
+            }
+        }
 
-        String base64 = null;
+        Base64BlockIO.Reader reader = null;
+        BigInteger d = null, n = null;
+        OutputStream out = null;
+        BlockStreams.BlockSource source = null;
+        BlockStreams.BlockSink sink = null;
 
+        Exception setupError = null;
         if (rank == 0) {
-            // 1) Versuche zuerst Base64 aus den Args (strikt) zu ziehen
-            String argB64 = pickBase64FromArgs(args);
-
-            if (argB64 != null) {
-                base64 = argB64.trim();
-                System.out.println("[Decrypt][Rank0] Base64 aus Argument übernommen.");
-            } else {
-                // 2) Sonst: suche eine *.txt-Angabe, oder nimm Standarddatei
-                String inFile = pickCipherFileFromArgs(args);
-                if (inFile == null) inFile = "cipher.txt";
-                System.out.println("[Decrypt][Rank0] Lese Chiffrat aus Datei: " + inFile);
-                base64 = Files.readString(Path.of(inFile), StandardCharsets.UTF_8).trim();
+            // Schlüssel laden, Ein- und Ausgabe öffnen; Fehler erst nach dem Abgleich mit den anderen Ranks werfen
+            try {
+                RSAUtils.loadKeysFromFiles();
+                d = RSAUtils.getBobPrivateKey();  // setzt bob_d.txt voraus
+                n = RSAUtils.getBobModulus();
+                BlockCodec codec = BlockCodec.forModulus(n);
+                int cipherBlockSize = codec.cipherBlockSize();
+
+                // 1) Versuche zuerst Base64 aus den Args (strikt) zu ziehen
+                String argB64 = pickBase64FromArgs(args);
+
+                if (argB64 != null) {
+                    reader = Base64BlockIO.Reader.ofString(argB64.trim(), cipherBlockSize);
+                    System.out.println("[Decrypt][Rank0] Base64 aus Argument übernommen.");
+                } else {
+                    // 2) Sonst: suche eine *.txt-Angabe, oder nimm Standarddatei
+                    String inFile = pickCipherFileFromArgs(args);
+                    if (inFile == null) inFile = "cipher.txt";
+                    System.out.println("[Decrypt][Rank0] Lese Chiffrat aus Datei: " + inFile);
+                    if (Files.isReadable(Path.of(inFile))) {
+                        reader = Base64BlockIO.Reader.open(Path.of(inFile), cipherBlockSize);
+                    }
+                }
+
+                if (reader != null) {
+                    out = (outFile != null) ? new BufferedOutputStream(Files.newOutputStream(Path.of(outFile))) : System.out;
+                    source = BlockStreams.base64(reader);
+                    sink = BlockStreams.plainWithoutTrailingZeros(out, codec.plainBlockSize());
+                }
+            } catch (Exception ex) {
+                if (reader != null) reader.close();
+                setupError = ex;
             }
         }
+        SetupStatus.check(comm, 0, setupError);
 
-        // Broadcast „haben wir Base64?“
-        int[] hasB64 = new int[]{ (rank == 0 && base64 != null && !base64.isEmpty()) ? 1 : 0 };
+        // Broadcast „haben wir eine Eingabe?“
+        int[] hasB64 = new int[]{ (rank == 0 && reader != null) ? 1 : 0 };
         comm.Bcast(hasB64, 0, 1, MPI.INT, 0);
         if (hasB64[0] == 0) {
             if (rank == 0) System.err.println("Kein Base64-Chiffrat verfügbar.");
-            MPI.Finalize();
-            return;
+            return 0;
         }
 
-        BigInteger d = null, n = null;
-        BigInteger[] blocksArr = null;
-        int total = 0;
+        if (traceFile != null) TraceRecorder.enable(rank, new LogicalTime(rank));
 
         long t0 = System.currentTimeMillis();
 
-        if (rank == 0) {
-            // Schlüssel + Blöcke vorbereiten
-            RSAUtils.loadKeysFromFiles();
-            d = RSAUtils.getBobPrivateKey();  // setzt bob_d.txt voraus
-            n = RSAUtils.getBobModulus();
-
-            List<BigInteger> blocks = RSAUTF8.base64StringToBlocks(base64, n);
-            blocksArr = blocks.toArray(new BigInteger[0]);
-            total = blocksArr.length;
+        HostTopology topo = (hierarchical && !pipeline) ? HostTopology.build(comm) : null;
 
-            System.out.println("[Decrypt][Rank0] Blöcke gesamt: " + total + " | Prozesse: " + size);
-        }
-
-        // --- Meta ---
-        int[] metaTotal = new int[]{ total };
-        comm.Bcast(metaTotal, 0, 1, MPI.INT, 0);
-        total = metaTotal[0];
-
-        String[] keyMeta = new String[2];
+        // --- Schlüssel broadcasten (mit e, p, q, falls die Primfaktoren bekannt sind → geblendetes CRT auf allen Ranks) ---
+        String[] keyMeta = new String[5];
         if (rank == 0) {
+            CrtKeyContext crt = CrtKeyContext.lookup(d, n);
             keyMeta[0] = d.toString();
             keyMeta[1] = n.toString();
+            keyMeta[2] = RSAUtils.bigIntegerToStringSafe(crt != null ? crt.e : null);
+            keyMeta[3] = RSAUtils.bigIntegerToStringSafe(crt != null ? crt.p : null);
+            keyMeta[4] = RSAUtils.bigIntegerToStringSafe(crt != null ? crt.q : null);
         }
-        comm.Bcast(keyMeta, 0, 2, MPI.OBJECT, 0);
+        comm.Bcast(keyMeta, 0, 5, MPI.OBJECT, 0);
         d = new BigInteger(keyMeta[0]);
         n = new BigInteger(keyMeta[1]);
-
-        // --- Blöcke broadcasten ---
-        if (rank != 0) {
-            blocksArr = new BigInteger[total];
-        }
-        if (total > 0) {
-            comm.Bcast(blocksArr, 0, total, MPI.OBJECT, 0);
+        boolean useCrt = !keyMeta[3].isEmpty() && CrtKeyContext.ENABLED;
+        if (useCrt && rank != 0) {
+            CrtKeyContext.register(CrtKeyContext.fromPrimes(
+                    RSAUtils.stringToBigIntegerSafe(keyMeta[3]), RSAUtils.stringToBigIntegerSafe(keyMeta[4]),
+                    RSAUtils.stringToBigIntegerSafe(keyMeta[2]), d));
         }
 
-        // --- Lokale Round-Robin-Entschlüsselung ---
-        List<Integer> idx = new ArrayList<>();
-        List<BigInteger> vals = new ArrayList<>();
-        for (int i = rank; i < total; i += size) {
-            BigInteger p = schnelleExponentiation.pow(blocksArr[i], d, n);
-            idx.add(i);
-            vals.add(p);
-        }
-
-        int localCount = idx.size();
-        int[] idxArr = new int[localCount];
-        for (int i = 0; i < localCount; i++) idxArr[i] = idx.get(i);
-        BigInteger[] valArr = vals.toArray(new BigInteger[0]);
+        // Engine/Threads pro Host aus dem Tuning-Profil; die Chunkgröße muss auf allen Ranks gleich sein → von Rank 0
+        TuningProfile.Params tuning = (tune != null)
+                ? Autotuner.ensure(comm, n.bitLength(), tune.equals("-tune=force"))
+                : TuningProfile.current().forKeyBits(n.bitLength());
+        tuning.activate();
+        int[] chunkBlocks = new int[]{ tuning.chunkBlocks };
+        comm.Bcast(chunkBlocks, 0, 1, MPI.INT, 0);
 
         if (rank == 0) {
-            BigInteger[] result = new BigInteger[total];
+            String mode = pipeline ? "Pipeline (Chunkgröße " + chunkBlocks[0] + ")"
+                    : topo != null ? "hierarchisch (" + topo.describe() + ", " + topo.threadsPerRank(tuning.threads) + " Threads/Rank)"
+                    : dynamic ? "dynamisch (min. Chunk " + minChunk + ")" : "statisch";
+            System.out.println("[Decrypt][Rank0] Prozesse: " + size + " | Batchgröße: " + BATCH_BLOCKS + " Blöcke"
+                    + " | Verteilung: " + mode);
+            System.out.println("[Decrypt][Rank0] Tuning: " + tuning);
+            System.out.println("[Decrypt][Rank0] Rechenweg: " + (!useCrt ? "c^d mod n (ohne CRT)"
+                    : CrtKeyContext.BLINDING ? "CRT mit Blinding (neues r alle " + CrtKeyContext.REFRESH_INTERVAL + " Blöcke)"
+                    : "CRT ohne Blinding"));
+            if (outFile == null) System.out.println("\n=== Klartext ===");
+        }
 
-            // eigene
-            for (int i = 0; i < localCount; i++) result[idxArr[i]] = valArr[i];
+        BlockCodec codec = BlockCodec.forModulus(n);
+        int inWidth = codec.cipherBlockSize();
+        int outWidth = codec.plainBlockSize();
 
-            // andere
-            for (int r = 1; r < size; r++) {
-                int[] cArr = new int[1];
-                comm.Recv(cArr, 0, 1, MPI.INT, r, 200);
-                int c = cArr[0];
+        long total;
+        if (pipeline) {
+            total = PipelinedStream.run(comm, source, sink, chunkBlocks[0], inWidth, outWidth, d, n);
+        } else {
+            total = runBatched(comm, topo, source, sink, inWidth, outWidth, d, n, dynamic, minChunk, tuning.threads);
+        }
+        if (topo != null) topo.close();
 
-                int[] ridx = new int[c];
-                if (c > 0) comm.Recv(ridx, 0, c, MPI.INT, r, 201);
+        if (rank == 0) {
+            reader.close();
+            if (outFile != null) {
+                out.close();
+            } else {
+                System.out.println();
+            }
+            long t1 = System.currentTimeMillis();
+            System.out.println("[Decrypt][Rank0] Blöcke gesamt: " + total);
+            if (outFile != null) System.out.println("[Decrypt][Rank0] Klartext gespeichert in: " + outFile);
+            System.out.println("[Decrypt][Rank0] Fertig in " + (t1 - t0) + " ms.");
+        }
 
-                BigInteger[] rvals = new BigInteger[c];
-                if (c > 0) comm.Recv(rvals, 0, c, MPI.OBJECT, r, 202);
+        PerfCounters.Totals counters = PerfCounters.reduce(comm, 0);
+        if (rank == 0) {
+            System.out.println("[Decrypt][Rank0] Zähler (Summe | Max pro Rank):");
+            System.out.print(counters.describe());
+        }
 
-                for (int j = 0; j < c; j++) result[ridx[j]] = rvals[j];
-            }
+        if (traceFile != null) {
+            TraceRecorder.exportChromeTrace(comm, Path.of(traceFile));
+            TraceRecorder.disable();
+            if (rank == 0) System.out.println("[Decrypt][Rank0] Trace geschrieben: " + Path.of(traceFile).toAbsolutePath());
+        }
 
-            // Bytes zusammensetzen → UTF-8 String
-            List<BigInteger> plainBlocks = Arrays.asList(result);
-            int blockSize = RSAUTF8.getEncryptionBlockSize(n);
-            byte[] all = RSAUTF8.bigIntegerBlocksToBytes(plainBlocks, blockSize);
-            String text = new String(all, StandardCharsets.UTF_8).trim();
+        return total;
+    }
 
-            long t1 = System.currentTimeMillis();
-            System.out.println("[Decrypt][Rank0] Fertig in " + (t1 - t0) + " ms.");
-            System.out.println("\n=== Klartext ===\n" + text);
-        } else {
-            // an Rank 0 senden
-            comm.Send(new int[]{localCount}, 0, 1, MPI.INT, 0, 200);
-            if (localCount > 0) {
-                comm.Send(idxArr, 0, localCount, MPI.INT, 0, 201);
-                comm.Send(valArr, 0, localCount, MPI.OBJECT, 0, 202);
+    /**
+     * Batchweise: Rank 0 liest → statische, dynamische oder (topo != null) hierarchische Verteilung
+     * → Rank 0 gibt Klartext aus.
+     */
+    private static long runBatched(Intracomm comm, HostTopology topo, BlockStreams.BlockSource source, BlockStreams.BlockSink sink,
+                                   int inWidth, int outWidth, BigInteger d, BigInteger n,
+                                   boolean dynamic, int minChunk, int hostThreads) throws Exception {
+        int rank = comm.Rank();
+        byte[] inBatch = (rank == 0) ? new byte[BATCH_BLOCKS * inWidth] : null;
+        byte[] outBatch = (rank == 0) ? new byte[BATCH_BLOCKS * outWidth] : null;
+        long total = 0;
+        try (BlockExecutor executor = (topo != null)
+                ? new BlockExecutor(topo.threadsPerRank(hostThreads), BlockExecutor.DEFAULT_SEQUENTIAL_CUTOFF) : null) {
+            while (true) {
+                int[] metaCount = new int[1];
+                if (rank == 0) {
+                    long io0 = TraceRecorder.begin();
+                    metaCount[0] = source.read(inBatch, BATCH_BLOCKS);
+                    TraceRecorder.end("Lesen", TraceRecorder.Category.IO, io0);
+                }
+                comm.Bcast(metaCount, 0, 1, MPI.INT, 0);
+                int count = metaCount[0];
+                if (count == 0) break;
+                BlockBatchEvent jfr = BlockBatchEvent.start();
+
+                if (topo != null) {
+                    BlockScatter.scatterComputeHierarchical(topo, inBatch, count, inWidth, outBatch, outWidth, d, n, executor);
+                } else if (dynamic) {
+                    DynamicScheduler.compute(comm, inBatch, count, inWidth, outBatch, outWidth, d, n, minChunk);
+                } else {
+                    BlockScatter.scatterCompute(comm, inBatch, count, inWidth, outBatch, outWidth, d, n);
+                }
+                jfr.finish("decrypt", (topo != null) ? "hierarchisch" : dynamic ? "dynamisch" : "statisch",
+                        count, (long) count * inWidth, rank);
+                // Scatterv/Gatherv transportieren nur Blockbytes → Lamport-Abgleich separat (nur bei aktivem Tracing)
+                TraceRecorder.synchronize(comm);
+                if (rank == 0) {
+                    long io0 = TraceRecorder.begin();
+                    sink.write(outBatch, count);
+                    TraceRecorder.end("Schreiben", TraceRecorder.Category.IO, io0);
+                    total += count;
+                }
             }
         }
-
-        MPI.Finalize();
+        if (rank == 0) sink.finish();
+        return total;
     }
 }
@@ -3,25 +3,41 @@ package org.example.rsa.mpj;
 import mpi.Intracomm;
 import mpi.MPI;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.FileDescriptor;
 import java.io.FileOutputStream;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
-import org.example.rsa.RSAUTF8;
+import org.example.Autotuner;
+import org.example.HostTopology;
+import org.example.LogicalTime;
+import org.example.PerfCounters;
+import org.example.SetupStatus;
+import org.example.TraceRecorder;
+import org.example.TuningProfile;
+import org.example.jfr.BlockBatchEvent;
+import org.example.rsa.Base64BlockIO;
+import org.example.rsa.BlockCodec;
+import org.example.rsa.BlockExecutor;
 import org.example.rsa.RSAUtils;
-import org.example.mpjkeygen.schnelleExponentiation;
 
 /**
  * MPI-Wrapper: verteilt RSA-Verschlüsselung (Block-weise) über mehrere Prozesse.
  * Ausgabe: Base64-Chiffrat wird in eine Datei geschrieben (default "cipher.txt" oder letzte .txt-Arg).
+ * Verarbeitung und Ausgabe erfolgen batchweise (Streaming), das Chiffrat wird nicht komplett im Speicher gehalten.
+ * Verteilung pro Batch: Scatterv/Gatherv fester Byte-Blöcke (siehe BlockScatter).
+ * Für große Eingaben: -in=datei liest den Klartext aus einer Datei, -pipeline überlappt Lesen, Rechnen und
+ * Schreiben mit Doppelpuffern (siehe PipelinedStream, Chunkgröße aus dem TuningProfile bzw. -Drsa.chunkBlocks=...).
+ * Mit -hierarchical wird zweistufig über Host-Leader verteilt und pro Rank mit Threads gerechnet (siehe HostTopology).
  *
  * Aufrufbeispiele (PowerShell):
  *   # schreibt in cipher.txt
@@ -29,9 +45,15 @@ import org.example.mpjkeygen.schnelleExponentiation;
  *
  *   # schreibt in myCipher.txt
  *   mpjrun.bat -dev multicore -np 4 -cp ".;JAR;mpj.jar" org.example.rsa.mpj.mpjRSAEncrypt "Möge die Macht mit dir sein!" "myCipher.txt"
+ *
+ *   # große Datei gepipelined verschlüsseln
+ *   mpjrun.bat -dev multicore -np 4 -cp ".;JAR;mpj.jar" org.example.rsa.mpj.mpjRSAEncrypt -pipeline -in=gross.bin "gross_cipher.txt"
  */
 public class mpjRSAEncrypt {
 
+    /** Blöcke pro Batch (über -Drsa.batchBlocks=... änderbar); bestimmt den Heap-Bedarf auf Rank 0. */
+    private static final int BATCH_BLOCKS = Integer.getInteger("rsa.batchBlocks", 4096);
+
     static {
         try {
             System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), true, StandardCharsets.UTF_8));
@@ -41,19 +63,53 @@ public class mpjRSAEncrypt {
 
     public static void main(String[] args) throws Exception {
         MPI.Init(args);
-        Intracomm comm = MPI.COMM_WORLD;
+        run(MPI.COMM_WORLD, args);
+        MPI.Finalize();
+    }
+
+    /**
+     * Ein kompletter Lauf auf comm (alle Ranks rufen auf). Wird von main und vom Job-Server
+     * (MpjJobServer) benutzt; MPI.Init/Finalize liegen beim Aufrufer.
+     * @return Anzahl verarbeiteter Blöcke (nur auf Rank 0 aussagekräftig)
+     */
+    public static long run(Intracomm comm, String[] args) throws Exception {
         int rank = comm.Rank();
         int size = comm.Size();
+        PerfCounters.reset();   // Zähler gelten pro Lauf (auch bei vielen Jobs im MpjJobServer)
+
+        // -------- Optionen herausfiltern, Rest robust parsen (MPJ hängt eigene Tokens vorn an) --------
+        boolean pipeline = false;
+        boolean hierarchical = false;
+        String traceFile = null;   // -trace[=datei] → Chrome-/Perfetto-Zeitleiste aller Ranks
+        String tune = null;        // -tune[=force] → Autotuner für die Schlüsselgröße
+        String inFile = null;
+        List<String> rest = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equalsIgnoreCase("-pipeline")) {
+                pipeline = true;
+            } else if (arg.equalsIgnoreCase("-hierarchical")) {
+                hierarchical = true;
+            } else if (arg.equals("-trace")) {
+                traceFile = "logs/encrypt-trace.json";
+            } else if (arg.startsWith("-trace=")) {
+                traceFile = arg.substring(arg.indexOf('=') + 1);
+            } else if (arg.equals("-tune") || arg.startsWith("-tune=")) {
+                tune = arg;
+            } else if (arg.startsWith("-in=")) {
+                inFile = arg.substring(arg.indexOf('=') + 1);
+            } else {
+                rest.add(arg);
+            }
+        }
 
-        // -------- Argumente robust parsen (MPJ hängt eigene Tokens vorn an) --------
         String message = "Hello from MPI RSA!";
         String outFile = "cipher.txt";
-        if (args != null && args.length > 0) {
-            String last = args[args.length - 1];
+        if (!rest.isEmpty()) {
+            String last = rest.get(rest.size() - 1);
             if (last.toLowerCase().endsWith(".txt")) {
                 outFile = last;
-                if (args.length >= 2) {
-                    message = args[args.length - 2];
+                if (rest.size() >= 2) {
+                    message = rest.get(rest.size() - 2);
                 }
             } else {
                 message = last;
@@ -61,30 +117,38 @@ public class mpjRSAEncrypt {
         }
 
         BigInteger e = null, n = null;
-        BigInteger[] blocksArr = null;
-        int total = 0;
+        InputStream plain = null;
+        BlockStreams.BlockSource source = null;
+        BlockStreams.BlockSink sink = null;
+        long total = 0;
 
         long t0 = System.currentTimeMillis();
 
+        Exception setupError = null;
         if (rank == 0) {
-            // Schlüssel laden und Message zu Blöcken
-            RSAUtils.loadKeysFromFiles();
-
-            e = RSAUtils.getBobPublicKey();
-            n = RSAUtils.getBobModulus();
+            // Schlüssel laden, Ein- und Ausgabe öffnen; Fehler erst nach dem Abgleich mit den anderen Ranks werfen
+            try {
+                RSAUtils.loadKeysFromFiles();
 
-            List<BigInteger> blocks = RSAUTF8.textToBigIntegerBlocks(message, n);
-            blocksArr = blocks.toArray(new BigInteger[0]);
-            total = blocksArr.length;
+                e = RSAUtils.getBobPublicKey();
+                n = RSAUtils.getBobModulus();
 
-            System.out.println("[Encrypt][Rank0] Blöcke gesamt: " + total + " | Prozesse: " + size);
+                BlockCodec codec = BlockCodec.forModulus(n);
+                plain = (inFile != null)
+                        ? new BufferedInputStream(Files.newInputStream(Path.of(inFile)))
+                        : new ByteArrayInputStream(message.getBytes(StandardCharsets.UTF_8));
+                source = BlockStreams.plain(plain, codec.plainBlockSize());
+                sink = BlockStreams.base64(Base64BlockIO.Writer.open(Path.of(outFile), codec.cipherBlockSize()));
+            } catch (Exception ex) {
+                if (plain != null) plain.close();
+                setupError = ex;
+            }
         }
+        SetupStatus.check(comm, 0, setupError);
 
-        // --- Meta broadcasten ---
-        int[] metaTotal = new int[]{ total };
-        comm.Bcast(metaTotal, 0, 1, MPI.INT, 0);
-        total = metaTotal[0];
+        if (traceFile != null) TraceRecorder.enable(rank, new LogicalTime(rank));
 
+        // --- Schlüssel broadcasten ---
         String[] keyMeta = new String[2];
         if (rank == 0) {
             keyMeta[0] = e.toString();
@@ -94,71 +158,103 @@ public class mpjRSAEncrypt {
         e = new BigInteger(keyMeta[0]);
         n = new BigInteger(keyMeta[1]);
 
-        // --- Blöcke broadcasten ---
-        if (rank != 0) {
-            blocksArr = new BigInteger[total];
-        }
-        if (total > 0) {
-            comm.Bcast(blocksArr, 0, total, MPI.OBJECT, 0);
-        }
-
-        // --- Lokale Round-Robin-Verschlüsselung ---
-        List<Integer> idx = new ArrayList<>();
-        List<BigInteger> vals = new ArrayList<>();
-        for (int i = rank; i < total; i += size) {
-            BigInteger c = schnelleExponentiation.pow(blocksArr[i], e, n);
-            idx.add(i);
-            vals.add(c);
-        }
+        BlockCodec codec = BlockCodec.forModulus(n);
+        int inWidth = codec.plainBlockSize();
+        int outWidth = codec.cipherBlockSize();
 
-        int localCount = idx.size();
-        int[] idxArr = new int[localCount];
-        for (int i = 0; i < localCount; i++) idxArr[i] = idx.get(i);
-        BigInteger[] valArr = vals.toArray(new BigInteger[0]);
+        // Engine/Threads pro Host aus dem Tuning-Profil; die Chunkgröße muss auf allen Ranks gleich sein → von Rank 0
+        TuningProfile.Params tuning = (tune != null)
+                ? Autotuner.ensure(comm, n.bitLength(), tune.equals("-tune=force"))
+                : TuningProfile.current().forKeyBits(n.bitLength());
+        tuning.activate();
+        int[] chunkBlocks = new int[]{ tuning.chunkBlocks };
+        comm.Bcast(chunkBlocks, 0, 1, MPI.INT, 0);
 
-        // --- Ergebnisse zu Rank 0 ---
         if (rank == 0) {
-            BigInteger[] result = new BigInteger[total];
+            System.out.println("[Encrypt][Rank0] Prozesse: " + size + " | "
+                    + (pipeline ? "Pipeline, Chunkgröße: " + chunkBlocks[0] : "Batchgröße: " + BATCH_BLOCKS) + " Blöcke"
+                    + (hierarchical && !pipeline ? " | hierarchisch" : "")
+                    + (inFile != null ? " | Eingabe: " + inFile : ""));
+            System.out.println("[Encrypt][Rank0] Tuning: " + tuning);
+        }
 
-            // eigene Ergebnisse
-            for (int i = 0; i < localCount; i++) {
-                result[idxArr[i]] = valArr[i];
+        if (pipeline) {
+            total = PipelinedStream.run(comm, source, sink, chunkBlocks[0], inWidth, outWidth, e, n);
+        } else {
+            HostTopology topo = hierarchical ? HostTopology.build(comm) : null;
+            if (topo != null && rank == 0) {
+                System.out.println("[Encrypt][Rank0] Topologie: " + topo.describe() + ", "
+                        + topo.threadsPerRank(tuning.threads) + " Threads/Rank");
             }
+            total = runBatched(comm, topo, source, sink, inWidth, outWidth, e, n, tuning.threads);
+            if (topo != null) topo.close();
+        }
 
-            // von anderen Ranks empfangen
-            for (int r = 1; r < size; r++) {
-                int[] cArr = new int[1];
-                comm.Recv(cArr, 0, 1, MPI.INT, r, 100);
-                int c = cArr[0];
-
-                int[] ridx = new int[c];
-                if (c > 0) comm.Recv(ridx, 0, c, MPI.INT, r, 101);
+        if (rank == 0) {
+            plain.close();
+            long t1 = System.currentTimeMillis();
+            System.out.println("[Encrypt][Rank0] Blöcke gesamt: " + total);
+            System.out.println("[Encrypt][Rank0] Chiffrat gespeichert in: " + outFile);
+            System.out.println("[Encrypt][Rank0] Fertig in " + (t1 - t0) + " ms.");
+        }
 
-                BigInteger[] rvals = new BigInteger[c];
-                if (c > 0) comm.Recv(rvals, 0, c, MPI.OBJECT, r, 102);
+        PerfCounters.Totals counters = PerfCounters.reduce(comm, 0);
+        if (rank == 0) {
+            System.out.println("[Encrypt][Rank0] Zähler (Summe | Max pro Rank):");
+            System.out.print(counters.describe());
+        }
 
-                for (int j = 0; j < c; j++) result[ridx[j]] = rvals[j];
-            }
+        if (traceFile != null) {
+            TraceRecorder.exportChromeTrace(comm, Path.of(traceFile));
+            TraceRecorder.disable();
+            if (rank == 0) System.out.println("[Encrypt][Rank0] Trace geschrieben: " + Path.of(traceFile).toAbsolutePath());
+        }
 
-            List<BigInteger> encrypted = Arrays.asList(result);
-            String base64 = RSAUTF8.blocksToBase64String(encrypted, n);
+        return total;
+    }
 
-            // In Datei schreiben (UTF-8)
-            Files.writeString(Path.of(outFile), base64, StandardCharsets.UTF_8);
-            System.out.println("[Encrypt][Rank0] Chiffrat gespeichert in: " + outFile);
+    /**
+     * Batchweise: Rank 0 liest → Scatterv → alle rechnen → Gatherv → Rank 0 schreibt.
+     * Lesen und Schreiben liegen hier seriell zwischen den Rechenphasen (anders als im Pipeline-Modus).
+     * Mit topo != null zweistufig über die Host-Leader (BlockScatter.scatterComputeHierarchical).
+     */
+    private static long runBatched(Intracomm comm, HostTopology topo, BlockStreams.BlockSource source, BlockStreams.BlockSink sink,
+                                   int inWidth, int outWidth, BigInteger e, BigInteger n, int hostThreads) throws Exception {
+        int rank = comm.Rank();
+        byte[] inBatch = (rank == 0) ? new byte[BATCH_BLOCKS * inWidth] : null;
+        byte[] outBatch = (rank == 0) ? new byte[BATCH_BLOCKS * outWidth] : null;
+        long total = 0;
+        try (BlockExecutor executor = (topo != null)
+                ? new BlockExecutor(topo.threadsPerRank(hostThreads), BlockExecutor.DEFAULT_SEQUENTIAL_CUTOFF) : null) {
+            while (true) {
+                int[] metaCount = new int[1];
+                if (rank == 0) {
+                    long io0 = TraceRecorder.begin();
+                    metaCount[0] = source.read(inBatch, BATCH_BLOCKS);
+                    TraceRecorder.end("Lesen", TraceRecorder.Category.IO, io0);
+                }
+                comm.Bcast(metaCount, 0, 1, MPI.INT, 0);
+                int count = metaCount[0];
+                if (count == 0) break;
+                BlockBatchEvent jfr = BlockBatchEvent.start();
 
-            long t1 = System.currentTimeMillis();
-            System.out.println("[Encrypt][Rank0] Fertig in " + (t1 - t0) + " ms.");
-            System.out.println("\n=== Base64-Chiffrat (Alice→Bob) ===\n" + base64);
-        } else {
-            // zu Rank 0 senden
-            comm.Send(new int[]{localCount}, 0, 1, MPI.INT, 0, 100);
-            if (localCount > 0) {
-                comm.Send(idxArr, 0, localCount, MPI.INT, 0, 101);
-                comm.Send(valArr, 0, localCount, MPI.OBJECT, 0, 102);
+                if (topo != null) {
+                    BlockScatter.scatterComputeHierarchical(topo, inBatch, count, inWidth, outBatch, outWidth, e, n, executor);
+                } else {
+                    BlockScatter.scatterCompute(comm, inBatch, count, inWidth, outBatch, outWidth, e, n);
+                }
+                jfr.finish("encrypt", (topo != null) ? "hierarchisch" : "statisch", count, (long) count * inWidth, rank);
+                // Scatterv/Gatherv transportieren nur Blockbytes → Lamport-Abgleich separat (nur bei aktivem Tracing)
+                TraceRecorder.synchronize(comm);
+                if (rank == 0) {
+                    long io0 = TraceRecorder.begin();
+                    sink.write(outBatch, count);
+                    TraceRecorder.end("Schreiben", TraceRecorder.Category.IO, io0);
+                    total += count;
+                }
             }
         }
-
-        MPI.Finalize();
+        if (rank == 0) sink.finish();
+        return total;
     }
 }
@@ -0,0 +1,59 @@
+package org.example.rsa.service;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latenz- und Durchsatzzähler für den RSA-Dienst.
+ *
+ * - Die letzten WINDOW Latenzen liegen in einem Ringpuffer; Perzentile werden bei Abfrage daraus sortiert.
+ * - Zähler (Anfragen, Fehler, abgelehnte Anfragen, Blöcke) sind LongAdder → kein Lock im Anfragepfad.
+ */
+public final class LatencyRecorder {
+
+    private static final int WINDOW = 1 << 14;
+
+    private final long[] ring = new long[WINDOW];
+    private long next = 0;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder blocks = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    public void record(long nanos, int blockCount) {
+        requests.increment();
+        blocks.add(blockCount);
+        synchronized (ring) {
+            ring[(int) (next++ & (WINDOW - 1))] = nanos;
+        }
+    }
+
+    public void error()    { errors.increment(); }
+    public void rejected() { rejected.increment(); }
+
+    /** Perzentil p ∈ [0, 100] über das aktuelle Fenster in Nanosekunden (0 ohne Messwerte). */
+    public long percentile(double p) {
+        long[] copy;
+        synchronized (ring) {
+            int n = (int) Math.min(next, WINDOW);
+            copy = Arrays.copyOf(ring, n);
+        }
+        if (copy.length == 0) return 0;
+        Arrays.sort(copy);
+        int idx = (int) Math.ceil(p / 100.0 * copy.length) - 1;
+        return copy[Math.max(0, Math.min(copy.length - 1, idx))];
+    }
+
+    /** Einzeilige Zusammenfassung für das STATS-Kommando. */
+    public String summary() {
+        double secs = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        long req = requests.sum();
+        return String.format(Locale.ROOT,
+                "requests=%d errors=%d rejected=%d blocks=%d p50=%.1fus p99=%.1fus throughput=%.1freq/s blocks/s=%.1f",
+                req, errors.sum(), rejected.sum(), blocks.sum(),
+                percentile(50) / 1e3, percentile(99) / 1e3, req / secs, blocks.sum() / secs);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.rsa.service;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+import org.example.rsa.BlockExecutor;
+
+/**
+ * Bündelt gleichzeitige Anfragen für denselben Schlüssel (exponent, modulus) zu einem Batch.
+ *
+ * - Anfragen landen in einer begrenzten Queue; ist sie voll, wird sofort abgelehnt (Load Shedding).
+ * - Ein Batcher-Thread nimmt alles Wartende (bis maxBatchBlocks), rechnet die Blöcke aller Anfragen
+ *   gemeinsam über den BlockExecutor und verteilt die Ergebnisse zurück.
+ */
+public final class RequestCoalescer {
+
+    private static final class Job {
+        final BigInteger[] blocks;
+        final CompletableFuture<BigInteger[]> result = new CompletableFuture<>();
+        Job(BigInteger[] blocks) { this.blocks = blocks; }
+    }
+
+    private final String name;
+    private final BigInteger exponent;
+    private final BigInteger modulus;
+    private final BlockExecutor executor;
+    private final int maxBatchBlocks;
+    private final BlockingQueue<Job> queue;
+    private final Thread batcher;
+
+    public RequestCoalescer(String name, BigInteger exponent, BigInteger modulus,
+                            BlockExecutor executor, int queueCapacity, int maxBatchBlocks) {
+        this.name = name;
+        this.exponent = exponent;
+        this.modulus = modulus;
+        this.executor = executor;
+        this.maxBatchBlocks = maxBatchBlocks;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batcher = Thread.ofPlatform().daemon().name("coalescer-" + name).start(this::loop);
+    }
+
+    /**
+     * Reiht eine Anfrage ein.
+     * @return Future mit den Ergebnisblöcken, oder null, wenn die Queue voll ist (Anfrage abgelehnt)
+     */
+    public CompletableFuture<BigInteger[]> submit(BigInteger[] blocks) {
+        Job job = new Job(blocks);
+        return queue.offer(job) ? job.result : null;
+    }
+
+    private void loop() {
+        List<Job> batch = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            // alles mitnehmen, was schon wartet (bis zur Batchgrenze)
+            int total = batch.get(0).blocks.length;
+            Job j;
+            while (total < maxBatchBlocks && (j = queue.poll()) != null) {
+                batch.add(j);
+                total += j.blocks.length;
+            }
+
+            BigInteger[] all = new BigInteger[total];
+            int off = 0;
+            for (Job b : batch) {
+                System.arraycopy(b.blocks, 0, all, off, b.blocks.length);
+                off += b.blocks.length;
+            }
+            try {
+                executor.mapInPlace(all, BlockExecutor.kernel(exponent, modulus));
+                off = 0;
+                for (Job b : batch) {
+                    BigInteger[] res = new BigInteger[b.blocks.length];
+                    System.arraycopy(all, off, res, 0, res.length);
+                    off += res.length;
+                    b.result.complete(res);
+                }
+            } catch (RuntimeException ex) {
+                for (Job b : batch) b.result.completeExceptionally(ex);
+            }
+            batch.clear();
+        }
+    }
+
+    public String name() { return name; }
+
+    public void shutdown() { batcher.interrupt(); }
+}
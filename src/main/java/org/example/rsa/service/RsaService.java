@@ -0,0 +1,177 @@
+package org.example.rsa.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.example.rsa.BlockCodec;
+import org.example.rsa.BlockExecutor;
+import org.example.rsa.RSAUtils;
+
+/**
+ * Langlebiger lokaler RSA-Dienst (TCP auf localhost) auf Basis von RSAUtils/BlockCodec.
+ * Spart pro Nachricht den JVM- und MPI-Start von mpjrun.
+ *
+ * Protokoll (eine Zeile pro Anfrage/Antwort, UTF-8):
+ *   ENC <alice2bob|bob2alice> <Base64(Klartextbytes)>  → OK <Base64-Chiffrat, Format wie blocksToBase64String>
+ *   DEC <alice2bob|bob2alice> <Base64-Chiffrat>        → OK <Base64(Klartextbytes)>
+ *   STATS                                              → OK requests=... p50=... p99=... throughput=...
+ *   QUIT                                               → Verbindung schließen
+ * Fehler: ERR <Meldung>; bei voller Queue: ERR busy (Load Shedding).
+ *
+ * Jede Verbindung läuft auf einem virtuellen Thread. Gleichzeitige Anfragen für denselben Schlüssel
+ * werden im RequestCoalescer zu gemeinsamen Exponentiations-Batches gebündelt.
+ *
+ * Aufruf: RsaService [-port=7070] [-queue=1024] [-batch=256]
+ */
+public final class RsaService {
+
+    private static final long TIMEOUT_MS = 30_000;
+
+    private final Map<String, RequestCoalescer> coalescers = new HashMap<>();
+    private final Map<String, BigInteger> moduli = new HashMap<>();
+    private final LatencyRecorder stats = new LatencyRecorder();
+
+    public RsaService(int queueCapacity, int maxBatchBlocks) throws IOException {
+        RSAUtils.loadKeysFromFiles();
+        BlockExecutor executor = BlockExecutor.shared();
+
+        // alice2bob: an Bob → Bobs (e, n) / Bobs d; bob2alice: an Alice → Alices (e, n) / Alices d
+        moduli.put("alice2bob", RSAUtils.getBobModulus());
+        moduli.put("bob2alice", RSAUtils.getAliceModulus());
+        register("ENC alice2bob", RSAUtils.getBobPublicKey(), RSAUtils.getBobModulus(), executor, queueCapacity, maxBatchBlocks);
+        register("ENC bob2alice", RSAUtils.getAlicePublicKey(), RSAUtils.getAliceModulus(), executor, queueCapacity, maxBatchBlocks);
+        register("DEC bob2alice", RSAUtils.getAlicePrivateKey(), RSAUtils.getAliceModulus(), executor, queueCapacity, maxBatchBlocks);
+        try {
+            register("DEC alice2bob", RSAUtils.getBobPrivateKey(), RSAUtils.getBobModulus(), executor, queueCapacity, maxBatchBlocks);
+        } catch (IllegalStateException ex) {
+            System.out.println("[Service] Hinweis: " + ex.getMessage());
+        }
+    }
+
+    private void register(String key, BigInteger exp, BigInteger n, BlockExecutor executor, int queue, int batch) {
+        coalescers.put(key, new RequestCoalescer(key, exp, n, executor, queue, batch));
+    }
+
+    public LatencyRecorder stats() { return stats; }
+
+    /** Nimmt Verbindungen an, bis der Prozess beendet wird; jede Verbindung auf einem virtuellen Thread. */
+    public void serve(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+             ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor()) {
+            System.out.println("[Service] Lausche auf " + server.getLocalSocketAddress());
+            while (!server.isClosed()) {
+                Socket s = server.accept();
+                connections.submit(() -> handle(s));
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                if (line.trim().equalsIgnoreCase("QUIT")) break;
+                out.write(process(line.trim()));
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException ignored) {
+            // Client hat die Verbindung getrennt
+        }
+    }
+
+    /** Bearbeitet eine Anfragezeile und liefert die Antwortzeile (ohne Zeilenumbruch). */
+    public String process(String line) {
+        long t0 = System.nanoTime();
+        String[] parts = line.split(" ", 3);
+        String cmd = parts[0].toUpperCase();
+        if (cmd.equals("STATS")) return "OK " + stats.summary();
+        if (parts.length < 3 || !(cmd.equals("ENC") || cmd.equals("DEC"))) {
+            stats.error();
+            return "ERR Aufruf: ENC|DEC alice2bob|bob2alice <base64> oder STATS";
+        }
+        String direction = parts[1].toLowerCase();
+        RequestCoalescer coalescer = coalescers.get(cmd + " " + direction);
+        BigInteger n = moduli.get(direction);
+        if (coalescer == null || n == null) {
+            stats.error();
+            return "ERR Unbekannte Richtung oder kein privater Schlüssel: " + direction;
+        }
+
+        try {
+            BlockCodec codec = BlockCodec.forModulus(n);
+            byte[] payload = Base64.getDecoder().decode(parts[2]);
+            List<BigInteger> blocks = cmd.equals("ENC") ? codec.encodePlain(payload) : codec.decodeCipher(payload);
+
+            CompletableFuture<BigInteger[]> f = coalescer.submit(blocks.toArray(new BigInteger[0]));
+            if (f == null) {
+                stats.rejected();
+                return "ERR busy";
+            }
+            BigInteger[] res = f.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+            int width = cmd.equals("ENC") ? codec.cipherBlockSize() : codec.plainBlockSize();
+            byte[] bytes = BlockCodec.joinBlocks(Arrays.asList(res), width);
+            if (cmd.equals("DEC")) bytes = stripTrailingZeros(bytes);
+
+            stats.record(System.nanoTime() - t0, res.length);
+            return "OK " + Base64.getEncoder().encodeToString(bytes);
+        } catch (IllegalArgumentException ex) {
+            stats.error();
+            return "ERR Ungültiges Base64: " + ex.getMessage();
+        } catch (TimeoutException ex) {
+            stats.error();
+            return "ERR timeout";
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            stats.error();
+            return "ERR interrupted";
+        } catch (ExecutionException ex) {
+            stats.error();
+            return "ERR " + ex.getCause();
+        }
+    }
+
+    private static byte[] stripTrailingZeros(byte[] b) {
+        int end = b.length;
+        while (end > 0 && b[end - 1] == 0) end--;
+        return (end == b.length) ? b : Arrays.copyOf(b, end);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = 7070, queue = 1024, batch = 256;
+        for (String arg : args) {
+            if (arg.startsWith("-port=")) {
+                port = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("-queue=")) {
+                queue = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("-batch=")) {
+                batch = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        new RsaService(queue, batch).serve(port);
+    }
+}